@@ -0,0 +1,113 @@
+package org.compurrentes.benchmarks;
+
+import org.compurrentes.ModelledProcess;
+import org.compurrentes.Monitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Disparo a través del monitor con hilos en competencia. Cada hilo alterna las dos transiciones de su propio
+ *  ciclo (ver ProductionLine.independentCycles), así ningún hilo queda bloqueado por tokens al terminar una
+ *  iteración y con el monitor serializado la competencia es únicamente por el mutex; con el monitor optimista
+ *  los ciclos no comparten plazas y cada hilo dispara sin tomar el mutex, y con el monitor particionado cada
+ *  transición queda en su propio fragmento y los hilos sólo comparten mutex dentro de su ciclo. Luego de cada disparo se realiza la tarea
+ *  del proceso modelado y, si work es mayor a 0, se simula trabajo fuera del monitor (Blackhole.consumeCPU).
+ *  La cantidad de hilos se elige con la opción -t de JMH (hasta MAX_THREADS); el resultado en ops/s son
+ *  disparos por segundo sumando todos los hilos. shootTransitionLatency mide lo mismo por muestreo de la duración
+ *  de cada disparo, para comparar la cola de latencias (p99, p99.9) de los monitores, en particular entre el lock
+ *  justo y el lock con barging, que difieren más en la latencia que en el rendimiento.
+ *  Ejemplo: {@code for t in 1 2 4 8; do java -jar target/benchmarks.jar MonitorBenchmark -t $t -prof gc; done}
+ *  Ejemplo: {@code for t in 1 4 16 64; do java -jar target/benchmarks.jar MonitorBenchmark -t $t -p monitor=fair,barging; done}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MonitorBenchmark {
+
+    static final int MAX_THREADS = 256;
+
+    @State(Scope.Benchmark)
+    public static class Line {
+
+        @Param({"0", "1000"}) /*Trabajo simulado fuera del monitor luego de cada disparo (0 = sin trabajo)*/
+        public long work;
+
+        @Param({Monitor.SERIALIZED, Monitor.OPTIMISTIC, Monitor.SHARDED, Monitor.FAIR, Monitor.BARGING})
+        public String monitor;
+
+        private ProductionLine line;
+        private final AtomicInteger cycles = new AtomicInteger();
+
+        @Setup
+        public void setup() {
+            line = ProductionLine.independentCycles(MAX_THREADS, "equitable", monitor);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Worker {
+
+        private int first;
+        private int second;
+        private boolean odd = false;
+
+        @Setup
+        public void setup(Line line) {
+            int cycle = line.cycles.getAndIncrement();
+            if(cycle >= MAX_THREADS) {
+                throw new IllegalStateException("At most " + MAX_THREADS + " threads are supported");
+            }
+            first = 2 * cycle;
+            second = first + 1;
+        }
+
+        private int next() {
+            odd = !odd;
+            return odd ? first : second;
+        }
+    }
+
+    /**
+     * Dispara la siguiente transición del ciclo del hilo y realiza la tarea asociada.
+     *
+     * @param line sistema compartido por los hilos
+     * @param worker estado del hilo
+     */
+    @Benchmark
+    public void shootTransition(Line line, Worker worker) {
+        Monitor monitor = line.line.monitor;
+        ModelledProcess modelledProcess = line.line.modelledProcess;
+        int transition = worker.next();
+        monitor.shootTransition(transition);
+        modelledProcess.realizeTask(transition);
+        if(line.work > 0) Blackhole.consumeCPU(line.work);
+    }
+
+    /**
+     * Igual que shootTransition, midiendo la distribución de la duración de cada disparo.
+     *
+     * @param line sistema compartido por los hilos
+     * @param worker estado del hilo
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void shootTransitionLatency(Line line, Worker worker) {
+        shootTransition(line, worker);
+    }
+}
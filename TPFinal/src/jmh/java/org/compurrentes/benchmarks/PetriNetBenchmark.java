@@ -0,0 +1,72 @@
+package org.compurrentes.benchmarks;
+
+import org.compurrentes.PetriNet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Motor de la RdP aislado, en un solo hilo y sin monitor: disparo (ecuación de estado y actualización del
+ *  sensibilizado) y consulta de las transiciones sensibilizadas. Cada operación de shoot es un disparo, por lo
+ *  que el resultado en ops/s son disparos por segundo.
+ *  Ejemplo: {@code java -jar target/benchmarks.jar PetriNetBenchmark -prof gc}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PetriNetBenchmark {
+
+    private PetriNet petriNet;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        petriNet = ProductionLine.load("equitable").petriNet;
+    }
+
+    /**
+     * Dispara la siguiente transición de la secuencia, que recorre un ciclo de cada camino y vuelve al
+     *  marcado inicial, por lo que todos los disparos son exitosos.
+     *
+     * @return resultado del disparo
+     */
+    @Benchmark
+    public boolean shoot() {
+        int transition = ProductionLine.FIRING_SEQUENCE[next];
+        next = next + 1 == ProductionLine.FIRING_SEQUENCE.length ? 0 : next + 1;
+        return petriNet.shoot(transition, false);
+    }
+
+    /**
+     * Consulta las transiciones sensibilizadas como lista.
+     *
+     * @return transiciones sensibilizadas
+     */
+    @Benchmark
+    public List<Integer> getSensibilities() {
+        return petriNet.getSensibilities();
+    }
+
+    /**
+     * Consulta la máscara de transiciones sensibilizadas, la vista que usa el monitor.
+     *
+     * @return máscara de sensibilizadas
+     */
+    @Benchmark
+    public long[] getSensitizedMask() {
+        return petriNet.getSensitizedMask();
+    }
+}
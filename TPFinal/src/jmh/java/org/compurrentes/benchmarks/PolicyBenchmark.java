@@ -0,0 +1,68 @@
+package org.compurrentes.benchmarks;
+
+import org.compurrentes.BitMask;
+import org.compurrentes.policies.Policy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Elección de la política entre las transiciones candidatas (sensibilizadas y con hilos esperando), para cada
+ *  política y distintos conjuntos de candidatas. Los contadores de disparo se inicializan con valores
+ *  arbitrarios para que la política ponderada no decida siempre por empate.
+ *  Ejemplo: {@code java -jar target/benchmarks.jar PolicyBenchmark -prof gc}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PolicyBenchmark {
+
+    @Param({"equitable", "weighted:2,1,1", "roundrobin", "random:42"})
+    public String policy;
+
+    @Param({"1", "1-9", "2-3-10", "1-2-3-4-5-6-7-8-9-10-11-12"}) /*Transiciones candidatas, desde 1*/
+    public String candidates;
+
+    private Policy politics;
+    private long[] availableTransitions;
+
+    @Setup
+    public void setup() {
+        ProductionLine line = ProductionLine.load(policy);
+        politics = line.modelledProcess.getPolitics();
+        AtomicIntegerArray counter = line.modelledProcess.getTransitionActionCounter();
+        Random random = new Random(1);
+        for(int transition = 0; transition < counter.length(); transition++) {
+            counter.set(transition, random.nextInt(1000));
+        }
+        availableTransitions = BitMask.create(line.petriNet.getTotalTransitions());
+        for(String transition : candidates.split("-")) {
+            BitMask.set(availableTransitions, Integer.parseInt(transition) - 1);
+        }
+    }
+
+    /**
+     * Elige una transición entre las candidatas.
+     *
+     * @return transición elegida
+     */
+    @Benchmark
+    public int getPriorityShooter() {
+        return politics.getPriorityShooter(availableTransitions);
+    }
+}
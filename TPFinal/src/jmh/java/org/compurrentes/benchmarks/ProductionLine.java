@@ -0,0 +1,131 @@
+package org.compurrentes.benchmarks;
+
+import org.compurrentes.IncidenceMatrix;
+import org.compurrentes.ModelledProcess;
+import org.compurrentes.Monitor;
+import org.compurrentes.PetriNet;
+import org.compurrentes.PnmlLoader;
+import org.compurrentes.analysis.InvariantCalculator;
+import org.compurrentes.beans.ExpiryPolicy;
+import org.compurrentes.beans.NetDefinition;
+import org.compurrentes.beans.SensitizedVector;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sistema armado para los benchmarks: RdP, proceso modelado y monitor, conectados igual que en Main pero sin
+ *  ventanas temporales (alpha = 0), para medir el costo del motor y del monitor y no el de las esperas.
+ */
+final class ProductionLine {
+
+    static final String NET = System.getProperty("net", "../PetriNetPipe.xml"); /*Definición PNML de la RdP*/
+    static final int[] FIRING_SEQUENCE = {0, 1, 3, 5, 7, 0, 2, 4, 6, 7, 8, 9, 10, 11}; /*Un ciclo de cada camino*/
+    static final int[][] SEGMENTS = {{0}, {1, 3, 5}, {2, 4, 6}, {7}, {8, 9, 10, 11}}; /*Transiciones de cada segmento, como en Main*/
+    static final int[] SEGMENT_WORKERS = {2, 4, 4, 1, 4}; /*Hilos de cada segmento en Main*/
+
+    final PetriNet petriNet;
+    final ModelledProcess modelledProcess;
+    final Monitor monitor;
+
+    private ProductionLine(NetDefinition net, List<List<Integer>> piecesTransitions, String policy, long taskNanos,
+                           String monitorKind) {
+        petriNet = new PetriNet(net);
+        modelledProcess = taskNanos == 0 ? new ModelledProcess(petriNet, piecesTransitions, policy)
+                : new ModelledProcess(petriNet, piecesTransitions, policy) {
+                    @Override
+                    public void realizeTask(int transition) {
+                        super.realizeTask(transition);
+                        LockSupport.parkNanos(taskNanos); /*Tarea simulada, el hilo se bloquea fuera del monitor*/
+                    }
+                };
+        monitor = Monitor.create(monitorKind, modelledProcess);
+        long[] beta = new long[net.getTotalTransitions()];
+        Arrays.fill(beta, SensitizedVector.UNBOUNDED);
+        petriNet.setSensitizedVector(new SensitizedVector(monitor, new long[net.getTotalTransitions()], beta,
+                ExpiryPolicy.RESET));
+        monitor.start();
+    }
+
+    /**
+     * Arma la línea de producción definida en el archivo PNML (-Dnet).
+     *
+     * @param policy especificación de la política de disparo
+     * @return sistema armado
+     */
+    static ProductionLine load(String policy) {
+        return load(policy, 0);
+    }
+
+    /**
+     * Arma la línea de producción definida en el archivo PNML (-Dnet) con una tarea simulada luego de cada
+     *  disparo.
+     *
+     * @param policy especificación de la política de disparo
+     * @param taskNanos duración de la tarea de cada disparo en nanosegundos (0 = sin tarea)
+     * @return sistema armado
+     */
+    static ProductionLine load(String policy, long taskNanos) {
+        return load(policy, taskNanos, Monitor.SERIALIZED);
+    }
+
+    /**
+     * Arma la línea de producción definida en el archivo PNML (-Dnet) con una tarea simulada luego de cada
+     *  disparo y el tipo de monitor indicado.
+     *
+     * @param policy especificación de la política de disparo
+     * @param taskNanos duración de la tarea de cada disparo en nanosegundos (0 = sin tarea)
+     * @param monitorKind tipo de monitor (ver Monitor.create)
+     * @return sistema armado
+     */
+    static ProductionLine load(String policy, long taskNanos, String monitorKind) {
+        try {
+            NetDefinition net = PnmlLoader.load(Paths.get(NET));
+            List<List<Integer>> piecesTransitions = InvariantCalculator.firingSequences( /*Como en Main*/
+                    new IncidenceMatrix(net.getPre(), net.getPost(), net.getCapacities()), net.getInitialMarking());
+            return new ProductionLine(net, piecesTransitions, policy, taskNanos, monitorKind);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Arma una red de ciclos independientes de dos transiciones con un token cada uno: la transición 2i pasa el
+     *  token de la plaza 2i a la 2i+1 y la 2i+1 lo devuelve. Un hilo que alterna las transiciones de su ciclo nunca
+     *  se bloquea por tokens, por lo que varios hilos con ciclos distintos sólo compiten por el mutex del monitor.
+     *
+     * @param cycles cantidad de ciclos
+     * @param policy especificación de la política de disparo
+     * @param monitorKind tipo de monitor (ver Monitor.create)
+     * @return sistema armado
+     */
+    static ProductionLine independentCycles(int cycles, String policy, String monitorKind) {
+        int size = 2 * cycles;
+        int[][] pre = new int[size][size];
+        int[][] post = new int[size][size];
+        int[] marking = new int[size];
+        List<String> places = new ArrayList<>();
+        List<String> transitions = new ArrayList<>();
+        List<List<Integer>> paths = new ArrayList<>();
+        for(int i = 0; i < size; i++) {
+            pre[i][i] = 1;
+            post[i ^ 1][i] = 1;
+            places.add("P" + (i + 1));
+            transitions.add("T" + (i + 1));
+        }
+        for(int cycle = 0; cycle < cycles; cycle++) {
+            marking[2 * cycle] = 1;
+            paths.add(Arrays.asList(2 * cycle, 2 * cycle + 1));
+        }
+        long[] beta = new long[size];
+        Arrays.fill(beta, SensitizedVector.UNBOUNDED);
+        NetDefinition net = new NetDefinition(places, transitions, pre, post, marking, new int[size],
+                new long[size], beta);
+        return new ProductionLine(net, paths, policy, 0, monitorKind);
+    }
+}
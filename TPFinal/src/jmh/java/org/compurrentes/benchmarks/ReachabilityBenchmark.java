@@ -0,0 +1,66 @@
+package org.compurrentes.benchmarks;
+
+import org.compurrentes.IncidenceMatrix;
+import org.compurrentes.analysis.ReachabilityAnalyzer;
+import org.compurrentes.analysis.ReachabilityReport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Análisis de alcanzabilidad completo según la cantidad de hilos del ForkJoinPool. La red son ciclos
+ *  independientes de dos plazas con un token cada uno, por lo que tiene 2^cycles marcados alcanzables.
+ *  Ejemplo: {@code java -Xmx4g -jar target/benchmarks.jar ReachabilityBenchmark -p cycles=22 -p parallelism=1,2,4,8}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ReachabilityBenchmark {
+
+    @Param({"16", "20"}) /*Ciclos independientes de la red (2^cycles marcados)*/
+    public int cycles;
+
+    @Param({"1", "2", "4"}) /*Hilos del ForkJoinPool*/
+    public int parallelism;
+
+    private ReachabilityAnalyzer analyzer;
+
+    @Setup
+    public void setup() {
+        int size = 2 * cycles;
+        int[][] pre = new int[size][size];
+        int[][] post = new int[size][size];
+        int[] marking = new int[size];
+        for(int i = 0; i < size; i++) {
+            pre[i][i] = 1;
+            post[i ^ 1][i] = 1;
+        }
+        for(int cycle = 0; cycle < cycles; cycle++) {
+            marking[2 * cycle] = 1;
+        }
+        analyzer = new ReachabilityAnalyzer(new IncidenceMatrix(pre, post), marking, new int[size]);
+    }
+
+    /**
+     * Explora todos los marcados alcanzables.
+     *
+     * @return resultado del análisis
+     */
+    @Benchmark
+    public ReachabilityReport analyze() {
+        return analyzer.analyze(parallelism, 1L << cycles);
+    }
+}
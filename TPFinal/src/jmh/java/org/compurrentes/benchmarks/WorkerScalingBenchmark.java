@@ -0,0 +1,124 @@
+package org.compurrentes.benchmarks;
+
+import org.compurrentes.Monitor;
+import org.compurrentes.Shooter;
+import org.compurrentes.beans.Segment;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Escalado de la línea de producción con la cantidad de trabajadores.
+ *  Los shooters corren en segundo plano con los segmentos de Main, multiplicando los hilos de cada segmento por
+ *  scale, y luego de cada disparo realizan una tarea que bloquea al hilo taskMicros microsegundos fuera del
+ *  monitor. El benchmark sólo observa: cada operación espera una ventana de 100 ms y suma los disparos ocurridos,
+ *  que JMH reporta como la métrica "firings" en disparos por segundo.
+ *  Por defecto se mide con escalas chicas; las escalas grandes (-p scale=1,10,100,1000) se piden explícitamente:
+ *  con scale=1000 son 15.000 hilos por prueba.
+ *  El monitor es el serializado salvo que se indique otro con -p monitor=serialized,optimistic,fair,barging, y con
+ *  -p batch=false,true se compara el disparo por lotes, en el que cada shooter recorre el ciclo de su segmento.
+ *  Ejemplo: {@code java -jar target/benchmarks.jar WorkerScalingBenchmark -p scale=1,10,100}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+public class WorkerScalingBenchmark {
+
+    private static final long WINDOW_MILLIS = 100;
+
+    @Param({Monitor.SERIALIZED})
+    public String monitor;
+
+    @Param({"false"}) /*Disparo por lotes (ver Shooter)*/
+    public boolean batch;
+
+    @Param({"1", "10"}) /*Multiplicador de los hilos por segmento de Main*/
+    public int scale;
+
+    @Param({"0", "100"}) /*Duración de la tarea luego de cada disparo, en microsegundos*/
+    public long taskMicros;
+
+    private ProductionLine line;
+    private final List<Thread> shooters = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void startShooters() {
+        line = ProductionLine.load("equitable", TimeUnit.MICROSECONDS.toNanos(taskMicros), monitor);
+        for(int segment = 0; segment < ProductionLine.SEGMENTS.length; segment++) {
+            Segment shared = new Segment(ProductionLine.SEGMENT_WORKERS[segment] * scale,
+                    ProductionLine.SEGMENTS[segment], "S" + segment);
+            for(int worker = 0; worker < shared.getThreadNumber(); worker++) {
+                shooters.add(new Thread(batch
+                        ? new Shooter(line.monitor, shared.getCycle(), line.modelledProcess)
+                        : new Shooter(line.monitor, shared.getTransitions(), line.modelledProcess)));
+            }
+        }
+        shooters.forEach(Thread::start);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopShooters() throws InterruptedException {
+        shooters.forEach(Thread::interrupt);
+        for(Thread shooter : shooters) {
+            shooter.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    /**
+     * Disparos por segundo de la línea, acumulados por JMH entre las operaciones de una iteración.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Firings {
+
+        public long firings;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            firings = 0;
+        }
+    }
+
+    /**
+     * Espera una ventana de tiempo y suma los disparos que realizaron los shooters durante ella.
+     *
+     * @param firings contador de disparos de la iteración
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    @Benchmark
+    public void observe(Firings firings) throws InterruptedException {
+        long before = totalFirings();
+        TimeUnit.MILLISECONDS.sleep(WINDOW_MILLIS);
+        firings.firings += totalFirings() - before;
+    }
+
+    private long totalFirings() {
+        AtomicIntegerArray counter = line.modelledProcess.getTransitionActionCounter();
+        long total = 0;
+        for(int transition = 0; transition < counter.length(); transition++) {
+            total += counter.get(transition);
+        }
+        return total;
+    }
+}
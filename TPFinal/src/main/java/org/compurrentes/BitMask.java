@@ -0,0 +1,101 @@
+package org.compurrentes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Operaciones sobre conjuntos de transiciones representados como máscaras de bits (arreglos de long, un bit
+ *  por transición). Se utilizan dentro del monitor para evitar listas y boxing en el camino de disparo.
+ */
+public final class BitMask {
+
+    private BitMask() {
+    }
+
+    /**
+     * Crea una máscara vacía con capacidad para la cantidad de elementos indicada.
+     *
+     * @param size cantidad de elementos representables
+     * @return máscara vacía
+     */
+    public static long[] create(int size) {
+        return new long[(size + 63) >>> 6];
+    }
+
+    /**
+     * Marca el elemento en la máscara.
+     *
+     * @param mask máscara a modificar
+     * @param index elemento a marcar
+     */
+    public static void set(long[] mask, int index) {
+        mask[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * Desmarca el elemento en la máscara.
+     *
+     * @param mask máscara a modificar
+     * @param index elemento a desmarcar
+     */
+    public static void clear(long[] mask, int index) {
+        mask[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * Retorna si el elemento está marcado en la máscara.
+     *
+     * @param mask máscara consultada
+     * @param index elemento consultado
+     * @return true si está marcado
+     */
+    public static boolean isSet(long[] mask, int index) {
+        return (mask[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Retorna si la máscara no tiene ningún elemento marcado.
+     *
+     * @param mask máscara consultada
+     * @return true si está vacía
+     */
+    public static boolean isEmpty(long[] mask) {
+        for(long word : mask) {
+            if(word != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Retorna el primer elemento marcado a partir del índice dado (inclusive), o -1 si no hay ninguno.
+     *
+     * @param mask máscara consultada
+     * @param from índice inicial
+     * @return siguiente elemento marcado o -1
+     */
+    public static int nextSetBit(long[] mask, int from) {
+        int word = from >>> 6;
+        if(word >= mask.length) return -1;
+        long bits = mask[word] & (-1L << from);
+        while(true) {
+            if(bits != 0) return (word << 6) + Long.numberOfTrailingZeros(bits);
+            if(++word == mask.length) return -1;
+            bits = mask[word];
+        }
+    }
+
+    /**
+     * Retorna una lista con los elementos marcados. Genera objetos, por lo que sólo debe usarse fuera
+     *  del camino de disparo.
+     *
+     * @param mask máscara consultada
+     * @return elementos marcados en orden ascendente
+     */
+    public static List<Integer> toList(long[] mask) {
+        List<Integer> elements = new ArrayList<>();
+        for(int i = nextSetBit(mask, 0); i >= 0; i = nextSetBit(mask, i + 1)) {
+            elements.add(i);
+        }
+        return elements;
+    }
+}
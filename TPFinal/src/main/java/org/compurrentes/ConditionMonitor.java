@@ -0,0 +1,299 @@
+package org.compurrentes;
+
+import org.compurrentes.beans.SensitizedVector;
+import org.compurrentes.beans.WindowExpiredException;
+import org.compurrentes.metrics.MonitorMetrics;
+import org.compurrentes.policies.Policy;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Monitor de concurrencia sobre un ReentrantLock con una Condition por transición. Dispara en exclusión mutua y
+ *  consulta a la política igual que MonitorManager, pero el hilo despertado no recibe el lock: vuelve a competir
+ *  por él y, al obtenerlo, reintenta el disparo. En modo justo (fair) el lock se entrega por orden de llegada,
+ *  incluidos los hilos despertados, por lo que ningún hilo espera indefinidamente, pero cada liberación con hilos
+ *  esperando cuesta un cambio de contexto y con muchos hilos el rendimiento cae y la espera media crece. En modo
+ *  barging un hilo que llega puede tomar el lock antes que los que esperan, lo que evita esos cambios de contexto
+ *  a costa de que un hilo puntual pueda esperar más (ver MonitorBenchmark.shootTransitionLatency).
+ *  Como entre la señal y el reintento otro hilo puede disparar, el hilo despertado puede no encontrar su
+ *  transición sensibilizada; en ese caso vuelve a esperar. Esto no pierde despertares: quien disparó en el medio
+ *  consultó a la política sobre los hilos no señalados. Por eso la máscara de espera sólo incluye hilos no
+ *  señalados, y se descuentan al señalarlos.
+ */
+public class ConditionMonitor implements Monitor {
+
+    private final ReentrantLock lock;
+    private final Condition[] conditions; /*Condición de espera de cada transición*/
+    private final PetriNet petriNet;
+    private final Policy politics;
+    private final int[] waiters; /*Hilos esperando y no señalados por transición, se modifica con el lock tomado*/
+    private final long[] waiting; /*Máscara de transiciones con hilos no señalados*/
+    private final long[] candidates; /*Transiciones sensibilizadas con hilos esperando, se reutiliza en cada disparo*/
+    private MonitorMetrics metrics; /*Métricas del monitor, opcional*/
+    private long ownedSince; /*Instante en que el dueño actual tomó el lock, sólo se usa con métricas*/
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param modelledProcess proceso modelado por la RdP
+     * @param fair true para entregar el lock por orden de llegada, false para permitir barging
+     */
+    public ConditionMonitor(ModelledProcess modelledProcess, boolean fair) {
+        this.petriNet = modelledProcess.getPetriNet();
+        this.politics = modelledProcess.getPolitics();
+        int totalTransitions = petriNet.getTotalTransitions();
+        lock = new ReentrantLock(fair);
+        conditions = new Condition[totalTransitions];
+        for(int transition = 0; transition < totalTransitions; transition++) {
+            conditions[transition] = lock.newCondition();
+        }
+        waiters = new int[totalTransitions];
+        waiting = BitMask.create(totalTransitions);
+        candidates = BitMask.create(totalTransitions);
+    }
+
+    /**
+     * Disparo de la transición: toma el lock y dispara si está sensibilizada, luego señala a un hilo elegido por la
+     *  política; si no está sensibilizada espera en la condición de la transición y reintenta al ser señalado.
+     *
+     * @param transition transición a disparar
+     * @throws WindowExpiredException si la ventana de la transición venció y el hilo fue desviado (sin el lock)
+     * @throws RuntimeException si el hilo es interrumpido (manejada en shooter)
+     */
+    @Override
+    public void shootTransition(int transition) throws RuntimeException {
+        long requested = metrics != null ? System.nanoTime() : 0;
+        try {
+            lock.lockInterruptibly();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e); /*manejada en el método run del shooter*/
+        }
+        if(metrics != null) entered(requested, true);
+        try {
+            fireFirst(transition);
+            signalNext();
+        } finally {
+            leaving();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Disparo de una secuencia en una sola entrada al monitor, igual que MonitorManager.shootSequence: la primera
+     *  transición se espera y las siguientes se disparan mientras estén sensibilizadas. Se señala una sola vez,
+     *  al salir.
+     *
+     * @param sequence transiciones a disparar en orden
+     * @param from posición de la primera transición a disparar
+     * @param length cantidad máxima de transiciones a disparar
+     * @return cantidad de transiciones disparadas, al menos 1
+     * @throws WindowExpiredException si la ventana de la primera transición venció (no se disparó ninguna)
+     * @throws RuntimeException si el hilo es interrumpido (manejada en shooter)
+     */
+    @Override
+    public int shootSequence(int[] sequence, int from, int length) throws RuntimeException {
+        long requested = metrics != null ? System.nanoTime() : 0;
+        try {
+            lock.lockInterruptibly();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e); /*manejada en el método run del shooter*/
+        }
+        if(metrics != null) entered(requested, true);
+        try {
+            fireFirst(sequence[from]);
+            int fired = 1;
+            while(fired < length && fireNext(sequence[from + fired])) {
+                fired++;
+            }
+            signalNext();
+            return fired;
+        } finally {
+            leaving();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Disparo sin espera: si la transición no está sensibilizada devuelve el lock en lugar de esperar.
+     *
+     * @param transition transición a disparar
+     * @return true si se disparó
+     * @throws WindowExpiredException si la ventana de la transición venció y el hilo fue desviado (sin el lock)
+     * @throws RuntimeException si el hilo es interrumpido mientras espera por el lock
+     */
+    @Override
+    public boolean tryShootTransition(int transition) throws RuntimeException {
+        long requested = metrics != null ? System.nanoTime() : 0;
+        try {
+            lock.lockInterruptibly();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        if(metrics != null) entered(requested, true);
+        try {
+            if(!petriNet.shoot(transition, false)) return false;
+            if(metrics != null) metrics.recordFiring(transition);
+            signalNext();
+            return true;
+        } finally {
+            leaving();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Admite disparos sin espera.
+     *
+     * @return true
+     */
+    @Override
+    public boolean supportsTryShoot() {
+        return true;
+    }
+
+    /**
+     * Dispara la transición, esperando en su condición hasta que esté sensibilizada. Debe llamarse con el lock
+     *  tomado.
+     *
+     * @param transition transición a disparar
+     * @throws WindowExpiredException si la ventana de la transición venció
+     * @throws RuntimeException si el hilo es interrumpido mientras espera
+     */
+    private void fireFirst(int transition) {
+        while(!petriNet.shoot(transition, false)) {
+            addWaiter(transition);
+            leaving();
+            long queued = metrics != null ? System.nanoTime() : 0;
+            try {
+                conditions[transition].await(); /*Libera el lock y lo vuelve a tomar al ser señalado*/
+            } catch (InterruptedException e) {
+                removeWaiter(transition); /*Interrumpido antes de ser señalado, sigue contado como en espera*/
+                throw new RuntimeException(e);
+            } finally {
+                if(metrics != null) entered(queued, false);
+            }
+        }
+        if(metrics != null) metrics.recordFiring(transition);
+    }
+
+    /**
+     * Dispara la transición si está sensibilizada, sin esperar. Una ventana vencida cuenta como no sensibilizada.
+     *  Debe llamarse con el lock tomado.
+     *
+     * @param transition transición siguiente de la secuencia
+     * @return true si se disparó
+     */
+    private boolean fireNext(int transition) {
+        try {
+            if(!petriNet.shoot(transition, false)) return false;
+        } catch (WindowExpiredException e) {
+            return false;
+        }
+        if(metrics != null) metrics.recordFiring(transition);
+        return true;
+    }
+
+    /**
+     * Llamado por el temporizador cuando se abre la ventana de una transición temporizada. Si la apertura es
+     *  vigente y hay un hilo esperando por una transición disparable, lo señala.
+     *
+     * @param transition transición temporizada
+     * @param deadline instante de apertura agendado
+     * @throws RuntimeException si el temporizador es interrumpido
+     */
+    @Override
+    public void signalWindowOpened(int transition, long deadline) throws RuntimeException {
+        long requested = metrics != null ? System.nanoTime() : 0;
+        try {
+            lock.lockInterruptibly();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        if(metrics != null) entered(requested, true);
+        try {
+            if(petriNet.getSensitizedVector().openWindow(transition, deadline)) signalNext();
+        } finally {
+            leaving();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Si hay hilos no señalados esperando por transiciones sensibilizadas, consulta a la política cuál señalar y
+     *  lo señala, descontándolo de la máscara de espera. Igual que en MonitorManager, si la política elige una
+     *  transición cuya ventana todavía no se abrió no se señala a nadie. Debe llamarse con el lock tomado.
+     */
+    private void signalNext() {
+        long[] sensitized = petriNet.getSensitizedMask();
+        long any = 0;
+        for(int word = 0; word < candidates.length; word++) {
+            candidates[word] = sensitized[word] & waiting[word];
+            any |= candidates[word];
+        }
+        if(any == 0) return;
+        int nextTransition = politics.getPriorityShooter(candidates);
+        if(BitMask.isSet(petriNet.getSensitizedVector().getPendingMask(), nextTransition)) {
+            return; /*Ventana sin abrir, lo señala el temporizador*/
+        }
+        removeWaiter(nextTransition);
+        conditions[nextTransition].signal();
+    }
+
+    private void addWaiter(int transition) {
+        if(waiters[transition]++ == 0) {
+            BitMask.set(waiting, transition);
+        }
+        if(metrics != null) metrics.setQueueDepth(transition, waiters[transition]);
+    }
+
+    private void removeWaiter(int transition) {
+        if(--waiters[transition] == 0) {
+            BitMask.clear(waiting, transition);
+        }
+        if(metrics != null) metrics.setQueueDepth(transition, waiters[transition]);
+    }
+
+    private void entered(long since, boolean lockWait) {
+        ownedSince = System.nanoTime();
+        if(lockWait) {
+            metrics.recordMutexWait(ownedSince - since);
+        } else {
+            metrics.recordQueueWait(ownedSince - since);
+        }
+    }
+
+    private void leaving() {
+        if(metrics != null) metrics.recordMutexHold(System.nanoTime() - ownedSince);
+    }
+
+    /**
+     * Asigna las métricas del monitor y, si ya está asignado, al vector de sensibilizados. Debe llamarse antes de
+     *  iniciar los hilos.
+     *
+     * @param metrics métricas del monitor
+     */
+    @Override
+    public void setMetrics(MonitorMetrics metrics) {
+        this.metrics = metrics;
+        SensitizedVector sensitizedVector = petriNet.getSensitizedVector();
+        if(sensitizedVector != null) sensitizedVector.setMetrics(metrics);
+    }
+
+    /**
+     * Retorna la RdP asociada al monitor.
+     * @return instancia de PetriNet del monitor
+     */
+    public PetriNet getPetriNet() {
+        return petriNet;
+    }
+
+    /**
+     * Indica si el lock se entrega por orden de llegada.
+     *
+     * @return true en modo justo, false en modo barging
+     */
+    public boolean isFair() {
+        return lock.isFair();
+    }
+}
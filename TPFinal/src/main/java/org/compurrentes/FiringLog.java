@@ -0,0 +1,242 @@
+package org.compurrentes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
+
+/**
+ * Registro binario de disparos. Los disparos se anotan en un buffer circular preasignado de registros de tamaño
+ *  fijo (instante, transición, hilo), sin locks ni generación de objetos, y un hilo escritor en segundo plano los
+ *  vuelca a un archivo mediante un FileChannel. Cada registro ocupa 16 bytes: instante (long, System.nanoTime()),
+ *  transición (int) e identificador del hilo (int). Los nombres de los hilos se guardan al cerrar el registro en un
+ *  archivo de texto con el mismo nombre y extensión ".workers", una línea por identificador.
+ *  Opcionalmente, un consumidor recibe cada transición en el orden en que se vuelca (en el hilo escritor), lo que
+ *  permite procesar los disparos en vivo sin volver a leer el archivo.
+ *  Si el escritor falla (por ejemplo, disco lleno), los disparos siguientes se descartan y se cuentan en lugar de
+ *  esperar lugar en el buffer, para no detener la línea de producción; close informa la falla.
+ */
+public class FiringLog implements Runnable {
+
+    public static final int RECORD_BYTES = 16; /*Tamaño de cada registro en el archivo*/
+    private static final int DEFAULT_CAPACITY = 1 << 16; /*Registros en el buffer circular*/
+    private static final long IDLE_NANOS = 100_000; /*Espera del escritor cuando no hay registros*/
+    private static final int FULL_SPINS = 64; /*Reintentos activos de un productor con el buffer lleno*/
+    private static final long FULL_MAX_PARK = 100_000; /*Espera máxima de cada reintento con el buffer lleno*/
+
+    private final int capacity;
+    private final long[] timestamps;
+    private final int[] transitions;
+    private final int[] workers;
+    private final AtomicLongArray published; /*Secuencia + 1 del último registro publicado en cada posición*/
+    private final AtomicLong claimed = new AtomicLong(); /*Próxima secuencia a reservar por los productores*/
+    private volatile long consumed; /*Próxima secuencia a leer por el escritor*/
+    private final Map<Integer, String> workerNames = new ConcurrentHashMap<>(); /*Nombre de cada hilo por identificador*/
+    private final AtomicInteger nextWorker = new AtomicInteger(); /*Próximo identificador de hilo*/
+    private final ThreadLocal<Integer> workerId =
+            ThreadLocal.withInitial(() -> registerWorker(Thread.currentThread().getName()));
+    private final Path file;
+    private final Thread writer;
+    private volatile boolean closed = false;
+    private volatile IntConsumer listener; /*Consumidor en vivo de los disparos, opcional*/
+    private volatile IOException failure; /*Error del escritor, null mientras funcione*/
+    private final AtomicLong dropped = new AtomicLong(); /*Registros descartados luego de una falla del escritor*/
+
+    /**
+     * Constructor de la clase. Crea el hilo escritor sin iniciarlo.
+     *
+     * @param file archivo binario de destino (se sobrescribe)
+     */
+    public FiringLog(Path file) {
+        this(file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor de la clase. Crea el hilo escritor sin iniciarlo.
+     *
+     * @param file archivo binario de destino (se sobrescribe)
+     * @param capacity cantidad de registros del buffer circular, debe ser potencia de dos
+     * @throws IllegalArgumentException si la capacidad no es potencia de dos
+     */
+    public FiringLog(Path file, int capacity) {
+        if(capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+        this.file = file;
+        this.capacity = capacity;
+        timestamps = new long[capacity];
+        transitions = new int[capacity];
+        workers = new int[capacity];
+        published = new AtomicLongArray(capacity);
+        writer = new Thread(this, "FiringLogWriter");
+        writer.setDaemon(true);
+    }
+
+    /**
+     * Anota el disparo de una transición por parte del hilo actual. Puede llamarse concurrentemente desde varios
+     *  hilos; si el buffer está lleno, espera a que el escritor libere lugar con reintentos cada vez más espaciados.
+     *  Si el escritor falló, descarta el registro.
+     *
+     * @param timestamp instante del disparo (System.nanoTime())
+     * @param transition transición disparada
+     */
+    public void append(long timestamp, int transition) {
+        int worker = workerId.get();
+        long sequence = claimed.getAndIncrement();
+        long park = 1_000;
+        for(int spins = 0; sequence - consumed >= capacity; spins++) { /*Buffer lleno*/
+            if(failure != null) {
+                dropped.incrementAndGet();
+                return;
+            }
+            if(spins < FULL_SPINS) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(this, park);
+                park = Math.min(park * 2, FULL_MAX_PARK);
+            }
+        }
+        int slot = (int) sequence & (capacity - 1);
+        timestamps[slot] = timestamp;
+        transitions[slot] = transition;
+        workers[slot] = worker;
+        published.lazySet(slot, sequence + 1); /*Publica el registro luego de escribir sus campos*/
+    }
+
+    /**
+     * Asigna el consumidor que recibe cada transición disparada, en el orden del registro. Se ejecuta en el hilo
+     *  escritor, por lo que no necesita ser thread-safe pero no debe bloquearse.
+     *
+     * @param listener consumidor de disparos
+     */
+    public void setListener(IntConsumer listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Inicia el hilo escritor.
+     */
+    public void start() {
+        writer.start();
+    }
+
+    /**
+     * Retorna la cantidad de registros descartados porque el escritor falló.
+     *
+     * @return registros descartados
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Espera a que el escritor vuelque todos los registros anotados, cierra el archivo y guarda los nombres
+     *  de los hilos.
+     *
+     * @throws IOException si el escritor falló (el archivo queda incompleto) o no se pueden escribir los nombres de
+     *  los hilos
+     * @throws InterruptedException si se interrumpe la espera al escritor
+     */
+    public void close() throws IOException, InterruptedException {
+        closed = true;
+        if(writer.getState() == Thread.State.NEW) {
+            run(); /*Nunca se inició: vuelca lo anotado en el hilo actual*/
+        } else {
+            writer.join();
+        }
+        List<String> names = new ArrayList<>();
+        for(int worker = 0; worker < nextWorker.get(); worker++) {
+            names.add(workerNames.get(worker));
+        }
+        Files.write(workersFile(file), names, StandardCharsets.UTF_8);
+        if(failure != null) {
+            long written = Files.exists(file) ? Files.size(file) / RECORD_BYTES : 0;
+            throw new IOException(String.format("Firing log writer failed: %d of %d records written, %d dropped",
+                    written, claimed.get(), dropped.get()), failure);
+        }
+    }
+
+    /**
+     * Vuelca los registros publicados al archivo en orden de secuencia hasta que el registro es cerrado. Ante un
+     *  error de escritura, o una excepción del consumidor, guarda la falla y termina.
+     */
+    @Override
+    public void run() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(RECORD_BYTES * 4096);
+        long next = consumed;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while(true) {
+                int slot = (int) next & (capacity - 1);
+                if(published.get(slot) == next + 1) {
+                    buffer.putLong(timestamps[slot]).putInt(transitions[slot]).putInt(workers[slot]);
+                    IntConsumer consumer = listener;
+                    if(consumer != null) consumer.accept(transitions[slot]);
+                    consumed = ++next;
+                    if(!buffer.hasRemaining()) flush(channel, buffer);
+                } else {
+                    flush(channel, buffer);
+                    if(closed && next == claimed.get()) break;
+                    LockSupport.parkNanos(IDLE_NANOS);
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            failure = new IOException("Firing log listener failed", e);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Registra un nombre de trabajador y retorna su identificador. Los hilos se registran solos con su nombre al
+     *  anotar su primer disparo; la simulación (ver Simulator) registra así a sus trabajadores virtuales.
+     *
+     * @param name nombre del trabajador
+     * @return identificador del trabajador
+     */
+    public int registerWorker(String name) {
+        int worker = nextWorker.getAndIncrement();
+        workerNames.put(worker, name);
+        return worker;
+    }
+
+    /**
+     * Asigna el trabajador al que se atribuyen los próximos disparos anotados por el hilo actual.
+     *
+     * @param worker identificador obtenido con registerWorker
+     */
+    public void setWorker(int worker) {
+        workerId.set(worker);
+    }
+
+    /**
+     * Retorna el archivo de nombres de hilos asociado a un registro binario.
+     *
+     * @param file archivo binario del registro
+     * @return archivo de nombres de hilos
+     */
+    public static Path workersFile(Path file) {
+        return Paths.get(file.toString() + ".workers");
+    }
+}
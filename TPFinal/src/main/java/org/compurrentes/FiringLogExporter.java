@@ -0,0 +1,70 @@
+package org.compurrentes;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Exporta el registro binario de disparos (ver FiringLog) al formato de texto de log.txt, una línea por disparo:
+ *  "instante. Shooter nombre shot Tn". Puede usarse desde el programa o por línea de comandos:
+ *  {@code java org.compurrentes.FiringLogExporter log.bin log.txt}.
+ */
+public final class FiringLogExporter {
+
+    private FiringLogExporter() {
+    }
+
+    /**
+     * Convierte el registro binario en un archivo de texto, recorriéndolo en forma secuencial.
+     *
+     * @param binary archivo binario generado por FiringLog
+     * @param text archivo de texto de destino (se sobrescribe)
+     * @return cantidad de disparos exportados
+     * @throws IOException si no se puede leer el registro o escribir el texto
+     */
+    public static long export(Path binary, Path text) throws IOException {
+        List<String> workers = Files.readAllLines(FiringLog.workersFile(binary), StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(FiringLog.RECORD_BYTES * 4096);
+        long records = 0;
+        try (FileChannel channel = FileChannel.open(binary, StandardOpenOption.READ);
+             BufferedWriter writer = Files.newBufferedWriter(text, StandardCharsets.UTF_8)) {
+            while(channel.read(buffer) >= 0 || buffer.position() > 0) {
+                buffer.flip();
+                while(buffer.remaining() >= FiringLog.RECORD_BYTES) {
+                    long timestamp = buffer.getLong();
+                    int transition = buffer.getInt();
+                    int worker = buffer.getInt();
+                    writer.write(String.format("%s. Shooter %s shot T%s", timestamp, workers.get(worker), transition + 1));
+                    writer.newLine();
+                    records++;
+                }
+                boolean truncated = buffer.hasRemaining() && channel.position() == channel.size();
+                buffer.compact();
+                if(truncated) break; /*Registro incompleto al final del archivo*/
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Exporta un registro binario a texto.
+     *
+     * @param args archivo binario y archivo de texto de destino
+     * @throws IOException si falla la lectura o la escritura
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length != 2) {
+            System.out.println("Usage: FiringLogExporter <log.bin> <log.txt>");
+            return;
+        }
+        long records = export(Paths.get(args[0]), Paths.get(args[1]));
+        System.out.printf("Exported %d shots to %s\n", records, args[1]);
+    }
+}
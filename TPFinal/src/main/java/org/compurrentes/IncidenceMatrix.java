@@ -0,0 +1,307 @@
+package org.compurrentes;
+
+/**
+ * Representación compacta de la matriz de incidencia de la RdP. En lugar de almacenar la matriz densa
+ *  plazas x transiciones, cada transición guarda únicamente sus arcos de entrada (pre) y de salida (post)
+ *  como arreglos de enteros, de modo que el disparo y la verificación de sensibilizado recorren sólo las plazas
+ *  que la transición realmente toca y no generan objetos.
+ */
+public class IncidenceMatrix {
+
+    private final int totalPlaces;
+    private final int[][] inputPlaces; /*Plazas de entrada de cada transición*/
+    private final int[][] inputWeights; /*Peso de cada arco de entrada*/
+    private final int[][] outputPlaces; /*Plazas de salida de cada transición*/
+    private final int[][] outputWeights; /*Peso de cada arco de salida*/
+    private final int[][] bounded; /*Plazas de salida con capacidad que el disparo de cada transición incrementa*/
+    private final int[][] boundedLimits; /*Marcado máximo de cada plaza de bounded que permite el disparo*/
+    private final int[][] consumers; /*Transiciones que consumen de cada plaza*/
+    private final int[][] constrained; /*Transiciones limitadas por la capacidad de cada plaza*/
+    private final int[][] affectedTransitions; /*Transiciones cuyo sensibilizado puede cambiar al disparar cada transición*/
+
+    /**
+     * Constructor de la clase. Construye los arcos a partir de la matriz de flujo de incidencia, donde un valor
+     *  negativo representa un arco de entrada a la transición y uno positivo un arco de salida.
+     *
+     * @param fluxMatrixData matriz de flujo de incidencia (filas = plazas, columnas = transiciones)
+     */
+    public IncidenceMatrix(double[][] fluxMatrixData) {
+        this(negativePart(fluxMatrixData), positivePart(fluxMatrixData));
+    }
+
+    /**
+     * Constructor de la clase a partir de las matrices de pre y post incidencia. Permite representar
+     *  auto-lazos (arcos de entrada y salida sobre la misma plaza) que la matriz de flujo no distingue.
+     *
+     * @param pre matriz de pre incidencia (filas = plazas, columnas = transiciones)
+     * @param post matriz de post incidencia (filas = plazas, columnas = transiciones)
+     */
+    public IncidenceMatrix(int[][] pre, int[][] post) {
+        this(pre, post, new int[pre.length]);
+    }
+
+    /**
+     * Constructor de la clase a partir de las matrices de pre y post incidencia y de la capacidad de cada plaza.
+     *  Una transición con capacidad limitada sólo está sensibilizada si su disparo no excede la capacidad de
+     *  sus plazas de salida.
+     *
+     * @param pre matriz de pre incidencia (filas = plazas, columnas = transiciones)
+     * @param post matriz de post incidencia (filas = plazas, columnas = transiciones)
+     * @param capacities capacidad de cada plaza (0 = sin límite)
+     */
+    public IncidenceMatrix(int[][] pre, int[][] post, int[] capacities) {
+        totalPlaces = pre.length;
+        int totalTransitions = totalPlaces == 0 ? 0 : pre[0].length;
+        inputPlaces = new int[totalTransitions][];
+        inputWeights = new int[totalTransitions][];
+        outputPlaces = new int[totalTransitions][];
+        outputWeights = new int[totalTransitions][];
+        columns(pre, totalTransitions, inputPlaces, inputWeights);
+        columns(post, totalTransitions, outputPlaces, outputWeights);
+        int[][] increments = new int[totalPlaces][]; /*Incremento que cada disparo produce en las plazas con capacidad*/
+        int[] unbounded = new int[totalTransitions];
+        for(int place = 0; place < totalPlaces; place++) {
+            increments[place] = unbounded;
+            if(capacities[place] > 0) {
+                increments[place] = new int[totalTransitions];
+                for(int transition = 0; transition < totalTransitions; transition++) {
+                    increments[place][transition] = Math.max(0, post[place][transition] - pre[place][transition]);
+                }
+            }
+        }
+        bounded = new int[totalTransitions][];
+        boundedLimits = new int[totalTransitions][];
+        columns(increments, totalTransitions, bounded, boundedLimits);
+        for(int transition = 0; transition < totalTransitions; transition++) {
+            for(int i = 0; i < bounded[transition].length; i++) {
+                boundedLimits[transition][i] = capacities[bounded[transition][i]] - boundedLimits[transition][i];
+            }
+        }
+        consumers = new int[totalPlaces][];
+        constrained = new int[totalPlaces][];
+        for(int place = 0; place < totalPlaces; place++) {
+            consumers[place] = nonZeroColumns(pre[place]);
+            constrained[place] = nonZeroColumns(increments[place]);
+        }
+        affectedTransitions = new int[totalTransitions][];
+        for(int transition = 0; transition < totalTransitions; transition++) {
+            affectedTransitions[transition] = affected(transition);
+        }
+    }
+
+    /**
+     * Verifica si la transición está sensibilizada por tokens en el marcado dado, es decir si cada plaza de
+     *  entrada tiene al menos tantos tokens como el peso del arco y el disparo no excede la capacidad de
+     *  ninguna plaza de salida.
+     *
+     * @param marking marcado a evaluar
+     * @param transition transición consultada
+     * @return true si está sensibilizada
+     */
+    public boolean isEnabled(int[] marking, int transition) {
+        int[] places = inputPlaces[transition];
+        int[] weights = inputWeights[transition];
+        for(int i = 0; i < places.length; i++) {
+            if(marking[places[i]] < weights[i]) return false;
+        }
+        places = bounded[transition];
+        int[] limits = boundedLimits[transition];
+        for(int i = 0; i < places.length; i++) {
+            if(marking[places[i]] > limits[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Dispara la transición sobre el marcado dado, modificándolo en el lugar (ecuación fundamental restringida
+     *  a las plazas de la transición). No verifica el sensibilizado.
+     *
+     * @param marking marcado a actualizar
+     * @param transition transición a disparar
+     */
+    public void fire(int[] marking, int transition) {
+        int[] places = inputPlaces[transition];
+        int[] weights = inputWeights[transition];
+        for(int i = 0; i < places.length; i++) {
+            marking[places[i]] -= weights[i];
+        }
+        places = outputPlaces[transition];
+        weights = outputWeights[transition];
+        for(int i = 0; i < places.length; i++) {
+            marking[places[i]] += weights[i];
+        }
+    }
+
+    /**
+     * Retorna la cantidad total de plazas de la RdP.
+     *
+     * @return totalPlaces
+     */
+    public int getTotalPlaces() {
+        return totalPlaces;
+    }
+
+    /**
+     * Retorna la cantidad total de transiciones de la RdP.
+     *
+     * @return totalTransitions
+     */
+    public int getTotalTransitions() {
+        return inputPlaces.length;
+    }
+
+    /**
+     * Retorna las plazas de entrada de la transición.
+     *
+     * @param transition transición consultada
+     * @return inputPlaces
+     */
+    public int[] getInputPlaces(int transition) {
+        return inputPlaces[transition];
+    }
+
+    /**
+     * Retorna los pesos de los arcos de entrada de la transición, en el mismo orden que getInputPlaces.
+     *
+     * @param transition transición consultada
+     * @return inputWeights
+     */
+    public int[] getInputWeights(int transition) {
+        return inputWeights[transition];
+    }
+
+    /**
+     * Retorna las plazas de salida de la transición.
+     *
+     * @param transition transición consultada
+     * @return outputPlaces
+     */
+    public int[] getOutputPlaces(int transition) {
+        return outputPlaces[transition];
+    }
+
+    /**
+     * Retorna los pesos de los arcos de salida de la transición, en el mismo orden que getOutputPlaces.
+     *
+     * @param transition transición consultada
+     * @return outputWeights
+     */
+    public int[] getOutputWeights(int transition) {
+        return outputWeights[transition];
+    }
+
+    /**
+     * Retorna las plazas de salida con capacidad cuyo marcado incrementa el disparo de la transición.
+     *
+     * @param transition transición consultada
+     * @return plazas limitadas por capacidad
+     */
+    public int[] getBoundedPlaces(int transition) {
+        return bounded[transition];
+    }
+
+    /**
+     * Retorna el marcado máximo de cada plaza de getBoundedPlaces que permite disparar la transición, en el
+     *  mismo orden.
+     *
+     * @param transition transición consultada
+     * @return boundedLimits
+     */
+    public int[] getBoundedLimits(int transition) {
+        return boundedLimits[transition];
+    }
+
+    /**
+     * Retorna las transiciones que tienen a la plaza como entrada.
+     *
+     * @param place plaza consultada
+     * @return consumers
+     */
+    public int[] getConsumers(int place) {
+        return consumers[place];
+    }
+
+    /**
+     * Retorna las transiciones cuyo sensibilizado debe reevaluarse luego de disparar la transición dada, es decir
+     *  los consumidores de todas las plazas que el disparo modifica y las transiciones limitadas por la
+     *  capacidad de esas plazas.
+     *
+     * @param transition transición disparada
+     * @return affectedTransitions
+     */
+    public int[] getAffectedTransitions(int transition) {
+        return affectedTransitions[transition];
+    }
+
+    private int[] affected(int transition) {
+        long[] mask = BitMask.create(getTotalTransitions());
+        for(int place : inputPlaces[transition]) {
+            for(int consumer : consumers[place]) BitMask.set(mask, consumer);
+            for(int producer : constrained[place]) BitMask.set(mask, producer);
+        }
+        for(int place : outputPlaces[transition]) {
+            for(int consumer : consumers[place]) BitMask.set(mask, consumer);
+            for(int producer : constrained[place]) BitMask.set(mask, producer);
+        }
+        return BitMask.toList(mask).stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] nonZeroColumns(int[] row) {
+        int count = 0;
+        for(int value : row) {
+            if(value != 0) count++;
+        }
+        int[] columns = new int[count];
+        count = 0;
+        for(int column = 0; column < row.length; column++) {
+            if(row[column] != 0) columns[count++] = column;
+        }
+        return columns;
+    }
+
+    /*Obtiene las filas no nulas de cada columna y sus valores recorriendo la matriz por filas una sola vez*/
+    private static void columns(int[][] matrix, int totalColumns, int[][] rows, int[][] values) {
+        int[] count = new int[totalColumns];
+        for(int[] row : matrix) {
+            for(int column = 0; column < totalColumns; column++) {
+                if(row[column] != 0) count[column]++;
+            }
+        }
+        for(int column = 0; column < totalColumns; column++) {
+            rows[column] = new int[count[column]];
+            values[column] = new int[count[column]];
+            count[column] = 0;
+        }
+        for(int place = 0; place < matrix.length; place++) {
+            int[] row = matrix[place];
+            for(int column = 0; column < totalColumns; column++) {
+                if(row[column] != 0) {
+                    rows[column][count[column]] = place;
+                    values[column][count[column]++] = row[column];
+                }
+            }
+        }
+    }
+
+    private static int[][] negativePart(double[][] fluxMatrixData) {
+        int[][] part = new int[fluxMatrixData.length][];
+        for(int place = 0; place < fluxMatrixData.length; place++) {
+            part[place] = new int[fluxMatrixData[place].length];
+            for(int transition = 0; transition < part[place].length; transition++) {
+                part[place][transition] = (int) Math.max(0, -fluxMatrixData[place][transition]);
+            }
+        }
+        return part;
+    }
+
+    private static int[][] positivePart(double[][] fluxMatrixData) {
+        int[][] part = new int[fluxMatrixData.length][];
+        for(int place = 0; place < fluxMatrixData.length; place++) {
+            part[place] = new int[fluxMatrixData[place].length];
+            for(int transition = 0; transition < part[place].length; transition++) {
+                part[place][transition] = (int) Math.max(0, fluxMatrixData[place][transition]);
+            }
+        }
+        return part;
+    }
+}
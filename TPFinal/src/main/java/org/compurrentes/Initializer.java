@@ -1,6 +1,8 @@
 package org.compurrentes;
 
 import org.compurrentes.beans.Segment;
+import org.compurrentes.beans.SensitizedVector;
+import org.compurrentes.metrics.MonitorMetrics;
 
 import java.util.Arrays;
 import java.util.List;
@@ -15,9 +17,15 @@ import java.util.stream.Stream;
  */
 public class Initializer {
 
-    private final MonitorManager monitor;
+    private final Monitor monitor;
     private final Segment[] segments;
     private final ModelledProcess modelledProcess;
+    private boolean batch; /*Shooters en modo por lotes (ver Shooter)*/
+    private boolean workStealing; /*Trabajadores con robo de trabajo en lugar de shooters fijos (ver WorkerPool)*/
+    private WorkerPool pool;
+    private int[] autoscaleMax; /*Máximo de hilos de cada segmento con autoescalado, null sin autoescalado*/
+    private long autoscalePeriod; /*Período de decisión del autoescalado en segundos*/
+    private MonitorMetrics metrics; /*Métricas del monitor, de las que el autoescalado toma las colas*/
 
     /**
      * Constructor de la clase.
@@ -26,7 +34,7 @@ public class Initializer {
      * @param segments Array de segmentos de la RdP
      * @param modelledProcess proceso modelado de la RdP
      */
-    public Initializer(MonitorManager monitor, Segment[] segments, ModelledProcess modelledProcess) {
+    public Initializer(Monitor monitor, Segment[] segments, ModelledProcess modelledProcess) {
         this.monitor = monitor;
         this.segments = segments;
         this.modelledProcess = modelledProcess;
@@ -42,12 +50,59 @@ public class Initializer {
      * @return Threads Un stream de Threads que contiene los hilos creados para el segmento específico
      */
     private Stream<Thread> createShooters(Segment segment) {
+        int[] cycle = segment.getCycle();
+        if(batch && cycle == null) {
+            throw new IllegalStateException("Batch firing requires segments created from a cycle: " + segment);
+        }
         return IntStream.range(0, segment.getThreadNumber()).mapToObj(i -> {
-            Runnable shooter = new Shooter(monitor, segment.getTransitions(), modelledProcess);
-            return new Thread(shooter, String.format("S%sN%s", segment, i));
+            Runnable shooter = pool != null ? pool.createWorker(segment)
+                    : batch ? new Shooter(monitor, cycle, modelledProcess)
+                    : new Shooter(monitor, segment.getTransitions(), modelledProcess);
+            return newShooterThread(segment, i, shooter);
         });
     }
 
+    private Thread newShooterThread(Segment segment, int index, Runnable shooter) {
+        return new Thread(shooter, String.format("S%sN%s", segment, index));
+    }
+
+    /**
+     * Indica si los shooters disparan por lotes, recorriendo cada uno el ciclo de su segmento (ver Shooter). Debe
+     *  llamarse antes de start.
+     *
+     * @param batch true para disparar por lotes
+     */
+    public void setBatch(boolean batch) {
+        this.batch = batch;
+    }
+
+    /**
+     * Indica si los hilos de los segmentos trabajan como un conjunto con robo de trabajo (ver WorkerPool), con
+     *  preferencia por su segmento, en lugar de estar fijos a él. Requiere un monitor que admita disparos sin
+     *  espera. Debe llamarse antes de start.
+     *
+     * @param workStealing true para usar el conjunto de trabajadores
+     */
+    public void setWorkStealing(boolean workStealing) {
+        this.workStealing = workStealing;
+    }
+
+    /**
+     * Activa el autoescalado de los hilos de cada segmento (ver SegmentAutoscaler): cada segmento empieza con su
+     *  cantidad de hilos y varía entre 1 y el máximo indicado según las colas del monitor y el rendimiento de la
+     *  línea. Requiere que las métricas estén asignadas al monitor y segmentos creados a partir de su ciclo. Debe
+     *  llamarse antes de start.
+     *
+     * @param maxThreads máximo de hilos de cada segmento
+     * @param period período entre decisiones, en segundos
+     * @param metrics métricas del monitor
+     */
+    public void setAutoscaling(int[] maxThreads, long period, MonitorMetrics metrics) {
+        this.autoscaleMax = maxThreads.clone();
+        this.autoscalePeriod = period;
+        this.metrics = metrics;
+    }
+
     /**
      * Este método funciona como lanzador del sistema, inicialmente crea los shooters necesarios para cada
      *  segmento definido de la red haciendo uso del método anterior.
@@ -57,22 +112,71 @@ public class Initializer {
      * @throws InterruptedException Excepción por interrupción
      */
     public void start(int time) throws InterruptedException {
-        List<Thread> shooters = Arrays.stream(segments)
+        if(workStealing && batch) {
+            throw new IllegalStateException("Batch firing and work stealing cannot be combined");
+        }
+        if(autoscaleMax != null && (batch || workStealing)) {
+            throw new IllegalStateException("Autoscaling cannot be combined with batch firing or work stealing");
+        }
+        pool = workStealing ? new WorkerPool(monitor, segments, modelledProcess) : null;
+        SegmentAutoscaler autoscaler = autoscaleMax != null ? createAutoscaler() : null;
+        List<Thread> shooters = autoscaler != null ? List.of() : Arrays.stream(segments)
                 .flatMap(this::createShooters)
                 .collect(Collectors.toList());
+        SensitizedVector sensitizedVector = modelledProcess.getPetriNet().getSensitizedVector();
+        monitor.start();
+        sensitizedVector.start(); /*Temporizador de las transiciones temporizadas*/
+        if(autoscaler != null) autoscaler.start(); /*Los shooters los crea y detiene el autoescalado*/
         shooters.parallelStream().forEach(Thread::start);
         TimeUnit.SECONDS.sleep(time);
+        if(autoscaler != null) autoscaler.stop();
         shooters.parallelStream().forEach(Thread::interrupt);
+        sensitizedVector.stop();
 
         try {
             for(Thread shooter:shooters){
                 shooter.join();
             }
+            if(autoscaler != null) autoscaler.join();
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
+        monitor.close(); /*La RdP refleja el marcado final*/
 
         System.out.println("Threads have been interrupted");
+        if(pool != null) {
+            System.out.printf("Work stealing: %d of %d firings taken from another segment%n", pool.getStolen(),
+                    pool.getFirings());
+        }
+        if(autoscaler != null) {
+            System.out.printf("Autoscaling: %d decisions, final threads per segment %s%n",
+                    autoscaler.getDecisions().size(), Arrays.toString(autoscaler.getThreads()));
+        }
+        finish(modelledProcess);
+    }
+
+    /**
+     * Crea el autoescalado de los segmentos, con un mínimo de un hilo por segmento y los hilos nombrados igual que
+     *  los shooters fijos.
+     *
+     * @return autoescalado, sin iniciar
+     * @throws IllegalArgumentException si los máximos no corresponden a los segmentos
+     */
+    private SegmentAutoscaler createAutoscaler() {
+        int[] minThreads = new int[segments.length];
+        Arrays.fill(minThreads, 1);
+        return new SegmentAutoscaler(this::newShooterThread, monitor, segments, modelledProcess, metrics,
+                minThreads, autoscaleMax, autoscalePeriod, TimeUnit.SECONDS, System.out);
+    }
+
+    /**
+     * Completa los ciclos de producción en curso con disparos finales directamente sobre la RdP, sin tener en
+     *  cuenta las ventanas temporales, e imprime el marcado y el contador de disparos finales. Se llama con los
+     *  trabajadores detenidos, luego de la ejecución con hilos o de la simulación (ver Simulator).
+     *
+     * @param modelledProcess proceso modelado de la RdP
+     */
+    static void finish(ModelledProcess modelledProcess) {
         System.out.println(modelledProcess.getPetriNet().getTokens());
         int[] finalTransitions = {1,2,3,4,5,6,7,9,10,11};
         int size = modelledProcess.getPetriNet().getTotalTransitions()-2;
@@ -88,7 +192,7 @@ public class Initializer {
         }
 
         System.out.printf("Final tokens %s\n",modelledProcess.getPetriNet().getTokens());
-        System.out.printf("Final transition counter %s\n", Arrays.toString(modelledProcess.getTransitionActionCounter()));
+        System.out.printf("Final transition counter %s\n", modelledProcess.getTransitionActionCounter());
         System.out.println("Program execution finished");
     }
 }
@@ -0,0 +1,285 @@
+package org.compurrentes;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Verificador de T-invariantes sobre la secuencia de disparos. Consume los disparos de a uno (en vivo o leyendo
+ *  el registro) y mantiene, por cada prefijo de invariante, la cantidad de instancias en curso. Los invariantes
+ *  se organizan como un árbol de prefijos, por lo que los que comparten su comienzo (T1 en los dos caminos de
+ *  engranajes) comparten también las instancias hasta que se bifurcan. Cada disparo avanza una instancia en
+ *  curso que espere esa transición o, si la transición comienza un invariante, inicia una nueva. La verificación
+ *  es de una sola pasada y la memoria depende del tamaño de los invariantes y de las instancias en curso, no de la
+ *  longitud del registro.
+ *  Cuando dos prefijos distintos esperan la misma transición (T8 cierra los dos caminos de engranajes) se avanza la
+ *  instancia que espera hace más tiempo, es decir, la que llegó primero a su prefijo. Así las instancias se
+ *  completan en el orden en que llegaron al tramo común y la cuenta de cada invariante no se inclina hacia el
+ *  primero.
+ */
+public class InvariantVerifier implements IntConsumer {
+
+    private static final int ROOT = 0;
+
+    private final List<List<Integer>> invariants;
+    private final List<int[]> children = new ArrayList<>(); /*Hijo de cada nodo por transición (-1 si no hay)*/
+    private final List<Integer> completedInvariant = new ArrayList<>(); /*Invariante que completa cada nodo (-1 si no)*/
+    private final List<String> prefixes = new ArrayList<>(); /*Prefijo que representa cada nodo*/
+    private final int[][] sources; /*Nodos desde los que avanza cada transición, en orden de preferencia*/
+    private final List<ArrivalQueue> inFlight = new ArrayList<>(); /*Instancias en curso en cada nodo, por llegada*/
+    private final long[] completed; /*Instancias completadas por invariante*/
+    private final long[] unmatched; /*Disparos que no continúan ni comienzan ningún invariante, por transición*/
+    private long unknown = 0; /*Disparos de transiciones inexistentes en la RdP*/
+    private long shots = 0;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param invariants transiciones de cada T-invariante, en orden de disparo
+     * @param totalTransitions cantidad total de transiciones de la RdP
+     */
+    public InvariantVerifier(List<List<Integer>> invariants, int totalTransitions) {
+        this.invariants = invariants;
+        addNode(totalTransitions, "");
+        for(int invariant = 0; invariant < invariants.size(); invariant++) {
+            int node = ROOT;
+            for(int transition : invariants.get(invariant)) {
+                if(children.get(node)[transition] < 0) {
+                    String prefix = prefixes.get(node) + (node == ROOT ? "" : "-") + "T" + (transition + 1);
+                    children.get(node)[transition] = addNode(totalTransitions, prefix);
+                }
+                node = children.get(node)[transition];
+            }
+            completedInvariant.set(node, invariant);
+        }
+        sources = new int[totalTransitions][];
+        for(int transition = 0; transition < totalTransitions; transition++) {
+            List<Integer> nodes = new ArrayList<>();
+            for(int node = 1; node < children.size(); node++) {
+                if(children.get(node)[transition] >= 0) nodes.add(node);
+            }
+            if(children.get(ROOT)[transition] >= 0) nodes.add(ROOT); /*Comenzar una instancia es la última opción*/
+            sources[transition] = nodes.stream().mapToInt(Integer::intValue).toArray();
+        }
+        for(int node = 0; node < children.size(); node++) {
+            inFlight.add(new ArrivalQueue());
+        }
+        completed = new long[invariants.size()];
+        unmatched = new long[totalTransitions];
+    }
+
+    private int addNode(int totalTransitions, String prefix) {
+        int[] nodeChildren = new int[totalTransitions];
+        Arrays.fill(nodeChildren, -1);
+        children.add(nodeChildren);
+        completedInvariant.add(-1);
+        prefixes.add(prefix);
+        return children.size() - 1;
+    }
+
+    /**
+     * Procesa el disparo de una transición.
+     *
+     * @param transition transición disparada
+     */
+    @Override
+    public void accept(int transition) {
+        shots++;
+        if(transition < 0 || transition >= sources.length) {
+            unknown++;
+            return;
+        }
+        int source = -1;
+        for(int node : sources[transition]) {
+            if(node == ROOT) {
+                if(source < 0) source = ROOT;
+            } else if(!inFlight.get(node).isEmpty()
+                    && (source < 0 || inFlight.get(node).oldest() < inFlight.get(source).oldest())) {
+                source = node; /*La instancia que espera hace más tiempo*/
+            }
+        }
+        if(source < 0) {
+            unmatched[transition]++;
+            return;
+        }
+        if(source != ROOT) inFlight.get(source).poll();
+        int next = children.get(source)[transition];
+        int invariant = completedInvariant.get(next);
+        if(invariant >= 0) {
+            completed[invariant]++;
+        } else {
+            inFlight.get(next).add(shots);
+        }
+    }
+
+    /**
+     * Procesa un registro de disparos en formato de texto (log.txt), una línea por disparo terminada en "Tn".
+     *
+     * @param log archivo de texto
+     * @throws IOException si no se puede leer el archivo
+     */
+    public void acceptTextLog(Path log) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                int index = line.lastIndexOf('T');
+                if(index >= 0) accept(Integer.parseInt(line.substring(index + 1).trim()) - 1);
+            }
+        }
+    }
+
+    /**
+     * Procesa un registro de disparos binario generado por FiringLog.
+     *
+     * @param log archivo binario
+     * @throws IOException si no se puede leer el archivo
+     */
+    public void acceptBinaryLog(Path log) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(FiringLog.RECORD_BYTES * 4096);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            while(channel.read(buffer) >= 0 || buffer.position() >= FiringLog.RECORD_BYTES) {
+                buffer.flip();
+                while(buffer.remaining() >= FiringLog.RECORD_BYTES) {
+                    buffer.getLong(); /*Instante*/
+                    accept(buffer.getInt());
+                    buffer.getInt(); /*Hilo*/
+                }
+                buffer.compact();
+            }
+        }
+    }
+
+    /**
+     * Retorna si todos los disparos procesados forman invariantes completos, sin instancias en curso ni
+     *  disparos fuera de los invariantes.
+     *
+     * @return true si la secuencia es válida y completa
+     */
+    public boolean isComplete() {
+        return inFlight.stream().allMatch(ArrivalQueue::isEmpty) && Arrays.stream(unmatched).sum() == 0 && unknown == 0;
+    }
+
+    /**
+     * Retorna la cantidad de instancias completadas de un invariante.
+     *
+     * @param invariant índice del invariante
+     * @return instancias completadas
+     */
+    public long getCompleted(int invariant) {
+        return completed[invariant];
+    }
+
+    /**
+     * Retorna el reporte de la verificación: instancias completadas por invariante, instancias incompletas por
+     *  prefijo y disparos que no pertenecen a ningún invariante.
+     *
+     * @return reporte en texto
+     */
+    public String getReport() {
+        StringBuilder report = new StringBuilder(String.format("Shots processed: %d%n", shots));
+        for(int invariant = 0; invariant < invariants.size(); invariant++) {
+            report.append(String.format("Invariant %s completed: %d%n", describe(invariants.get(invariant)),
+                    completed[invariant]));
+        }
+        report.append(String.format("Total invariants completed: %d%n", Arrays.stream(completed).sum()));
+        for(int node = 1; node < inFlight.size(); node++) {
+            if(!inFlight.get(node).isEmpty()) {
+                report.append(String.format("Incomplete after %s: %d%n", prefixes.get(node),
+                        inFlight.get(node).size()));
+            }
+        }
+        for(int transition = 0; transition < unmatched.length; transition++) {
+            if(unmatched[transition] > 0) {
+                report.append(String.format("Unmatched shots of T%d: %d%n", transition + 1, unmatched[transition]));
+            }
+        }
+        if(unknown > 0) {
+            report.append(String.format("Shots of unknown transitions: %d%n", unknown));
+        }
+        report.append(isComplete() ? "Verification passed" : "Verification failed");
+        return report.toString();
+    }
+
+    /**
+     * Cola circular de los instantes (número de disparo) en que las instancias en curso llegaron a un nodo, en
+     *  orden de llegada.
+     */
+    private static class ArrivalQueue {
+
+        private long[] arrivals = new long[16];
+        private int head = 0;
+        private int size = 0;
+
+        private void add(long arrival) {
+            if(size == arrivals.length) {
+                long[] grown = new long[arrivals.length * 2];
+                for(int index = 0; index < size; index++) {
+                    grown[index] = arrivals[(head + index) % arrivals.length];
+                }
+                arrivals = grown;
+                head = 0;
+            }
+            arrivals[(head + size++) % arrivals.length] = arrival;
+        }
+
+        private long oldest() {
+            return arrivals[head];
+        }
+
+        private void poll() {
+            head = (head + 1) % arrivals.length;
+            size--;
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private int size() {
+            return size;
+        }
+    }
+
+    private static String describe(List<Integer> invariant) {
+        return invariant.stream().map(transition -> "T" + (transition + 1)).collect(Collectors.joining("-"));
+    }
+
+    /**
+     * Verifica un registro de disparos (texto o binario según la extensión) contra los invariantes indicados.
+     *  Ejemplo: {@code java org.compurrentes.InvariantVerifier log.bin 1-2-4-6-8 1-3-5-7-8 9-10-11-12}
+     *
+     * @param args registro de disparos seguido de cada invariante como transiciones (desde 1) separadas por '-'
+     * @throws IOException si no se puede leer el registro
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 2) {
+            System.out.println("Usage: InvariantVerifier <log.txt|log.bin> <invariant> [<invariant> ...]");
+            return;
+        }
+        List<List<Integer>> invariants = Arrays.stream(args, 1, args.length)
+                .map(invariant -> Arrays.stream(invariant.split("-"))
+                        .map(transition -> Integer.parseInt(transition.trim().replace("T", "")) - 1)
+                        .collect(Collectors.toList()))
+                .collect(Collectors.toList());
+        int totalTransitions = invariants.stream().flatMap(List::stream).mapToInt(Integer::intValue).max().orElse(0) + 1;
+        InvariantVerifier verifier = new InvariantVerifier(invariants, totalTransitions);
+        Path log = Paths.get(args[0]);
+        if(args[0].endsWith(".bin")) {
+            verifier.acceptBinaryLog(log);
+        } else {
+            verifier.acceptTextLog(log);
+        }
+        System.out.println(verifier.getReport());
+    }
+}
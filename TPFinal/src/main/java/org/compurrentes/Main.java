@@ -1,14 +1,19 @@
 package org.compurrentes;
 
-import com.google.common.collect.Iterables;
+import org.compurrentes.analysis.InvariantCalculator;
+import org.compurrentes.beans.ExpiryPolicy;
+import org.compurrentes.beans.NetDefinition;
 import org.compurrentes.beans.Segment;
 import org.compurrentes.beans.SensitizedVector;
+import org.compurrentes.metrics.MetricsExporter;
+import org.compurrentes.metrics.MonitorMetrics;
+import org.compurrentes.policies.Politics;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Aquí se definen los objetos y variables que representan el sistema.
@@ -17,70 +22,151 @@ import java.util.List;
 public class Main {
 
     private static final int TIME = 50; /*Tiempo de ejecución*/
-    private static final double[] INITIAL_TOKENS = /*Marcado inicial de la red*/
-            new double[]{0, 0, 0, 0, 0, 0, 4, 0, 0, 0, 4, 2, 2, 3, 1, 2, 1};
-    private static final double[][] FLUX_DATA_MATRIX = { /*Matriz de flujo de incidencia*/
-            //1  2  3  4  5  6  7  8  9 10 11 12
-            { 1,-1,-1, 0, 0, 0, 0, 0, 0, 0, 0, 0}, //P1
-            { 0, 1, 0,-1, 0, 0, 0, 0, 0, 0, 0, 0}, //P2
-            { 0, 0, 1, 0,-1, 0, 0, 0, 0, 0, 0, 0}, //P3
-            { 0, 0, 0, 1, 0,-1, 0, 0, 0, 0, 0, 0}, //P4
-            { 0, 0, 0, 0, 1, 0,-1, 0, 0, 0, 0, 0}, //P5
-            { 0, 0, 0, 0, 0, 1, 1,-1, 0, 0, 0, 0}, //P6
-            {-1, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0}, //P7
-            { 0, 0, 0, 0, 0, 0, 0, 0, 1,-1, 0, 0}, //P8
-            { 0, 0, 0, 0, 0, 0, 0, 0, 0, 1,-1, 0}, //P9
-            { 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1,-1}, //P10
-            { 0, 0, 0, 0, 0, 0, 0, 0,-1, 0, 0, 1}, //P11
-            {-1, 1, 1, 0, 0, 0, 0, 0, 0, 0,-1, 1}, //P12
-            { 0,-1,-1, 1, 1, 0, 0, 0, 0,-1, 1, 0}, //P13
-            { 0, 0, 0,-1,-1, 1, 1, 0,-1, 1, 0, 0}, //P14
-            { 0, 0, 0, 0, 0,-1,-1, 1, 0, 0, 0, 0}, //P15
-            { 0, 0, 0, 0, 0, 0, 0, 0,-1, 1, 0, 0}, //P16
-            { 0, 0, 0, 0, 0, 0, 0, 0, 0,-1, 1, 0}, //P17
-    };
-    private static final Segment[] SEGMENTS = { /*Segmentos de la red*/
-            new Segment(2, Iterables.cycle(0).iterator(), "A"),
-            new Segment(4, Iterables.cycle(1, 3, 5).iterator(), "B"),
-            new Segment(4, Iterables.cycle(2, 4, 6).iterator(), "C"),
-            new Segment(1, Iterables.cycle(7).iterator(), "D"),
-            new Segment(4, Iterables.cycle(8, 9, 10, 11).iterator(), "E")
-    };
-    private static final List<List<Integer>> piecesTransitions = Arrays.asList( /*Caminos de producción de la RdP*/
-            Arrays.asList(0,1,3,5,7), /*Ruedas 24*/
-            Arrays.asList(0,2,4,6,7), /*Ruedas 32*/
-            Arrays.asList(8,9,10,11)); /*Ejes*/
+    private static final String FIRING_LOG = "log.bin"; /*Registro binario de disparos*/
+    private static final String TEXT_LOG = "log.txt"; /*Registro de disparos en texto*/
+    private static final String POLICY = System.getProperty("policy", Politics.DEFAULT); /*Política de disparo (-Dpolicy=...)*/
+    private static final String NET = System.getProperty("net", "../PetriNetPipe.xml"); /*Definición PNML de la RdP (-Dnet=...)*/
+    private static final String MONITOR = System.getProperty("monitor", Monitor.SERIALIZED); /*Tipo de monitor (-Dmonitor=serialized|optimistic|sharded|fair|barging)*/
+    private static final boolean CHECK_INVARIANTS = Boolean.getBoolean("invariants.check"); /*Verificación de P-invariantes en cada disparo (-Dinvariants.check=true)*/
+    private static final long SIMULATION_TIME = Long.getLong("simulation.time", 0); /*Tiempo de producción simulado en segundos (-Dsimulation.time=..., 0 = ejecución con hilos)*/
+    private static final String TRACE = System.getProperty("trace"); /*Archivo de la traza de disparos y decisiones (-Dtrace=..., ver TraceReplayer)*/
+    private static final long METRICS_PERIOD = Long.getLong("metrics.period", 10); /*Período del reporte de métricas en segundos (-Dmetrics.period=..., 0 = sin reporte)*/
+    private static final boolean BATCH = Boolean.getBoolean("batch"); /*Disparo por lotes, cada hilo recorre el ciclo de su segmento (-Dbatch=true)*/
+    private static final boolean WORK_STEALING = Boolean.getBoolean("work.stealing"); /*Hilos con robo de trabajo entre segmentos (-Dwork.stealing=true, ver WorkerPool)*/
+    private static final boolean AUTOSCALE = Boolean.getBoolean("autoscale"); /*Autoescalado de los hilos de cada segmento (-Dautoscale=true, ver SegmentAutoscaler)*/
+    private static final String AUTOSCALE_MAX = System.getProperty("autoscale.max"); /*Máximo de hilos de cada segmento separados por comas (-Dautoscale.max=..., por defecto el doble de los iniciales)*/
+    private static final long AUTOSCALE_PERIOD = Long.getLong("autoscale.period", 2); /*Período de decisión del autoescalado en segundos (-Dautoscale.period=...)*/
+    private static final int WORKERS_SCALE = Integer.getInteger("workers.scale", 1); /*Multiplicador de hilos por segmento (-Dworkers.scale=...)*/
+    static final int[][] SEGMENT_TRANSITIONS = {{0}, {1, 3, 5}, {2, 4, 6}, {7}, {8, 9, 10, 11}}; /*Transiciones de cada segmento*/
+    static final int[] SEGMENT_THREADS = {2, 4, 4, 1, 4}; /*Hilos de cada segmento*/
+    private static final Segment[] SEGMENTS = createSegments( /*Segmentos de la red*/
+            Arrays.stream(SEGMENT_THREADS).map(threads -> threads * WORKERS_SCALE).toArray());
+    private static final ExpiryPolicy EXPIRY = /*Tratamiento de ventanas vencidas (-Dexpiry=RESET|DIVERT)*/
+            ExpiryPolicy.valueOf(System.getProperty("expiry", ExpiryPolicy.RESET.name()));
 
     /**
      * Se crean los objetos necesarios para el modelado del sistema utilizando las variables
      *  previamente definidas y mediante uno de estos objetos se inicia la ejecución del programa.
+     *  Los caminos de producción (ruedas 24, ruedas 32 y ejes) se obtienen de los T-invariantes de la RdP.
+     *  Con -Dsimulation.time la línea de producción se simula en tiempo virtual (ver Simulator) en lugar de
+     *  ejecutarse con hilos durante TIME segundos.
      * @param args none
      * @throws InterruptedException excepción por interrupción
+     * @throws IOException si no se puede leer la definición de la RdP
      */
-    public static void main(String[] args) throws InterruptedException {
-        PetriNet petriNet = new PetriNet(FLUX_DATA_MATRIX, INITIAL_TOKENS);
-        ModelledProcess modelledProcess = new ModelledProcess(petriNet, piecesTransitions);
-        MonitorManager monitor = new MonitorManager(modelledProcess);
-        SensitizedVector sensitizedVector = new SensitizedVector(monitor);
+    public static void main(String[] args) throws InterruptedException, IOException {
+        NetDefinition net = PnmlLoader.load(Paths.get(NET));
+        PetriNet petriNet = new PetriNet(net);
+        List<List<Integer>> piecesTransitions = /*Caminos de producción de la RdP*/
+                InvariantCalculator.firingSequences(petriNet.getIncidenceMatrix(), net.getInitialMarking());
+        System.out.printf("Production paths %s%n", piecesTransitions);
+        if(CHECK_INVARIANTS) {
+            if(SIMULATION_TIME == 0 && (MONITOR.equals(Monitor.OPTIMISTIC) || MONITOR.equals(Monitor.SHARDED))) {
+                throw new IllegalArgumentException("Per-firing invariant checking requires a serialized monitor or "
+                        + "the simulation");
+            }
+            petriNet.setInvariantChecker(new PlaceInvariantChecker(petriNet.getIncidenceMatrix(),
+                    InvariantCalculator.placeInvariants(petriNet.getIncidenceMatrix()), net.getInitialMarking()));
+        }
+        ModelledProcess modelledProcess = new ModelledProcess(petriNet, piecesTransitions, POLICY);
+        TraceRecorder traceRecorder = null;
+        if(TRACE != null) {
+            if(SIMULATION_TIME == 0 && (MONITOR.equals(Monitor.OPTIMISTIC) || MONITOR.equals(Monitor.SHARDED))) {
+                throw new IllegalArgumentException("Tracing requires a serialized monitor or the simulation");
+            }
+            traceRecorder = new TraceRecorder(petriNet.getMarking(), petriNet.getTotalTransitions(), POLICY);
+            modelledProcess.setPolitics(traceRecorder.record(modelledProcess.getPolitics()));
+            petriNet.setTraceRecorder(traceRecorder);
+        }
+        if((BATCH || WORK_STEALING || AUTOSCALE) && SIMULATION_TIME > 0) {
+            throw new IllegalArgumentException(
+                    "Batch firing, work stealing and autoscaling are not available in the simulation");
+        }
+        if(WORK_STEALING && (MONITOR.equals(Monitor.OPTIMISTIC) || MONITOR.equals(Monitor.SHARDED))) {
+            throw new IllegalArgumentException("Work stealing requires a serialized monitor");
+        }
+        Simulator simulator = SIMULATION_TIME > 0 ? new Simulator(SEGMENTS, modelledProcess) : null;
+        Monitor monitor = simulator == null ? Monitor.create(MONITOR, modelledProcess) : null;
+        if(monitor instanceof ShardedMonitor) {
+            System.out.printf("Monitor shards %s%n", ((ShardedMonitor) monitor).getShards());
+        }
+        SensitizedVector sensitizedVector = simulator != null
+                ? simulator.createSensitizedVector(net.getAlpha(), net.getBeta(), EXPIRY) /*Tiempo virtual*/
+                : new SensitizedVector(monitor, net.getAlpha(), net.getBeta(), EXPIRY);
         petriNet.setSensitizedVector(sensitizedVector);
-        Initializer initializer = new Initializer(monitor, SEGMENTS, modelledProcess);
-        initializer.start(TIME);
-
-        String path = "../Regex/regex1.py";
-        String[] cmd = {"python3",path};
+        MonitorMetrics metrics;
+        if(simulator != null) {
+            metrics = new MonitorMetrics(petriNet.getTotalTransitions(), simulator::now);
+            simulator.setMetrics(metrics);
+        } else {
+            metrics = new MonitorMetrics(petriNet.getTotalTransitions());
+            monitor.setMetrics(metrics);
+        }
+        MetricsExporter exporter = METRICS_PERIOD > 0 && simulator == null
+                ? new MetricsExporter(metrics, System.out, METRICS_PERIOD, TimeUnit.SECONDS) : null;
+        FiringLog firingLog = new FiringLog(Paths.get(FIRING_LOG));
+        petriNet.setFiringLog(firingLog);
+        InvariantVerifier verifier = new InvariantVerifier(piecesTransitions, petriNet.getTotalTransitions());
+        firingLog.setListener(verifier); /*Verificación de invariantes en vivo*/
+        firingLog.start();
+        if(simulator != null) {
+            simulator.start(SIMULATION_TIME);
+        } else {
+            Initializer initializer = new Initializer(monitor, SEGMENTS, modelledProcess);
+            initializer.setBatch(BATCH);
+            initializer.setWorkStealing(WORK_STEALING);
+            if(AUTOSCALE) {
+                int[] maxThreads = AUTOSCALE_MAX != null
+                        ? Arrays.stream(AUTOSCALE_MAX.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray()
+                        : Arrays.stream(SEGMENTS).mapToInt(segment -> 2 * segment.getThreadNumber()).toArray();
+                initializer.setAutoscaling(maxThreads, AUTOSCALE_PERIOD, metrics);
+            }
+            if(exporter != null) exporter.start();
+            initializer.start(TIME);
+            if(exporter != null) exporter.stop();
+            if(monitor instanceof OptimisticMonitor) {
+                OptimisticMonitor optimistic = (OptimisticMonitor) monitor;
+                System.out.printf("Monitor fast path %s, depositing under the mutex %s%n",
+                        optimistic.getFastPathTransitions(), optimistic.getLockedCommitTransitions());
+            }
+        }
         try {
-            Process process = Runtime.getRuntime().exec(cmd);
-            System.out.println("\nRegex execution begins");
-            String commandRead;
-            BufferedReader stdInput = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            while ((commandRead = stdInput.readLine()) != null)
-                System.out.println(commandRead);
-            process.destroy();
-            System.out.printf("Regex finished with exit code %d",process.exitValue());
+            firingLog.close();
+            FiringLogExporter.export(Paths.get(FIRING_LOG), Paths.get(TEXT_LOG)); /*Registro en texto*/
+            if(traceRecorder != null) {
+                traceRecorder.write(Paths.get(TRACE));
+                System.out.printf("Trace: %d firings and %d policy decisions in %d bytes%n",
+                        traceRecorder.getFirings(), traceRecorder.getDecisions(), traceRecorder.getSize());
+            }
         } catch (IOException e) {
             e.printStackTrace();
         }
 
+        System.out.println("\nMonitor metrics");
+        System.out.println(metrics.snapshot().getReport(null));
+        System.out.println("\nInvariant verification");
+        System.out.println(verifier.getReport());
     }
 
+    /**
+     * Crea los segmentos de la red (A, B, C, D y E, ver SEGMENT_TRANSITIONS) con la cantidad de hilos indicada
+     *  para cada uno. Cada llamada crea iteradores nuevos, por lo que cada instancia de la línea de producción
+     *  debe tener sus propios segmentos.
+     *
+     * @param threads hilos de cada segmento
+     * @return segmentos
+     * @throws IllegalArgumentException si no hay una cantidad de hilos por segmento
+     */
+    static Segment[] createSegments(int[] threads) {
+        if(threads.length != SEGMENT_TRANSITIONS.length) {
+            throw new IllegalArgumentException(String.format("Expected %d thread counts, got %d",
+                    SEGMENT_TRANSITIONS.length, threads.length));
+        }
+        Segment[] segments = new Segment[SEGMENT_TRANSITIONS.length];
+        for(int segment = 0; segment < segments.length; segment++) {
+            segments[segment] = new Segment(threads[segment], SEGMENT_TRANSITIONS[segment],
+                    String.valueOf((char) ('A' + segment)));
+        }
+        return segments;
+    }
 }
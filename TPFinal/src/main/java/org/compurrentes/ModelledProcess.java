@@ -1,9 +1,12 @@
 package org.compurrentes;
 
+import org.compurrentes.policies.Politics;
+import org.compurrentes.policies.Policy;
 
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * Esta clase modela la actividad que se realiza en las plazas de la RdP. Además, cuenta con
@@ -13,8 +16,9 @@ public class ModelledProcess {
 
     private final PetriNet petriNet;
     private final List<List<Integer>> piecesTransitions;
-    private final Politics politics;
-    private final int[] transitionActionCounter; /*Contador de disparos por transición*/
+    private Policy politics;
+    private final String policySpecification; /*Especificación con la que se creó la política*/
+    private final AtomicIntegerArray transitionActionCounter; /*Contador de disparos por transición*/
 
     /**
      * Constructor de la clase.
@@ -23,10 +27,22 @@ public class ModelledProcess {
      * @param piecesTransitions Listado de lista de transiciones que representan cada camino productivo de la RdP.
      */
     public ModelledProcess(PetriNet petriNet, List<List<Integer>> piecesTransitions) {
+        this(petriNet, piecesTransitions, Politics.DEFAULT);
+    }
+
+    /**
+     * Constructor de la clase con una política de disparo a elección.
+     *
+     * @param petriNet RdP del sistema.
+     * @param piecesTransitions Listado de lista de transiciones que representan cada camino productivo de la RdP.
+     * @param policy Especificación de la política a utilizar (ver Politics).
+     */
+    public ModelledProcess(PetriNet petriNet, List<List<Integer>> piecesTransitions, String policy) {
         this.petriNet = petriNet;
         this.piecesTransitions = piecesTransitions;
-        this.politics = new Politics(this);
-        transitionActionCounter = new int[petriNet.getTotalTransitions()];
+        transitionActionCounter = new AtomicIntegerArray(petriNet.getTotalTransitions());
+        this.policySpecification = policy;
+        this.politics = Politics.create(policy, this);
     }
 
     /**
@@ -37,7 +53,7 @@ public class ModelledProcess {
      * @throws RuntimeException Excepción manejada en Shooter
      */
     public void realizeTask(int transition) throws RuntimeException {
-        transitionActionCounter[transition]++;
+        transitionActionCounter.incrementAndGet(transition); /*Se llama fuera del monitor, desde varios hilos*/
         /*En caso de transiciones no temporizdas hay que simular el tiempo de tarea*/
         /*if(transition == 7 || transition == 11){
             return;
@@ -75,15 +91,35 @@ public class ModelledProcess {
      *
      * @return politics
      */
-    public Politics getPolitics() {
+    public Policy getPolitics() {
         return politics;
     }
 
     /**
-     * Retorna el contador de disparos de transiciones
+     * Reemplaza la política de disparo, por ejemplo por una que además registra sus decisiones (ver
+     *  TraceRecorder). Debe llamarse antes de crear el monitor, que toma la política al construirse.
+     *
+     * @param politics política a utilizar
+     */
+    public void setPolitics(Policy politics) {
+        this.politics = politics;
+    }
+
+    /**
+     * Retorna la especificación de la política de disparo, para crear otras instancias de la misma política.
+     *
+     * @return policySpecification
+     */
+    public String getPolicySpecification() {
+        return policySpecification;
+    }
+
+    /**
+     * Retorna el contador de disparos de transiciones. Se actualiza en forma atómica, por lo que puede leerse
+     *  desde cualquier hilo.
      * @return transitionActionCounter
      */
-    public int[] getTransitionActionCounter() {
+    public AtomicIntegerArray getTransitionActionCounter() {
         return transitionActionCounter;
     }
 
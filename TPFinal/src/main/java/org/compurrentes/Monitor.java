@@ -0,0 +1,125 @@
+package org.compurrentes;
+
+import org.compurrentes.beans.WindowExpiredException;
+import org.compurrentes.metrics.MonitorMetrics;
+
+/**
+ * Monitor de concurrencia de la RdP. Los shooters disparan transiciones a través de él y el temporizador le avisa
+ *  la apertura de las ventanas temporales. Hay cuatro implementaciones: MonitorManager, que dispara toda transición
+ *  en exclusión mutua, OptimisticMonitor, que dispara sin tomar el mutex las transiciones que no interfieren
+ *  con transiciones temporizadas, ShardedMonitor, que particiona la RdP en fragmentos con un mutex cada uno, y
+ *  ConditionMonitor, que dispara en exclusión mutua sobre un ReentrantLock justo o con barging.
+ */
+public interface Monitor {
+
+    String SERIALIZED = "serialized"; /*MonitorManager*/
+    String OPTIMISTIC = "optimistic"; /*OptimisticMonitor*/
+    String SHARDED = "sharded"; /*ShardedMonitor*/
+    String FAIR = "fair"; /*ConditionMonitor con lock justo*/
+    String BARGING = "barging"; /*ConditionMonitor con lock no justo*/
+
+    /**
+     * Crea el monitor del tipo indicado para el proceso modelado.
+     *
+     * @param kind tipo de monitor (SERIALIZED, OPTIMISTIC, SHARDED, FAIR o BARGING)
+     * @param modelledProcess proceso modelado por la RdP
+     * @return monitor
+     * @throws IllegalArgumentException si el tipo no existe
+     */
+    static Monitor create(String kind, ModelledProcess modelledProcess) {
+        switch(kind) {
+            case SERIALIZED:
+                return new MonitorManager(modelledProcess);
+            case OPTIMISTIC:
+                return new OptimisticMonitor(modelledProcess);
+            case SHARDED:
+                return new ShardedMonitor(modelledProcess);
+            case FAIR:
+                return new ConditionMonitor(modelledProcess, true);
+            case BARGING:
+                return new ConditionMonitor(modelledProcess, false);
+            default:
+                throw new IllegalArgumentException("Unknown monitor: " + kind);
+        }
+    }
+
+    /**
+     * Dispara la transición, bloqueando al hilo hasta que esté sensibilizada.
+     *
+     * @param transition transición a disparar
+     * @throws WindowExpiredException si la ventana de la transición venció y el hilo fue desviado
+     * @throws RuntimeException si el hilo es interrumpido (manejada en shooter)
+     */
+    void shootTransition(int transition) throws RuntimeException;
+
+    /**
+     * Dispara transiciones consecutivas de una secuencia en una sola entrada al monitor: espera y dispara la
+     *  primera como shootTransition y luego dispara las siguientes mientras estén sensibilizadas, sin esperar,
+     *  decidiendo a qué hilo despertar una sola vez al salir. Por defecto dispara sólo la primera.
+     *
+     * @param sequence transiciones a disparar en orden
+     * @param from posición de la primera transición a disparar
+     * @param length cantidad máxima de transiciones a disparar (al menos 1)
+     * @return cantidad de transiciones disparadas, entre 1 y length
+     * @throws WindowExpiredException si la ventana de la primera transición venció (no se disparó ninguna)
+     * @throws RuntimeException si el hilo es interrumpido (manejada en shooter)
+     */
+    default int shootSequence(int[] sequence, int from, int length) throws RuntimeException {
+        shootTransition(sequence[from]);
+        return 1;
+    }
+
+    /**
+     * Dispara la transición si está sensibilizada, sin bloquear al hilo si no lo está. Si la dispara, despierta a
+     *  un hilo en espera igual que shootTransition.
+     *
+     * @param transition transición a disparar
+     * @return true si se disparó
+     * @throws WindowExpiredException si la ventana de la transición venció y el hilo fue desviado
+     * @throws RuntimeException si el hilo es interrumpido mientras espera por el mutex
+     * @throws UnsupportedOperationException si el monitor no admite disparos sin espera (ver supportsTryShoot)
+     */
+    default boolean tryShootTransition(int transition) throws RuntimeException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support non-blocking firing");
+    }
+
+    /**
+     * Indica si el monitor admite disparos sin espera (tryShootTransition) y mantiene el sensibilizado de la RdP
+     *  en cada disparo, de modo que puede consultarse como estimación sin entrar al monitor.
+     *
+     * @return true si admite tryShootTransition
+     */
+    default boolean supportsTryShoot() {
+        return false;
+    }
+
+    /**
+     * Llamado por el temporizador cuando se abre la ventana de una transición temporizada.
+     *
+     * @param transition transición temporizada
+     * @param deadline instante de apertura agendado
+     * @throws RuntimeException si el temporizador es interrumpido
+     */
+    void signalWindowOpened(int transition, long deadline) throws RuntimeException;
+
+    /**
+     * Asigna las métricas del monitor. Debe llamarse antes de iniciar los hilos.
+     *
+     * @param metrics métricas del monitor
+     */
+    void setMetrics(MonitorMetrics metrics);
+
+    /**
+     * Prepara el monitor para la ejecución, luego de asignar el vector de sensibilizados y el registro de disparos
+     *  a la RdP y antes de iniciar el temporizador y los hilos.
+     */
+    default void start() {
+    }
+
+    /**
+     * Cierra el monitor una vez detenidos todos los hilos. Luego de cerrarlo la RdP refleja el marcado final y
+     *  puede dispararse directamente (disparos finales).
+     */
+    default void close() {
+    }
+}
@@ -1,18 +1,25 @@
 package org.compurrentes;
 
-import java.util.List;
+import org.compurrentes.beans.SensitizedVector;
+import org.compurrentes.beans.WindowExpiredException;
+import org.compurrentes.metrics.MonitorMetrics;
+import org.compurrentes.policies.Policy;
+
 import java.util.concurrent.Semaphore;
 
 /**
  * Esta clase representa el monitor de concurrencia que controlará todos los accesos a los
  *  recursos compartidos de la RdP.
  */
-public class MonitorManager {
+public class MonitorManager implements Monitor {
 
     private final Semaphore mutex = new Semaphore(1); /*Semáforo del monitor*/
     private final PetriNet petriNet;
-    private final Politics politics;
+    private final Policy politics;
     private final Queues transitionQueues; /*Cola de espera*/
+    private final long[] candidates; /*Transiciones sensibilizadas con hilos esperando, se reutiliza en cada disparo*/
+    private MonitorMetrics metrics; /*Métricas del monitor, opcional*/
+    private long ownedSince; /*Instante en que el dueño actual tomó el mutex, sólo se usa con métricas*/
 
     /**
      * Constructor de la clase.
@@ -23,6 +30,7 @@ public class MonitorManager {
         this.petriNet = modelledProcess.getPetriNet();
         this.politics = modelledProcess.getPolitics();
         transitionQueues = new Queues(petriNet.getTotalTransitions());
+        candidates = BitMask.create(petriNet.getTotalTransitions());
     }
 
     /**
@@ -30,15 +38,19 @@ public class MonitorManager {
      *  una transición.
      *
      * @param transition transición a disparar
+     * @throws WindowExpiredException si la ventana de la transición venció y el hilo fue desviado (sin el mutex)
      * @throws RuntimeException manejada en shooter
      */
+    @Override
     public void shootTransition(int transition) throws RuntimeException{
         /*Intenta tomar el mutex del monitor para poder ingresar.*/
+        long requested = metrics != null ? System.nanoTime() : 0;
         try {
             mutex.acquire();
         } catch (InterruptedException e) {
             throw new RuntimeException(e); /*manejada en el método run del shooter*/
         }
+        if(metrics != null) entered(requested, true);
 
         /*En este punto el hilo logró ingresar al monitor.*/
         boolean k = true;
@@ -49,18 +61,18 @@ public class MonitorManager {
              * fundamental, luego retorna true.
              * Si la transición no se puede disparar se retorna false.
              */
-            k = petriNet.shoot(transition, false);
+            try {
+                k = petriNet.shoot(transition, false);
+            } catch (WindowExpiredException e) {
+                leaving();
+                mutex.release(); /*El hilo es desviado fuera del monitor*/
+                throw e;
+            }
 
             if(k) {/*k = true --> Transición disparada, el hilo dentro del monitor intentará despertar otro*/
+                if(metrics != null) metrics.recordFiring(transition);
 
-                List<Integer> sensitive = petriNet.getSensibilities();
-                List<Integer> threadsReady = transitionQueues.getWaitingTransitions();
-                /*Se queda con las transiciones sensibilizadas que tienen hilos esperando para dispararlas*/
-                sensitive.retainAll(threadsReady);
-
-                if(sensitive.size() > 0) { /*Hay hilos esperando por transiciones sensibilizadas*/
-                    int nextTransition = politics.getPriorityShooter(sensitive); /*Consulta a la política cuál hilo despertar*/
-                    transitionQueues.release(nextTransition); /*Despierta el hilo*/
+                if(wakeUpNext()) { /*Había hilos esperando por transiciones sensibilizadas y se despertó uno*/
                     return; /*Deja el monitor sin liberar el mutex, ya que queda el hilo que despertó, no hay owner*/
 
                 } else { /*No hay hilos esperando por transiciones sensibilizadas*/
@@ -68,17 +80,245 @@ public class MonitorManager {
                 }
 
             } else { /*k = false --> No se puede disparar la transición*/
-                mutex.release(); /*Devuelve el mutex del monitor*/
-                transitionQueues.acquire(transition); /*Ingresa a la cola de transiciones, acá el hilo se bloquea*/
+                await(transition); /*Acá el hilo se bloquea hasta recibir el mutex del hilo que lo despierte*/
                 /*Cuando un hilo es despertado de una cola, continua su ejecución en este punto, por lo tanto,
                  * es necesario colocar k = true para que pueda ingresar nuevamente al loop*/
                 k = true;
             }
         }
         /*Una vez que abandona el loop, devuelve el mutex del monitor*/
+        leaving();
+        mutex.release();
+    }
+
+    /**
+     * Disparo de una secuencia en una sola entrada al monitor. Dispara la primera transición igual que
+     *  shootTransition, esperando en su cola si no está sensibilizada, y luego, sin soltar el mutex, las siguientes
+     *  de la secuencia mientras estén sensibilizadas. La política se consulta una sola vez, al salir.
+     *
+     * @param sequence transiciones a disparar en orden
+     * @param from posición de la primera transición a disparar
+     * @param length cantidad máxima de transiciones a disparar
+     * @return cantidad de transiciones disparadas, al menos 1
+     * @throws WindowExpiredException si la ventana de la primera transición venció (no se disparó ninguna)
+     * @throws RuntimeException manejada en shooter
+     */
+    @Override
+    public int shootSequence(int[] sequence, int from, int length) throws RuntimeException {
+        long requested = metrics != null ? System.nanoTime() : 0;
+        try {
+            mutex.acquire();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e); /*manejada en el método run del shooter*/
+        }
+        if(metrics != null) entered(requested, true);
+
+        int transition = sequence[from];
+        while(true) {
+            boolean fired;
+            try {
+                fired = petriNet.shoot(transition, false);
+            } catch (WindowExpiredException e) {
+                leaving();
+                mutex.release(); /*El hilo es desviado fuera del monitor*/
+                throw e;
+            }
+            if(fired) break;
+            await(transition);
+        }
+        if(metrics != null) metrics.recordFiring(transition);
+        int fired = 1;
+        while(fired < length && fireNext(sequence[from + fired])) {
+            fired++;
+        }
+        if(!wakeUpNext()) {
+            leaving();
+            mutex.release();
+        }
+        return fired;
+    }
+
+    /**
+     * Disparo sin espera: igual que shootTransition, pero si la transición no está sensibilizada el hilo devuelve
+     *  el mutex en lugar de encolarse.
+     *
+     * @param transition transición a disparar
+     * @return true si se disparó
+     * @throws WindowExpiredException si la ventana de la transición venció y el hilo fue desviado (sin el mutex)
+     * @throws RuntimeException manejada en el llamador
+     */
+    @Override
+    public boolean tryShootTransition(int transition) throws RuntimeException {
+        long requested = metrics != null ? System.nanoTime() : 0;
+        try {
+            mutex.acquire();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        if(metrics != null) entered(requested, true);
+        boolean fired;
+        try {
+            fired = petriNet.shoot(transition, false);
+        } catch (WindowExpiredException e) {
+            leaving();
+            mutex.release(); /*El hilo es desviado fuera del monitor*/
+            throw e;
+        }
+        if(fired) {
+            if(metrics != null) metrics.recordFiring(transition);
+            if(wakeUpNext()) return true; /*El mutex queda en manos del hilo despertado*/
+        }
+        leaving();
+        mutex.release();
+        return fired;
+    }
+
+    /**
+     * Admite disparos sin espera.
+     *
+     * @return true
+     */
+    @Override
+    public boolean supportsTryShoot() {
+        return true;
+    }
+
+    /**
+     * Dispara la transición si está sensibilizada, sin esperar. Una ventana vencida cuenta como no sensibilizada:
+     *  el hilo la reintenta en su próxima entrada al monitor. Debe llamarse con el mutex tomado.
+     *
+     * @param transition transición siguiente de la secuencia
+     * @return true si se disparó
+     */
+    private boolean fireNext(int transition) {
+        try {
+            if(!petriNet.shoot(transition, false)) return false;
+        } catch (WindowExpiredException e) {
+            return false;
+        }
+        if(metrics != null) metrics.recordFiring(transition);
+        return true;
+    }
+
+    /**
+     * Registra al hilo en la cola de la transición, devuelve el mutex del monitor y bloquea al hilo hasta que otro
+     *  lo despierte entregándole el mutex.
+     *
+     * @param transition transición por la que espera
+     * @throws RuntimeException si el hilo es interrumpido mientras espera (sin el mutex)
+     */
+    private void await(int transition) {
+        transitionQueues.addWaiter(transition); /*Se registra en la cola antes de soltar el mutex*/
+        leaving();
+        long queued = metrics != null ? System.nanoTime() : 0;
+        mutex.release(); /*Devuelve el mutex del monitor*/
+        transitionQueues.acquire(transition); /*Ingresa a la cola de transiciones, acá el hilo se bloquea*/
+        if(metrics != null) entered(queued, false); /*Recibe el mutex del hilo que lo despertó*/
+    }
+
+    /**
+     * Llamado por el temporizador cuando se abre la ventana de una transición temporizada. Ingresa al monitor y,
+     *  si la apertura es vigente y hay un hilo esperando por una transición disparable, lo despierta entregándole
+     *  el mutex, de la misma forma que lo hace un hilo luego de disparar.
+     *
+     * @param transition transición temporizada
+     * @param deadline instante de apertura agendado
+     * @throws RuntimeException si el temporizador es interrumpido
+     */
+    @Override
+    public void signalWindowOpened(int transition, long deadline) throws RuntimeException {
+        long requested = metrics != null ? System.nanoTime() : 0;
+        try {
+            mutex.acquire();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        if(metrics != null) entered(requested, true);
+        if(petriNet.getSensitizedVector().openWindow(transition, deadline) && wakeUpNext()) {
+            return; /*El mutex queda en manos del hilo despertado*/
+        }
+        leaving();
         mutex.release();
     }
 
+    /**
+     * Si hay hilos esperando por transiciones sensibilizadas, consulta a la política cuál despertar y lo despierta.
+     *  Si la política elige una transición temporizada cuya ventana todavía no se abrió, no se despierta a nadie:
+     *  la transición queda reservada y el temporizador despertará a su hilo al abrirse la ventana. Si la cola
+     *  elegida sólo tenía hilos interrumpidos, se vuelve a consultar a la política con las candidatas restantes.
+     *  Debe llamarse con el mutex tomado; si despierta un hilo, el mutex pasa a ese hilo y acá se registra la
+     *  tenencia del dueño saliente; si no, la registra el llamador al devolver el mutex.
+     *
+     * @return true si se despertó un hilo
+     */
+    private boolean wakeUpNext() {
+        while(updateCandidates()) {
+            int nextTransition = politics.getPriorityShooter(candidates); /*Consulta a la política cuál despertar*/
+            if(BitMask.isSet(petriNet.getSensitizedVector().getPendingMask(), nextTransition)) {
+                return false; /*Ventana sin abrir, lo despierta el temporizador*/
+            }
+            long held = metrics != null ? System.nanoTime() - ownedSince : 0; /*Antes del release, luego ownedSince es del hilo despertado*/
+            if(transitionQueues.release(nextTransition)) { /*Despierta el hilo y le entrega el mutex*/
+                if(metrics != null) metrics.recordMutexHold(held);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Calcula las transiciones sensibilizadas que tienen hilos esperando para dispararlas, como el AND palabra
+     *  a palabra de la máscara de sensibilizadas de la RdP y la máscara de espera de las colas.
+     *
+     * @return true si hay al menos una transición candidata
+     */
+    private boolean updateCandidates() {
+        long[] sensitized = petriNet.getSensitizedMask();
+        long[] waiting = transitionQueues.getWaitingMask();
+        long any = 0;
+        for(int word = 0; word < candidates.length; word++) {
+            candidates[word] = sensitized[word] & waiting[word];
+            any |= candidates[word];
+        }
+        return any != 0;
+    }
+
+    /**
+     * Registra la espera del hilo que acaba de tomar el mutex y el comienzo de su tenencia. Sólo con métricas.
+     *
+     * @param since instante en que el hilo empezó a esperar
+     * @param mutexWait true si esperó por el mutex, false si esperó en la cola de una transición
+     */
+    private void entered(long since, boolean mutexWait) {
+        ownedSince = System.nanoTime();
+        if(mutexWait) {
+            metrics.recordMutexWait(ownedSince - since);
+        } else {
+            metrics.recordQueueWait(ownedSince - since);
+        }
+    }
+
+    /**
+     * Registra la tenencia del mutex del dueño actual, que está por liberarlo o entregarlo a otro hilo.
+     */
+    private void leaving() {
+        if(metrics != null) metrics.recordMutexHold(System.nanoTime() - ownedSince);
+    }
+
+    /**
+     * Asigna las métricas del monitor y las propaga a las colas y, si ya está asignado, al vector de
+     *  sensibilizados. Debe llamarse antes de iniciar los hilos.
+     *
+     * @param metrics métricas del monitor
+     */
+    @Override
+    public void setMetrics(MonitorMetrics metrics) {
+        this.metrics = metrics;
+        transitionQueues.setMetrics(metrics);
+        SensitizedVector sensitizedVector = petriNet.getSensitizedVector();
+        if(sensitizedVector != null) sensitizedVector.setMetrics(metrics);
+    }
+
     /**
      * Retorna la RdP asociada al monitor.
      * @return instancia de PetriNet del monitor
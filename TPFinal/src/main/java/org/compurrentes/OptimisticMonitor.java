@@ -0,0 +1,526 @@
+package org.compurrentes;
+
+import org.compurrentes.beans.SensitizedVector;
+import org.compurrentes.beans.WindowExpiredException;
+import org.compurrentes.metrics.MonitorMetrics;
+import org.compurrentes.policies.Policy;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Monitor de concurrencia con disparo optimista. El marcado se mantiene en un contador atómico por plaza y una
+ *  transición se dispara tomando sus tokens de entrada con compareAndSet, plaza por plaza; si alguna plaza no
+ *  alcanza se devuelven los tokens ya tomados. Así las transiciones que no comparten plazas se disparan en
+ *  paralelo, sin pasar por el mutex.
+ *  Usan esta vía rápida las transiciones no temporizadas que no tocan plazas con capacidad (ver start). Si además
+ *  su disparo no modifica el sensibilizado de ninguna transición temporizada, el disparo completo ocurre sin el
+ *  mutex. Si lo modifica, sólo la toma de tokens es sin el mutex: el depósito de los tokens de salida y la
+ *  actualización de las ventanas de las temporizadas afectadas se hacen con el mutex tomado (ver commitLocked).
+ *  Mientras tanto los tokens tomados no son visibles para nadie, por lo que el disparo equivale a uno hecho en el
+ *  instante del depósito; una temporizada que en ese lapso se ve sin tokens puede reiniciar su ventana, lo que
+ *  sólo la demora, pero ninguna se dispara antes que con el monitor serializado.
+ *  Las transiciones temporizadas se disparan siempre con el mutex tomado, igual que en MonitorManager: leer su
+ *  ventana y tomar sus tokens en un solo paso sin el mutex permitiría dispararlas antes de que se abra la ventana
+ *  de un nuevo sensibilizado. En la RdP del proyecto (PetriNetPipe.xml) todas las transiciones salvo T1 y T9 son
+ *  temporizadas, por lo que sólo T1 y T9 toman sus tokens por la vía rápida y, como ambas sensibilizan
+ *  temporizadas, depositan con el mutex: con las ventanas del proyecto el monitor se comporta casi como el
+ *  serializado, y la vía rápida completa sólo se aprovecha con redes (o ventanas) sin temporizar.
+ *  La vía rápida también cede al mutex cuando la transición no está sensibilizada (el hilo se encola) o cuando,
+ *  luego del disparo, hay hilos esperando por alguna transición afectada (hay que despertar a uno).
+ *  Un hilo que se encola publica su espera y recién después reevalúa los candidatos, y un hilo que deposita tokens
+ *  lo hace antes de leer las esperas publicadas, por lo que ninguno de los dos puede perderse al otro.
+ *  Cada disparo se anota en el registro luego de tomar sus tokens y antes de depositar los de salida, por lo que
+ *  el orden del registro es una secuencia de disparo válida de la RdP, igual que con el monitor serializado.
+ */
+public class OptimisticMonitor implements Monitor {
+
+    private final Semaphore mutex = new Semaphore(1); /*Semáforo de la vía lenta*/
+    private final PetriNet petriNet;
+    private final IncidenceMatrix incidenceMatrix;
+    private final Policy politics;
+    private final Queues transitionQueues; /*Cola de espera, se modifica con el mutex tomado*/
+    private final AtomicIntegerArray tokens; /*Marcado compartido, un contador por plaza*/
+    private final AtomicLongArray waiting; /*Máscara de espera de las colas publicada para la vía rápida*/
+    private final long[][] affected; /*Transiciones afectadas por cada transición, como máscara*/
+    private final long[] timed; /*Transiciones temporizadas*/
+    private final long[] fastPath; /*Transiciones que toman sus tokens sin el mutex*/
+    private final long[] lockedCommit; /*Transiciones de la vía rápida que depositan con el mutex tomado*/
+    private final long[] sensitized; /*Sensibilizado por tokens de las temporizadas, se modifica con el mutex tomado*/
+    private final long[] previousSensitized; /*Copia de la máscara previa al último disparo*/
+    private final long[] candidates; /*Transiciones sensibilizadas con hilos esperando, se reutiliza en cada disparo*/
+    private SensitizedVector sensitizedVector;
+    private FiringLog firingLog; /*Registro de disparos, opcional*/
+    private MonitorMetrics metrics; /*Métricas del monitor, opcional*/
+    private long ownedSince; /*Instante en que el dueño actual tomó el mutex, sólo se usa con métricas*/
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param modelledProcess proceso modelado por la RdP
+     */
+    public OptimisticMonitor(ModelledProcess modelledProcess) {
+        this.petriNet = modelledProcess.getPetriNet();
+        this.politics = modelledProcess.getPolitics();
+        incidenceMatrix = petriNet.getIncidenceMatrix();
+        int totalTransitions = petriNet.getTotalTransitions();
+        transitionQueues = new Queues(totalTransitions);
+        tokens = new AtomicIntegerArray(petriNet.getMarking());
+        waiting = new AtomicLongArray(BitMask.create(totalTransitions).length);
+        affected = new long[totalTransitions][];
+        for(int transition = 0; transition < totalTransitions; transition++) {
+            affected[transition] = BitMask.create(totalTransitions);
+            for(int other : incidenceMatrix.getAffectedTransitions(transition)) {
+                BitMask.set(affected[transition], other);
+            }
+        }
+        timed = BitMask.create(totalTransitions);
+        fastPath = BitMask.create(totalTransitions);
+        lockedCommit = BitMask.create(totalTransitions);
+        sensitized = BitMask.create(totalTransitions);
+        previousSensitized = BitMask.create(totalTransitions);
+        candidates = BitMask.create(totalTransitions);
+    }
+
+    /**
+     * Toma el marcado actual de la RdP, su vector de sensibilizados y su registro de disparos, y calcula qué
+     *  transiciones usan la vía rápida: las no temporizadas, sin plazas con capacidad. De ellas, las que afectan a
+     *  alguna transición temporizada depositan con el mutex tomado. La máscara de sensibilizadas que ve el vector de sensibilizados pasa a ser
+     *  la de este monitor, que sólo mantiene las transiciones temporizadas.
+     */
+    @Override
+    public void start() {
+        sensitizedVector = petriNet.getSensitizedVector();
+        firingLog = petriNet.getFiringLog();
+        int[] marking = petriNet.getMarking();
+        for(int place = 0; place < marking.length; place++) {
+            tokens.set(place, marking[place]);
+        }
+        int totalTransitions = petriNet.getTotalTransitions();
+        boolean[] bounded = new boolean[incidenceMatrix.getTotalPlaces()]; /*Plazas con capacidad*/
+        for(int transition = 0; transition < totalTransitions; transition++) {
+            if(sensitizedVector.isTimed(transition)) BitMask.set(timed, transition);
+            for(int place : incidenceMatrix.getBoundedPlaces(transition)) bounded[place] = true;
+        }
+        for(int transition = 0; transition < totalTransitions; transition++) {
+            if(isFastPathCandidate(transition, bounded)) {
+                BitMask.set(fastPath, transition);
+                if(affectsTimed(transition)) BitMask.set(lockedCommit, transition);
+            }
+            if(BitMask.isSet(timed, transition) && isEnabled(transition)) BitMask.set(sensitized, transition);
+        }
+        sensitizedVector.setSensibilities(sensitized);
+    }
+
+    private boolean isFastPathCandidate(int transition, boolean[] bounded) {
+        if(BitMask.isSet(timed, transition)) return false;
+        for(int place : incidenceMatrix.getInputPlaces(transition)) {
+            if(bounded[place]) return false;
+        }
+        for(int place : incidenceMatrix.getOutputPlaces(transition)) {
+            if(bounded[place]) return false;
+        }
+        return true;
+    }
+
+    private boolean affectsTimed(int transition) {
+        for(int word = 0; word < timed.length; word++) {
+            if((affected[transition][word] & timed[word]) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Vuelca el marcado de los contadores en la RdP y le devuelve al vector de sensibilizados la máscara de la red,
+     *  para que los disparos finales se hagan directamente sobre la RdP.
+     */
+    @Override
+    public void close() {
+        int[] marking = new int[tokens.length()];
+        for(int place = 0; place < marking.length; place++) {
+            marking[place] = tokens.get(place);
+        }
+        petriNet.setMarking(marking);
+        sensitizedVector.setSensibilities(petriNet.getSensitizedMask());
+    }
+
+    /**
+     * Dispara la transición. Si usa la vía rápida y está sensibilizada toma sus tokens sin el mutex; luego deposita
+     *  sin el mutex, ingresando al monitor sólo si hay que despertar a un hilo, o con el mutex si afecta a alguna
+     *  transición temporizada. En otro caso se dispara por la vía lenta.
+     *
+     * @param transition transición a disparar
+     * @throws WindowExpiredException si la ventana de la transición venció y el hilo fue desviado (sin el mutex)
+     * @throws RuntimeException si el hilo es interrumpido (manejada en shooter)
+     */
+    @Override
+    public void shootTransition(int transition) throws RuntimeException {
+        if(Thread.interrupted()) {
+            throw new RuntimeException(new InterruptedException()); /*Igual que al tomar el mutex interrumpido*/
+        }
+        if(BitMask.isSet(fastPath, transition) && consume(transition)) {
+            if(BitMask.isSet(lockedCommit, transition)) {
+                commitLocked(transition);
+                return;
+            }
+            complete(transition);
+            if(hasWaiters(transition)) signalWaiters();
+            return;
+        }
+        shootLocked(transition);
+    }
+
+    /**
+     * Vía lenta: el diagrama de secuencias de MonitorManager, con el mutex tomado durante el disparo. Antes de
+     *  bloquearse en su cola el hilo reevalúa los candidatos, ya que los tokens pueden haber llegado por la vía
+     *  rápida sin que nadie tomara el mutex; si su propia transición es elegida se despierta a sí mismo.
+     *
+     * @param transition transición a disparar
+     */
+    private void shootLocked(int transition) {
+        long requested = metrics != null ? System.nanoTime() : 0;
+        try {
+            mutex.acquire();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e); /*manejada en el método run del shooter*/
+        }
+        if(metrics != null) entered(requested, true);
+
+        while(true) {
+            boolean fired;
+            try {
+                fired = fireLocked(transition);
+            } catch (WindowExpiredException e) {
+                leaving();
+                mutex.release(); /*El hilo es desviado fuera del monitor*/
+                throw e;
+            }
+            if(fired) {
+                if(wakeUpNext()) return; /*El mutex queda en manos del hilo despertado*/
+                break;
+            }
+            transitionQueues.addWaiter(transition); /*Se registra en la cola antes de soltar el mutex*/
+            publishWaiting(transition);
+            long queued = metrics != null ? System.nanoTime() : 0;
+            if(!wakeUpNext()) {
+                leaving();
+                mutex.release();
+            }
+            transitionQueues.acquire(transition); /*Recibe el mutex del hilo que lo despierta*/
+            if(metrics != null) entered(queued, false);
+        }
+        leaving();
+        mutex.release();
+    }
+
+    /**
+     * Dispara la transición con el mutex tomado, si está sensibilizada por tokens y por tiempo, y actualiza el
+     *  sensibilizado y las ventanas de las transiciones temporizadas afectadas.
+     *
+     * @param transition transición a disparar
+     * @return true si se disparó
+     * @throws WindowExpiredException si la ventana venció y la política de vencimiento es DIVERT
+     */
+    private boolean fireLocked(int transition) throws WindowExpiredException {
+        if(BitMask.isSet(timed, transition) && !sensitizedVector.isSensitized(transition, false)) return false;
+        if(!hasCapacity(transition) || !consume(transition)) return false;
+        completeLocked(transition);
+        return true;
+    }
+
+    /**
+     * Completa con el mutex tomado el disparo de una transición cuyos tokens ya fueron tomados, y actualiza el
+     *  sensibilizado y las ventanas de las transiciones temporizadas afectadas.
+     *
+     * @param transition transición disparada
+     */
+    private void completeLocked(int transition) {
+        System.arraycopy(sensitized, 0, previousSensitized, 0, sensitized.length);
+        complete(transition);
+        for(int other : incidenceMatrix.getAffectedTransitions(transition)) {
+            if(!BitMask.isSet(timed, other)) continue;
+            if(isEnabled(other)) {
+                BitMask.set(sensitized, other);
+            } else {
+                BitMask.clear(sensitized, other);
+            }
+        }
+        sensitizedVector.updateTimeStamps(previousSensitized, sensitized);
+    }
+
+    /**
+     * Deposita con el mutex tomado los tokens de una transición de la vía rápida que afecta a temporizadas, cuyos
+     *  tokens de entrada ya se tomaron sin el mutex, y luego despierta a un hilo si corresponde. El mutex se espera
+     *  sin interrupciones, ya que abandonar el depósito perdería los tokens tomados; una interrupción se conserva
+     *  para que el shooter se detenga en el próximo disparo.
+     *
+     * @param transition transición disparada
+     */
+    private void commitLocked(int transition) {
+        long requested = metrics != null ? System.nanoTime() : 0;
+        mutex.acquireUninterruptibly();
+        if(metrics != null) entered(requested, true);
+        completeLocked(transition);
+        if(!wakeUpNext()) {
+            leaving();
+            mutex.release();
+        }
+    }
+
+    /**
+     * Llamado por el temporizador cuando se abre la ventana de una transición temporizada, igual que en
+     *  MonitorManager.
+     *
+     * @param transition transición temporizada
+     * @param deadline instante de apertura agendado
+     * @throws RuntimeException si el temporizador es interrumpido
+     */
+    @Override
+    public void signalWindowOpened(int transition, long deadline) throws RuntimeException {
+        long requested = metrics != null ? System.nanoTime() : 0;
+        try {
+            mutex.acquire();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        if(metrics != null) entered(requested, true);
+        if(sensitizedVector.openWindow(transition, deadline) && wakeUpNext()) {
+            return; /*El mutex queda en manos del hilo despertado*/
+        }
+        leaving();
+        mutex.release();
+    }
+
+    /**
+     * Toma los tokens de entrada de la transición, plaza por plaza con compareAndSet. Si alguna plaza no alcanza
+     *  devuelve los tokens ya tomados; quien los devuelve pasa luego por la vía lenta, que reevalúa los candidatos.
+     *
+     * @param transition transición a disparar
+     * @return true si se tomaron todos los tokens
+     */
+    private boolean consume(int transition) {
+        int[] places = incidenceMatrix.getInputPlaces(transition);
+        int[] weights = incidenceMatrix.getInputWeights(transition);
+        for(int i = 0; i < places.length; i++) {
+            if(!take(places[i], weights[i])) {
+                for(int j = 0; j < i; j++) {
+                    tokens.getAndAdd(places[j], weights[j]);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean take(int place, int weight) {
+        int current;
+        do {
+            current = tokens.get(place);
+            if(current < weight) return false;
+        } while(!tokens.compareAndSet(place, current, current - weight));
+        return true;
+    }
+
+    /**
+     * Completa el disparo de una transición cuyos tokens ya fueron tomados: lo anota en el registro y deposita
+     *  los tokens de salida, en ese orden.
+     *
+     * @param transition transición disparada
+     */
+    private void complete(int transition) {
+        if(firingLog != null) firingLog.append(System.nanoTime(), transition);
+        int[] places = incidenceMatrix.getOutputPlaces(transition);
+        int[] weights = incidenceMatrix.getOutputWeights(transition);
+        for(int i = 0; i < places.length; i++) {
+            tokens.getAndAdd(places[i], weights[i]);
+        }
+        if(metrics != null) metrics.recordFiring(transition);
+    }
+
+    /**
+     * Verifica que el disparo no exceda la capacidad de las plazas de salida. Sólo las transiciones de la vía lenta
+     *  incrementan plazas con capacidad, por lo que con el mutex tomado el resultado no puede invalidarse.
+     *
+     * @param transition transición consultada
+     * @return true si hay lugar en las plazas de salida
+     */
+    private boolean hasCapacity(int transition) {
+        int[] places = incidenceMatrix.getBoundedPlaces(transition);
+        int[] limits = incidenceMatrix.getBoundedLimits(transition);
+        for(int i = 0; i < places.length; i++) {
+            if(tokens.get(places[i]) > limits[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Verifica si la transición está sensibilizada por tokens en el marcado actual.
+     *
+     * @param transition transición consultada
+     * @return true si está sensibilizada
+     */
+    private boolean isEnabled(int transition) {
+        int[] places = incidenceMatrix.getInputPlaces(transition);
+        int[] weights = incidenceMatrix.getInputWeights(transition);
+        for(int i = 0; i < places.length; i++) {
+            if(tokens.get(places[i]) < weights[i]) return false;
+        }
+        return hasCapacity(transition);
+    }
+
+    /**
+     * Verifica, luego de depositar los tokens de un disparo, si hay hilos esperando por alguna transición afectada.
+     *
+     * @param transition transición disparada
+     * @return true si hay que ingresar al monitor para despertar a un hilo
+     */
+    private boolean hasWaiters(int transition) {
+        long[] mask = affected[transition];
+        for(int word = 0; word < mask.length; word++) {
+            if((mask[word] & waiting.get(word)) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Ingresa al monitor luego de un disparo de la vía rápida para despertar a un hilo. Si el hilo es interrumpido
+     *  mientras espera el mutex, el disparo ya ocurrió: se conserva la interrupción para que el shooter se detenga
+     *  en el próximo disparo.
+     */
+    private void signalWaiters() {
+        long requested = metrics != null ? System.nanoTime() : 0;
+        try {
+            mutex.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if(metrics != null) entered(requested, true);
+        if(!wakeUpNext()) {
+            leaving();
+            mutex.release();
+        }
+    }
+
+    /**
+     * Si hay hilos esperando por transiciones sensibilizadas, consulta a la política cuál despertar y lo despierta,
+     *  igual que MonitorManager. Debe llamarse con el mutex tomado; si despierta un hilo, el mutex pasa a ese hilo.
+     *
+     * @return true si se despertó un hilo
+     */
+    private boolean wakeUpNext() {
+        while(updateCandidates()) {
+            int nextTransition = politics.getPriorityShooter(candidates);
+            if(BitMask.isSet(sensitizedVector.getPendingMask(), nextTransition)) {
+                return false; /*Ventana sin abrir, lo despierta el temporizador*/
+            }
+            long held = metrics != null ? System.nanoTime() - ownedSince : 0; /*Antes del release, luego ownedSince es del hilo despertado*/
+            boolean reserved = transitionQueues.reserve(nextTransition);
+            if(transitionQueues.getWaiters(nextTransition) == 0) {
+                publishWaiting(nextTransition, false); /*Antes del grant, luego el mutex es del hilo despertado*/
+            }
+            if(reserved) {
+                if(metrics != null) metrics.recordMutexHold(held);
+                transitionQueues.grant(nextTransition);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Calcula las transiciones con hilos esperando que están sensibilizadas en el marcado actual. Las temporizadas
+     *  se toman de la máscara de sensibilizadas, el resto se evalúa sobre los contadores.
+     *
+     * @return true si hay al menos una transición candidata
+     */
+    private boolean updateCandidates() {
+        long[] waitingMask = transitionQueues.getWaitingMask();
+        long any = 0;
+        for(int word = 0; word < candidates.length; word++) {
+            long found = waitingMask[word] & timed[word] & sensitized[word];
+            long untimed = waitingMask[word] & ~timed[word];
+            while(untimed != 0) {
+                int transition = (word << 6) + Long.numberOfTrailingZeros(untimed);
+                if(isEnabled(transition)) found |= 1L << transition;
+                untimed &= untimed - 1;
+            }
+            candidates[word] = found;
+            any |= found;
+        }
+        return any != 0;
+    }
+
+    private void publishWaiting(int transition) {
+        publishWaiting(transition, true);
+    }
+
+    /**
+     * Publica en la máscara atómica si la transición tiene hilos esperando. Sólo escribe el dueño del mutex,
+     *  por lo que alcanza con leer y escribir la palabra.
+     *
+     * @param transition transición
+     * @param waits true si tiene hilos esperando
+     */
+    private void publishWaiting(int transition, boolean waits) {
+        int word = transition >>> 6;
+        long current = waiting.get(word);
+        waiting.set(word, waits ? current | 1L << transition : current & ~(1L << transition));
+    }
+
+    private void entered(long since, boolean mutexWait) {
+        ownedSince = System.nanoTime();
+        if(mutexWait) {
+            metrics.recordMutexWait(ownedSince - since);
+        } else {
+            metrics.recordQueueWait(ownedSince - since);
+        }
+    }
+
+    private void leaving() {
+        if(metrics != null) metrics.recordMutexHold(System.nanoTime() - ownedSince);
+    }
+
+    /**
+     * Asigna las métricas del monitor y las propaga a las colas y, si ya está asignado, al vector de
+     *  sensibilizados. Debe llamarse antes de iniciar los hilos.
+     *
+     * @param metrics métricas del monitor
+     */
+    @Override
+    public void setMetrics(MonitorMetrics metrics) {
+        this.metrics = metrics;
+        transitionQueues.setMetrics(metrics);
+        SensitizedVector vector = petriNet.getSensitizedVector();
+        if(vector != null) vector.setMetrics(metrics);
+    }
+
+    /**
+     * Retorna las transiciones que toman sus tokens por la vía rápida. Se calculan en start.
+     *
+     * @return transiciones de la vía rápida
+     */
+    public List<Integer> getFastPathTransitions() {
+        return BitMask.toList(fastPath);
+    }
+
+    /**
+     * Retorna las transiciones de la vía rápida que depositan con el mutex tomado, por afectar a alguna transición
+     *  temporizada. Se calculan en start.
+     *
+     * @return transiciones de la vía rápida con depósito bajo el mutex
+     */
+    public List<Integer> getLockedCommitTransitions() {
+        return BitMask.toList(lockedCommit);
+    }
+
+    /**
+     * Retorna la RdP asociada al monitor.
+     * @return instancia de PetriNet del monitor
+     */
+    public PetriNet getPetriNet() {
+        return petriNet;
+    }
+}
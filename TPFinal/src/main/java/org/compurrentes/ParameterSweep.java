@@ -0,0 +1,345 @@
+package org.compurrentes;
+
+import org.compurrentes.analysis.InvariantCalculator;
+import org.compurrentes.beans.ExpiryPolicy;
+import org.compurrentes.beans.NetDefinition;
+import org.compurrentes.beans.SensitizedVector;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Barrido de parámetros de la línea de producción: simula en tiempo virtual (ver Simulator) todas las combinaciones
+ *  de política, hilos por segmento, escala de las ventanas temporales y marcado inicial, cada una sobre su propia
+ *  instancia de la RdP, y las ordena por throughput por invariante. Las instancias no comparten estado mutable, por lo que se
+ *  ejecutan concurrentemente en un ForkJoinPool, una simulación de un solo hilo por tarea.
+ *  El throughput de cada camino de producción es la cantidad de T-invariantes completos por segundo simulado.
+ *  Las configuraciones se ordenan por el throughput del camino más lento (el cuello de botella), de mayor a
+ *  menor, y a igual cuello de botella por el throughput total: una configuración que casi no produce alguno de los
+ *  productos queda detrás de otra más pareja aunque complete más invariantes en total.
+ *  Los resultados se escriben en CSV en ese orden, con el throughput del camino más lento en la columna min_per_s.
+ *  Las listas de valores se separan con ';' y se configuran con propiedades del sistema:
+ *  <ul>
+ *      <li>{@code -Dsweep.policies=equitable;weighted:2,1,1}: políticas (ver Politics).</li>
+ *      <li>{@code -Dsweep.threads=2,4,4,1,4;4,8,8,2,8}: hilos de los segmentos A a E.</li>
+ *      <li>{@code -Dsweep.alpha=0.5;1;2}: factor aplicado al alpha y al beta de las transiciones temporizadas.</li>
+ *      <li>{@code -Dsweep.marking=P11=4,P12=2;P13=5}: cambios al marcado inicial (vacío = el de la red).</li>
+ *      <li>{@code -Dsweep.time=600}: segundos simulados por combinación.</li>
+ *      <li>{@code -Dsweep.parallelism=8}: hilos del ForkJoinPool (por defecto, los procesadores disponibles).</li>
+ *  </ul>
+ */
+public class ParameterSweep {
+
+    private static final String SEPARATOR = ";";
+
+    private final NetDefinition net;
+    private final List<List<Integer>> piecesTransitions;
+    private final ExpiryPolicy expiryPolicy;
+
+    /**
+     * Constructor de la clase. Los caminos de producción se obtienen de los T-invariantes de la RdP.
+     *
+     * @param net definición de la RdP
+     * @param expiryPolicy tratamiento de las ventanas vencidas
+     */
+    public ParameterSweep(NetDefinition net, ExpiryPolicy expiryPolicy) {
+        this.net = net;
+        this.expiryPolicy = expiryPolicy;
+        piecesTransitions = InvariantCalculator.firingSequences(
+                new IncidenceMatrix(net.getPre(), net.getPost(), net.getCapacities()), net.getInitialMarking());
+    }
+
+    /**
+     * Genera todas las combinaciones de los valores indicados.
+     *
+     * @param policies especificaciones de política
+     * @param threads hilos de cada segmento
+     * @param alphaScales factores de las ventanas temporales
+     * @param markings cambios al marcado inicial, como "P11=4,P12=2" (vacío = sin cambios)
+     * @return configuraciones
+     */
+    public static List<Configuration> combine(List<String> policies, List<int[]> threads, List<Double> alphaScales,
+                                              List<String> markings) {
+        List<Configuration> configurations = new ArrayList<>();
+        for(String policy : policies) {
+            for(int[] segmentThreads : threads) {
+                for(double alphaScale : alphaScales) {
+                    for(String marking : markings) {
+                        configurations.add(new Configuration(policy, segmentThreads, alphaScale, marking));
+                    }
+                }
+            }
+        }
+        return configurations;
+    }
+
+    /**
+     * Simula todas las configuraciones concurrentemente.
+     *
+     * @param configurations configuraciones a simular
+     * @param time segundos simulados por configuración
+     * @param parallelism hilos del ForkJoinPool
+     * @return resultados ordenados del mayor al menor throughput del camino más lento, y luego total
+     * @throws InterruptedException si el hilo es interrumpido mientras espera los resultados
+     * @throws IllegalArgumentException si alguna configuración es inválida
+     */
+    public List<Result> run(List<Configuration> configurations, long time, int parallelism)
+            throws InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<Callable<Result>> tasks = configurations.stream()
+                    .map(configuration -> (Callable<Result>) () -> simulate(configuration, time))
+                    .collect(Collectors.toList());
+            List<Result> results = new ArrayList<>();
+            for(Future<Result> future : pool.invokeAll(tasks)) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    if(e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            results.sort(Comparator.comparingDouble(Result::getMinThroughput)
+                    .thenComparingDouble(Result::getTotalThroughput).reversed());
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Simula una configuración sobre una instancia propia de la RdP, del proceso modelado y de los segmentos.
+     *
+     * @param configuration configuración a simular
+     * @param time segundos simulados
+     * @return resultado de la simulación
+     */
+    public Result simulate(Configuration configuration, long time) {
+        long started = System.nanoTime();
+        NetDefinition instance = configuration.apply(net);
+        PetriNet petriNet = new PetriNet(instance);
+        ModelledProcess modelledProcess = new ModelledProcess(petriNet, piecesTransitions, configuration.policy);
+        Simulator simulator = new Simulator(Main.createSegments(configuration.threads), modelledProcess);
+        petriNet.setSensitizedVector(simulator.createSensitizedVector(instance.getAlpha(), instance.getBeta(),
+                expiryPolicy));
+        InvariantVerifier verifier = new InvariantVerifier(piecesTransitions, petriNet.getTotalTransitions());
+        simulator.setFiringListener(verifier);
+        simulator.run(TimeUnit.SECONDS.toNanos(time));
+        long[] completed = new long[piecesTransitions.size()];
+        for(int invariant = 0; invariant < completed.length; invariant++) {
+            completed[invariant] = verifier.getCompleted(invariant);
+        }
+        long firings = 0;
+        for(int transition = 0; transition < petriNet.getTotalTransitions(); transition++) {
+            firings += modelledProcess.getTransitionActionCounter().get(transition);
+        }
+        return new Result(configuration, time, completed, firings, System.nanoTime() - started);
+    }
+
+    /**
+     * Escribe los resultados en CSV, una fila por configuración en el orden recibido.
+     *
+     * @param results resultados del barrido
+     * @param file archivo de destino (se sobrescribe)
+     * @throws IOException si no se puede escribir el archivo
+     */
+    public void writeCsv(List<Result> results, Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            StringBuilder header = new StringBuilder("rank,policy,threads,alpha_scale,marking");
+            for(List<Integer> path : piecesTransitions) {
+                header.append(",").append(path.stream().map(t -> "T" + (t + 1)).collect(Collectors.joining("-")))
+                        .append("_per_s");
+            }
+            writer.write(header.append(",min_per_s,total_per_s,firings,wall_ms").toString());
+            writer.newLine();
+            for(int rank = 0; rank < results.size(); rank++) {
+                Result result = results.get(rank);
+                Configuration configuration = result.configuration;
+                StringBuilder row = new StringBuilder(String.format("%d,\"%s\",%s,%s,\"%s\"", rank + 1,
+                        configuration.policy, Arrays.stream(configuration.threads).mapToObj(String::valueOf)
+                                .collect(Collectors.joining(":")), configuration.alphaScale, configuration.marking));
+                for(int invariant = 0; invariant < piecesTransitions.size(); invariant++) {
+                    row.append(String.format(",%.3f", result.getThroughput(invariant)));
+                }
+                row.append(String.format(",%.3f,%.3f,%d,%d", result.getMinThroughput(), result.getTotalThroughput(),
+                        result.firings, TimeUnit.NANOSECONDS.toMillis(result.wallTime)));
+                writer.write(row.toString());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Combinación de parámetros de una instancia de la línea de producción.
+     */
+    public static class Configuration {
+
+        private final String policy;
+        private final int[] threads;
+        private final double alphaScale;
+        private final String marking;
+
+        /**
+         * Constructor de la clase.
+         *
+         * @param policy especificación de la política (ver Politics)
+         * @param threads hilos de cada segmento
+         * @param alphaScale factor de las ventanas temporales
+         * @param marking cambios al marcado inicial, como "P11=4,P12=2" (vacío = sin cambios)
+         */
+        public Configuration(String policy, int[] threads, double alphaScale, String marking) {
+            this.policy = policy;
+            this.threads = threads.clone();
+            this.alphaScale = alphaScale;
+            this.marking = marking;
+        }
+
+        /**
+         * Crea la definición de la RdP con el marcado inicial y las ventanas de esta configuración.
+         *
+         * @param net definición original
+         * @return definición modificada
+         * @throws IllegalArgumentException si el cambio de marcado nombra una plaza inexistente o es inválido
+         */
+        private NetDefinition apply(NetDefinition net) {
+            int[] initialMarking = net.getInitialMarking().clone();
+            for(String change : marking.split(",")) {
+                if(change.trim().isEmpty()) continue;
+                String[] parts = change.split("=");
+                int place = net.getPlaceNames().indexOf(parts[0].trim());
+                if(parts.length != 2 || place < 0) {
+                    throw new IllegalArgumentException("Invalid marking change: " + change);
+                }
+                initialMarking[place] = Integer.parseInt(parts[1].trim());
+            }
+            long[] alpha = net.getAlpha().clone();
+            long[] beta = net.getBeta().clone();
+            for(int transition = 0; transition < alpha.length; transition++) {
+                alpha[transition] = Math.round(alpha[transition] * alphaScale);
+                if(beta[transition] != SensitizedVector.UNBOUNDED) {
+                    beta[transition] = Math.round(beta[transition] * alphaScale);
+                }
+            }
+            return new NetDefinition(net.getPlaceNames(), net.getTransitionNames(), net.getPre(), net.getPost(),
+                    initialMarking, net.getCapacities(), alpha, beta);
+        }
+    }
+
+    /**
+     * Resultado de la simulación de una configuración.
+     */
+    public static class Result {
+
+        private final Configuration configuration;
+        private final long time;
+        private final long[] completed;
+        private final long firings;
+        private final long wallTime;
+
+        private Result(Configuration configuration, long time, long[] completed, long firings, long wallTime) {
+            this.configuration = configuration;
+            this.time = time;
+            this.completed = completed;
+            this.firings = firings;
+            this.wallTime = wallTime;
+        }
+
+        /**
+         * Retorna los T-invariantes completos por segundo simulado de un camino de producción.
+         *
+         * @param invariant índice del camino de producción
+         * @return throughput del camino
+         */
+        public double getThroughput(int invariant) {
+            return (double) completed[invariant] / time;
+        }
+
+        /**
+         * Retorna el throughput del camino de producción más lento, que limita a la línea.
+         *
+         * @return menor throughput por camino
+         */
+        public double getMinThroughput() {
+            return (double) Arrays.stream(completed).min().orElse(0) / time;
+        }
+
+        /**
+         * Retorna los T-invariantes completos por segundo simulado, sumando todos los caminos.
+         *
+         * @return throughput total
+         */
+        public double getTotalThroughput() {
+            return (double) Arrays.stream(completed).sum() / time;
+        }
+
+        /**
+         * Retorna la configuración simulada.
+         *
+         * @return configuration
+         */
+        public Configuration getConfiguration() {
+            return configuration;
+        }
+    }
+
+    /**
+     * Ejecuta el barrido configurado con propiedades del sistema y escribe el CSV.
+     *
+     * @param args archivo CSV de destino (por defecto sweep.csv)
+     * @throws IOException si no se puede leer la RdP o escribir el CSV
+     * @throws InterruptedException si el hilo es interrumpido
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if(args.length > 1) {
+            System.out.println("Usage: ParameterSweep [results.csv] (see -Dsweep.* properties)");
+            return;
+        }
+        NetDefinition net = PnmlLoader.load(Paths.get(System.getProperty("net", "../PetriNetPipe.xml")));
+        List<String> policies = list("sweep.policies", "equitable");
+        List<int[]> threads = list("sweep.threads", Arrays.stream(Main.SEGMENT_THREADS).mapToObj(String::valueOf)
+                .collect(Collectors.joining(","))).stream()
+                .map(value -> Arrays.stream(value.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray())
+                .collect(Collectors.toList());
+        List<Double> alphaScales = list("sweep.alpha", "1").stream().map(Double::parseDouble)
+                .collect(Collectors.toList());
+        List<String> markings = list("sweep.marking", "");
+        long time = Long.getLong("sweep.time", 600);
+        int parallelism = Integer.getInteger("sweep.parallelism", Runtime.getRuntime().availableProcessors());
+        ExpiryPolicy expiry = ExpiryPolicy.valueOf(System.getProperty("expiry", ExpiryPolicy.RESET.name()));
+
+        ParameterSweep sweep = new ParameterSweep(net, expiry);
+        List<Configuration> configurations = combine(policies, threads, alphaScales, markings);
+        long started = System.nanoTime();
+        List<Result> results = sweep.run(configurations, time, parallelism);
+        Path file = Paths.get(args.length > 0 ? args[0] : "sweep.csv");
+        sweep.writeCsv(results, file);
+        System.out.printf("Simulated %d configurations x %ds in %.1fs on %d threads, results in %s%n",
+                configurations.size(), time, (System.nanoTime() - started) / 1e9, parallelism, file);
+        for(Result result : results.subList(0, Math.min(5, results.size()))) {
+            Configuration configuration = result.configuration;
+            System.out.printf("  %.2f invariants/s on the slowest path, %.2f in total  policy=%s threads=%s alpha=%s "
+                    + "marking=%s%n", result.getMinThroughput(), result.getTotalThroughput(), configuration.policy, Arrays.toString(configuration.threads),
+                    configuration.alphaScale, configuration.marking.isEmpty() ? "initial" : configuration.marking);
+        }
+    }
+
+    private static List<String> list(String property, String defaultValue) {
+        return Arrays.stream(System.getProperty(property, defaultValue).split(SEPARATOR, -1))
+                .map(String::trim)
+                .collect(Collectors.toList());
+    }
+}
@@ -1,12 +1,10 @@
 package org.compurrentes;
 
 import org.apache.commons.math.linear.MatrixUtils;
-import org.apache.commons.math.linear.RealMatrix;
 import org.apache.commons.math.linear.RealVector;
-import org.apache.log4j.Logger;
+import org.compurrentes.beans.NetDefinition;
 import org.compurrentes.beans.SensitizedVector;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -15,10 +13,14 @@ import java.util.List;
  */
 public class PetriNet {
 
-    private static final Logger LOG = Logger.getLogger(PetriNet.class);
-    private final RealMatrix fluxMatrix;
-    private RealVector tokens;
+    private final IncidenceMatrix incidenceMatrix;
+    private final int[] tokens; /*Vector de marcado, se actualiza en el lugar*/
+    private final long[] sensitized; /*Máscara de transiciones sensibilizadas por tokens*/
+    private final long[] previousSensitized; /*Copia de la máscara previa al último disparo*/
     private SensitizedVector sensitizedVector;
+    private FiringLog firingLog; /*Registro de disparos, opcional*/
+    private PlaceInvariantChecker invariantChecker; /*Verificación de P-invariantes, opcional (depuración)*/
+    private TraceRecorder traceRecorder; /*Grabación de la secuencia de disparos, opcional*/
 
     /**
      * Constructor de la clase.
@@ -27,30 +29,35 @@ public class PetriNet {
      * @param initialTokens marcado inicial de la RdP
      */
     public PetriNet(double[][] fluxMatrixData, double[] initialTokens) {
-        fluxMatrix = MatrixUtils.createRealMatrix(fluxMatrixData);
-        tokens = MatrixUtils.createRealVector(initialTokens);
+        this(new IncidenceMatrix(fluxMatrixData), Arrays.stream(initialTokens).mapToInt(token -> (int) token).toArray());
     }
 
     /**
-     * Este método retorna un vector que representa a la transición pasada como parámetro. El vector
-     *  contiene todos ceros y un uno en la posición correspondiente a la transición. El tamaño del vector se calcula
-     *  en función de la cantidad total de transiciones (cantidad de columnas de la matriz).
-     * @param i transición a representar
-     * @return transitionData
+     * Constructor de la clase a partir de la definición de la RdP cargada desde un archivo (ver PnmlLoader).
+     *  Las capacidades de las plazas se tienen en cuenta en el sensibilizado.
+     *
+     * @param net definición de la RdP
      */
-    private RealVector getTransition(int i) {
-        double[] transitionData = new double[getTotalTransitions()];
-        Arrays.fill(transitionData, 0);
-        transitionData[i] = 1;
-        return MatrixUtils.createRealVector(transitionData);
+    public PetriNet(NetDefinition net) {
+        this(new IncidenceMatrix(net.getPre(), net.getPost(), net.getCapacities()), net.getInitialMarking().clone());
+    }
+
+    private PetriNet(IncidenceMatrix incidenceMatrix, int[] tokens) {
+        this.incidenceMatrix = incidenceMatrix;
+        this.tokens = tokens;
+        sensitized = BitMask.create(getTotalTransitions());
+        previousSensitized = BitMask.create(getTotalTransitions());
+        for(int transition = 0; transition < getTotalTransitions(); transition++) {
+            updateSensitized(transition);
+        }
     }
 
     /**
      * Realiza el disparo de transiciones (en exclusión mutua, ya que se llama desde adentro del monitor).
-     *  Primero obtiene las transiciones sensibilizadas y actualiza el vector de sensibilizado. Luego utiliza un método
-     *  definido en dicho vector, para saber si la transición puede ser disparada o no.
+     *  Utiliza un método definido en el vector de sensibilizado para saber si la transición puede ser disparada o no.
      *  Si la transición a disparar está sensibilizada entonces la dispara, actualiza el vector de marcado con
-     *  la ecuación fundamental e imprime un mensaje en pantalla (también lo guarda en el log).
+     *  la ecuación fundamental (sólo sobre los arcos de la transición, sin generar objetos), reevalúa el sensibilizado
+     *  de las transiciones afectadas y anota el disparo en el registro de disparos.
      *  Finalmente, actualiza los tiempos relacionados con las transiciones.
      *
      * @param transition transición a disparar
@@ -58,37 +65,66 @@ public class PetriNet {
      * @return valor boolean de disparo
      */
     public boolean shoot(int transition, boolean finalShots) {
-        sensitizedVector.setSensibilities(getSensibilities()); /*Actualiza las transiciones sensibilizadas*/
-
         if(sensitizedVector.isSensitized(transition, finalShots)) { /*Transición sensibilizada, se dispara*/
-            tokens = tokens.add(fluxMatrix.operate(getTransition(transition))); /*Actualiza marcado*/
-            String message = String.format("%s. Shooter %s shot T%s", /*log*/
-                    System.nanoTime(), Thread.currentThread().getName(), (transition+1));
-            LOG.info(message);
-            sensitizedVector.updateTimeStamps(getSensibilities()); /*Actualiza timestamps*/
+            System.arraycopy(sensitized, 0, previousSensitized, 0, sensitized.length);
+            fire(transition); /*Actualiza marcado y sensibilizadas*/
+            if(invariantChecker != null) invariantChecker.check(tokens, transition); /*Depuración*/
+            if(firingLog != null) firingLog.append(sensitizedVector.now(), transition); /*log*/
+            if(traceRecorder != null) traceRecorder.recordFiring(transition); /*Traza*/
+            sensitizedVector.updateTimeStamps(previousSensitized, sensitized); /*Actualiza timestamps*/
             return true;
         } else { /*Transición no sensibilizada, no se dispara*/
             return false;
         }
     }
 
+    /**
+     * Dispara la transición sobre el vector de marcado y reevalúa el sensibilizado únicamente de las transiciones
+     *  que consumen de alguna plaza modificada por el disparo, por lo que el costo depende de la vecindad de la
+     *  transición y no del tamaño de la red.
+     *
+     * @param transition transición a disparar
+     */
+    private void fire(int transition) {
+        incidenceMatrix.fire(tokens, transition);
+        for(int affected : incidenceMatrix.getAffectedTransitions(transition)) {
+            updateSensitized(affected);
+        }
+    }
+
+    /**
+     * Evalúa si la transición está sensibilizada por tokens y actualiza su bit en la máscara de sensibilizadas.
+     *
+     * @param transition transición a evaluar
+     */
+    private void updateSensitized(int transition) {
+        if(incidenceMatrix.isEnabled(tokens, transition)) {
+            BitMask.set(sensitized, transition);
+        } else {
+            BitMask.clear(sensitized, transition);
+        }
+    }
+
     /**
      * Este método retorna una lista con todas las transiciones sensibilizadas al momento de la
-     *  llamada al método. Para verificar si una transición está sensibilizada, verifica que la secuencia de disparo
-     *  de dicha transición (vector con todos ceros y un uno en la transición, generado con el método getTransition)
-     *  sea una secuencia válida. Utiliza la ecuación fundamental y comprueba que no haya tokens menores a cero.
+     *  llamada al método. Una transición está sensibilizada si cada una de sus plazas de entrada tiene al menos
+     *  tantos tokens como el peso del arco (equivalente a que la ecuación fundamental no deje tokens negativos).
+     *  Se construye a partir de la máscara de sensibilizadas, sin reevaluar la red.
      *
      * @return sensibilities
      */
     public List<Integer> getSensibilities() {
-        List<Integer> sensibilities = new ArrayList<>();
-        for(int transition = 0; transition < getTotalTransitions(); transition++) {
-            RealVector nextTokens = tokens.add(fluxMatrix.operate(getTransition(transition)));
-            if(!Arrays.stream(nextTokens.getData()).filter(val -> val < 0).findAny().isPresent()) {
-                sensibilities.add(transition);
-            }
-        }
-        return sensibilities;
+        return BitMask.toList(sensitized);
+    }
+
+    /**
+     * Retorna la máscara de transiciones sensibilizadas por tokens. La máscara se actualiza en cada disparo,
+     *  por lo que sólo debe leerse dentro del monitor y no debe modificarse.
+     *
+     * @return sensitized
+     */
+    public long[] getSensitizedMask() {
+        return sensitized;
     }
 
     /**
@@ -98,7 +134,16 @@ public class PetriNet {
      * @return totalTransitions
      */
     public int getTotalTransitions() {
-        return fluxMatrix.getColumnDimension();
+        return incidenceMatrix.getTotalTransitions();
+    }
+
+    /**
+     * Retorna la matriz de incidencia de la RdP.
+     *
+     * @return incidenceMatrix
+     */
+    public IncidenceMatrix getIncidenceMatrix() {
+        return incidenceMatrix;
     }
 
     /**
@@ -107,13 +152,82 @@ public class PetriNet {
      */
     public void setSensitizedVector(SensitizedVector sensitizedVector) {
         this.sensitizedVector = sensitizedVector;
+        sensitizedVector.setSensibilities(sensitized);
     }
 
     /**
-     * Retorna el vector de marcado de la red.
+     * Proporciona a la red el registro en el que se anotan los disparos.
+     * @param firingLog registro de disparos
+     */
+    public void setFiringLog(FiringLog firingLog) {
+        this.firingLog = firingLog;
+    }
+
+    /**
+     * Retorna el registro en el que se anotan los disparos.
+     * @return registro de disparos, null si no hay
+     */
+    public FiringLog getFiringLog() {
+        return firingLog;
+    }
+
+    /**
+     * Proporciona a la red el verificador de P-invariantes que se ejecuta después de cada disparo y al reemplazar
+     *  el marcado. Es un modo de depuración: agrega el recálculo de los invariantes afectados a cada disparo.
+     *  Los monitores optimista y particionado disparan sobre su propio marcado y sólo lo copian a la red al
+     *  cerrarse, por lo que con ellos la verificación se realiza una única vez, sobre el marcado final.
+     * @param invariantChecker verificador de P-invariantes, null para desactivarlo
+     */
+    public void setInvariantChecker(PlaceInvariantChecker invariantChecker) {
+        this.invariantChecker = invariantChecker;
+    }
+
+    /**
+     * Proporciona a la red el grabador de trazas en el que se registra cada disparo. Los disparos deben ser en
+     *  exclusión mutua, por lo que sólo se admite con el monitor serializado o la simulación.
+     * @param traceRecorder grabador de trazas, null para desactivarlo
+     */
+    public void setTraceRecorder(TraceRecorder traceRecorder) {
+        this.traceRecorder = traceRecorder;
+    }
+
+    /**
+     * Retorna el vector de sensibilizados asociado a la red.
+     * @return vector de sensibilizados
+     */
+    public SensitizedVector getSensitizedVector() {
+        return sensitizedVector;
+    }
+
+    /**
+     * Retorna una copia del vector de marcado de la red como RealVector. Se mantiene por compatibilidad,
+     *  ya que genera un objeto nuevo en cada llamada no debe usarse dentro del monitor.
      * @return vector de marcado de la red
      */
     public RealVector getTokens() {
-        return tokens;
+        return MatrixUtils.createRealVector(Arrays.stream(tokens).asDoubleStream().toArray());
+    }
+
+    /**
+     * Reemplaza el marcado de la red y reevalúa el sensibilizado de todas las transiciones. Lo usa un monitor
+     *  que mantiene el marcado por fuera de la red al cerrarse, sin hilos en ejecución. Si hay un verificador de
+     *  P-invariantes, el marcado nuevo se verifica completo.
+     * @param marking marcado nuevo
+     * @throws IllegalStateException si el marcado nuevo viola algún P-invariante
+     */
+    public void setMarking(int[] marking) {
+        if(invariantChecker != null) invariantChecker.checkAll(marking);
+        System.arraycopy(marking, 0, tokens, 0, tokens.length);
+        for(int transition = 0; transition < getTotalTransitions(); transition++) {
+            updateSensitized(transition);
+        }
+    }
+
+    /**
+     * Retorna una copia del vector de marcado de la red.
+     * @return vector de marcado de la red
+     */
+    public int[] getMarking() {
+        return tokens.clone();
     }
 }
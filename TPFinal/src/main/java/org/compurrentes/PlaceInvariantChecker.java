@@ -0,0 +1,121 @@
+package org.compurrentes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Verificación en tiempo de ejecución de los P-invariantes de la RdP (modo de depuración, -Dinvariants.check=true).
+ *  Cada P-invariante fija el valor de la suma ponderada de tokens de sus plazas, calculado con el marcado inicial.
+ *  Después de cada disparo sólo se recalculan los invariantes que contienen alguna plaza de la transición, sobre los
+ *  pesos no nulos, por lo que el costo depende de la vecindad de la transición y no del tamaño de la red.
+ *  Una violación indica un marcado corrupto (por ejemplo, por un disparo sin exclusión mutua) y lanza
+ *  IllegalStateException.
+ */
+public class PlaceInvariantChecker {
+
+    private final int[][] places; /*Plazas con peso no nulo de cada invariante*/
+    private final int[][] weights; /*Pesos de esas plazas*/
+    private final long[] constants; /*Suma ponderada que conserva cada invariante*/
+    private final int[][] affected; /*Invariantes que contienen alguna plaza de cada transición*/
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param incidenceMatrix matriz de incidencia de la RdP
+     * @param invariants P-invariantes, con un peso por plaza (ver InvariantCalculator)
+     * @param initialMarking marcado inicial, que fija el valor de cada invariante
+     */
+    public PlaceInvariantChecker(IncidenceMatrix incidenceMatrix, List<int[]> invariants, int[] initialMarking) {
+        places = new int[invariants.size()][];
+        weights = new int[invariants.size()][];
+        constants = new long[invariants.size()];
+        for(int invariant = 0; invariant < invariants.size(); invariant++) {
+            int[] vector = invariants.get(invariant);
+            places[invariant] = new int[(int) Arrays.stream(vector).filter(weight -> weight != 0).count()];
+            weights[invariant] = new int[places[invariant].length];
+            for(int place = 0, i = 0; place < vector.length; place++) {
+                if(vector[place] == 0) continue;
+                places[invariant][i] = place;
+                weights[invariant][i++] = vector[place];
+            }
+            constants[invariant] = sum(initialMarking, invariant);
+        }
+        affected = new int[incidenceMatrix.getTotalTransitions()][];
+        for(int transition = 0; transition < affected.length; transition++) {
+            long[] touched = BitMask.create(incidenceMatrix.getTotalPlaces());
+            for(int place : incidenceMatrix.getInputPlaces(transition)) BitMask.set(touched, place);
+            for(int place : incidenceMatrix.getOutputPlaces(transition)) BitMask.set(touched, place);
+            List<Integer> list = new ArrayList<>();
+            for(int invariant = 0; invariant < places.length; invariant++) {
+                for(int place : places[invariant]) {
+                    if(BitMask.isSet(touched, place)) {
+                        list.add(invariant);
+                        break;
+                    }
+                }
+            }
+            affected[transition] = list.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Verifica los invariantes que pueden haber cambiado por el disparo de la transición.
+     *
+     * @param marking marcado posterior al disparo
+     * @param transition transición disparada
+     * @throws IllegalStateException si algún invariante no se conserva
+     */
+    public void check(int[] marking, int transition) {
+        for(int invariant : affected[transition]) {
+            long sum = sum(marking, invariant);
+            if(sum != constants[invariant]) {
+                throw new IllegalStateException(String.format("P-invariant %s violated after firing T%d: %d instead of %d",
+                        describe(invariant), transition + 1, sum, constants[invariant]));
+            }
+        }
+    }
+
+    /**
+     * Verifica todos los invariantes sobre un marcado.
+     *
+     * @param marking marcado a verificar
+     * @throws IllegalStateException si algún invariante no se conserva
+     */
+    public void checkAll(int[] marking) {
+        for(int invariant = 0; invariant < places.length; invariant++) {
+            long sum = sum(marking, invariant);
+            if(sum != constants[invariant]) {
+                throw new IllegalStateException(String.format("P-invariant %s violated: %d instead of %d",
+                        describe(invariant), sum, constants[invariant]));
+            }
+        }
+    }
+
+    /**
+     * Retorna la cantidad de invariantes verificados.
+     *
+     * @return cantidad de P-invariantes
+     */
+    public int getInvariantCount() {
+        return places.length;
+    }
+
+    private long sum(int[] marking, int invariant) {
+        long sum = 0;
+        for(int i = 0; i < places[invariant].length; i++) {
+            sum += (long) weights[invariant][i] * marking[places[invariant][i]];
+        }
+        return sum;
+    }
+
+    private String describe(int invariant) {
+        StringBuilder text = new StringBuilder();
+        for(int i = 0; i < places[invariant].length; i++) {
+            if(i > 0) text.append(" + ");
+            if(weights[invariant][i] != 1) text.append(weights[invariant][i]).append('*');
+            text.append('P').append(places[invariant][i] + 1);
+        }
+        return text.toString();
+    }
+}
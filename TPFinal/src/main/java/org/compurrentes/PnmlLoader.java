@@ -0,0 +1,266 @@
+package org.compurrentes;
+
+import org.compurrentes.beans.NetDefinition;
+import org.compurrentes.beans.SensitizedVector;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cargador de RdP en formato PNML (el que genera PIPE, ver PetriNetPipe.xml). Recorre el documento una sola vez
+ *  con un lector StAX, sin construir el árbol DOM, y sólo retiene plazas, transiciones y arcos: la información
+ *  gráfica se descarta a medida que se lee.
+ *  De cada plaza se leen el marcado inicial y la capacidad (0 = sin límite), y de cada arco el peso y su
+ *  sentido. Las ventanas temporales no forman parte de PNML, por lo que se leen de los elementos opcionales
+ *  {@code <alpha>} y {@code <beta>} de cada transición, en milisegundos (sin beta la ventana no tiene límite
+ *  superior y sin alpha la transición no es temporizada).
+ *  PIPE guarda los nodos en orden lexicográfico (P1, P10, P11, ..., P2), por lo que los índices se asignan
+ *  ordenando los identificadores por su sufijo numérico.
+ */
+public final class PnmlLoader {
+
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private PnmlLoader() {
+    }
+
+    /**
+     * Carga la RdP definida en un archivo PNML.
+     *
+     * @param file archivo PNML
+     * @return definición de la RdP
+     * @throws IOException si no se puede leer el archivo o no es un documento XML válido
+     * @throws IllegalArgumentException si la red está mal definida
+     */
+    public static NetDefinition load(Path file) throws IOException {
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(file))) {
+            return load(input);
+        }
+    }
+
+    /**
+     * Carga la RdP definida en un documento PNML. La codificación se toma de la declaración del documento.
+     *
+     * @param input documento PNML
+     * @return definición de la RdP
+     * @throws IOException si no se puede leer el documento o no es XML válido
+     * @throws IllegalArgumentException si la red está mal definida
+     */
+    public static NetDefinition load(InputStream input) throws IOException {
+        Parser parser = new Parser();
+        try {
+            XMLStreamReader reader = FACTORY.createXMLStreamReader(input);
+            try {
+                parser.parse(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid PNML document: " + e.getMessage(), e);
+        }
+        return parser.build();
+    }
+
+    /**
+     * Compara identificadores por su prefijo y luego por el valor de su sufijo numérico, de modo que P2 < P10.
+     */
+    static final Comparator<String> NATURAL_ORDER = (first, second) -> {
+        int firstDigits = suffixStart(first);
+        int secondDigits = suffixStart(second);
+        int prefix = first.substring(0, firstDigits).compareTo(second.substring(0, secondDigits));
+        if(prefix != 0) return prefix;
+        String firstNumber = first.substring(firstDigits).replaceFirst("^0+(?=.)", "");
+        String secondNumber = second.substring(secondDigits).replaceFirst("^0+(?=.)", "");
+        if(firstNumber.length() != secondNumber.length()) return firstNumber.length() - secondNumber.length();
+        int number = firstNumber.compareTo(secondNumber);
+        return number != 0 ? number : first.compareTo(second);
+    };
+
+    private static int suffixStart(String id) {
+        int index = id.length();
+        while(index > 0 && Character.isDigit(id.charAt(index - 1))) index--;
+        return index;
+    }
+
+    /**
+     * Estado del recorrido del documento. Los nodos se acumulan por identificador y los arcos se resuelven al
+     *  final, por lo que el orden de los elementos en el documento no importa.
+     */
+    private static class Parser {
+
+        private final Map<String, Integer> markings = new HashMap<>();
+        private final Map<String, Integer> capacities = new HashMap<>();
+        private final Map<String, Long> alphas = new HashMap<>();
+        private final Map<String, Long> betas = new HashMap<>();
+        private final List<String[]> arcs = new ArrayList<>(); /*Origen y destino de cada arco*/
+        private final List<Integer> arcWeights = new ArrayList<>();
+
+        private String element; /*place, transition o arc en curso*/
+        private String id;
+        private String property; /*Hijo directo del nodo en curso*/
+        private int depth = 0; /*Profundidad relativa al nodo en curso*/
+        private String[] arc;
+        private int arcWeight;
+
+        private void parse(XMLStreamReader reader) throws XMLStreamException {
+            while(reader.hasNext()) {
+                int event = reader.next();
+                if(event == XMLStreamConstants.START_ELEMENT) {
+                    startElement(reader);
+                } else if(event == XMLStreamConstants.END_ELEMENT) {
+                    endElement();
+                }
+            }
+        }
+
+        private void startElement(XMLStreamReader reader) throws XMLStreamException {
+            String name = reader.getLocalName();
+            if(element == null) {
+                if(name.equals("place") || name.equals("transition") || name.equals("arc")) {
+                    element = name;
+                    id = attribute(reader, "id");
+                    depth = 0;
+                    if(name.equals("place")) {
+                        markings.put(id, 0);
+                    } else if(name.equals("transition")) {
+                        alphas.put(id, 0L);
+                    } else {
+                        arc = new String[]{attribute(reader, "source"), attribute(reader, "target")};
+                        arcWeight = 1;
+                    }
+                }
+                return;
+            }
+            depth++;
+            if(depth == 1) {
+                property = name;
+                if(element.equals("arc") && name.equals("type")) {
+                    String type = reader.getAttributeValue(null, "value");
+                    if(type != null && !type.equals("normal")) {
+                        throw new IllegalArgumentException(String.format("Unsupported %s arc %s", type, id));
+                    }
+                }
+            } else if(depth == 2 && name.equals("value")) {
+                readValue(reader.getElementText().trim());
+                depth--; /*getElementText consume el cierre del elemento*/
+            }
+        }
+
+        private void endElement() {
+            if(element == null) return;
+            if(depth == 0) {
+                if(element.equals("arc")) {
+                    arcs.add(arc);
+                    arcWeights.add(arcWeight);
+                }
+                element = null;
+            }
+            depth--;
+        }
+
+        private void readValue(String value) {
+            switch(element + "." + property) {
+                case "place.initialMarking":
+                    markings.put(id, tokenCount(value));
+                    break;
+                case "place.capacity":
+                    capacities.put(id, Integer.parseInt(value));
+                    break;
+                case "arc.inscription":
+                    arcWeight = tokenCount(value);
+                    break;
+                case "transition.alpha":
+                    alphas.put(id, milliseconds(value));
+                    break;
+                case "transition.beta":
+                    betas.put(id, milliseconds(value));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private NetDefinition build() {
+            List<String> places = new ArrayList<>(markings.keySet());
+            List<String> transitions = new ArrayList<>(alphas.keySet());
+            places.sort(NATURAL_ORDER);
+            transitions.sort(NATURAL_ORDER);
+            Map<String, Integer> placeIndex = index(places);
+            Map<String, Integer> transitionIndex = index(transitions);
+
+            int[][] pre = new int[places.size()][transitions.size()];
+            int[][] post = new int[places.size()][transitions.size()];
+            for(int i = 0; i < arcs.size(); i++) {
+                String source = arcs.get(i)[0];
+                String target = arcs.get(i)[1];
+                if(placeIndex.containsKey(source) && transitionIndex.containsKey(target)) {
+                    pre[placeIndex.get(source)][transitionIndex.get(target)] += arcWeights.get(i);
+                } else if(transitionIndex.containsKey(source) && placeIndex.containsKey(target)) {
+                    post[placeIndex.get(target)][transitionIndex.get(source)] += arcWeights.get(i);
+                } else {
+                    throw new IllegalArgumentException(String.format("Arc from %s to %s does not join a place " +
+                            "and a transition", source, target));
+                }
+            }
+
+            int[] marking = places.stream().mapToInt(markings::get).toArray();
+            int[] capacity = places.stream().mapToInt(place -> capacities.getOrDefault(place, 0)).toArray();
+            long[] alpha = transitions.stream().mapToLong(alphas::get).toArray();
+            long[] beta = transitions.stream()
+                    .mapToLong(transition -> betas.getOrDefault(transition, SensitizedVector.UNBOUNDED))
+                    .toArray();
+            return new NetDefinition(places, transitions, pre, post, marking, capacity, alpha, beta);
+        }
+
+        private static Map<String, Integer> index(List<String> ids) {
+            Map<String, Integer> index = new HashMap<>();
+            for(int i = 0; i < ids.size(); i++) {
+                index.put(ids.get(i), i);
+            }
+            return index;
+        }
+
+        private static String attribute(XMLStreamReader reader, String name) {
+            String value = reader.getAttributeValue(null, name);
+            if(value == null) {
+                throw new IllegalArgumentException(String.format("Missing %s attribute in %s", name,
+                        reader.getLocalName()));
+            }
+            return value;
+        }
+
+        /*PIPE escribe cantidades de tokens como "clase,cantidad" (una o más clases); se suman todas las clases*/
+        private static int tokenCount(String value) {
+            String[] parts = value.split(",");
+            if(parts.length == 1) return Integer.parseInt(parts[0].trim());
+            int count = 0;
+            for(int i = 1; i < parts.length; i += 2) {
+                count += Integer.parseInt(parts[i].trim());
+            }
+            return count;
+        }
+
+        private static long milliseconds(String value) {
+            if(value.equalsIgnoreCase("inf")) return SensitizedVector.UNBOUNDED;
+            return (long) (Double.parseDouble(value) * TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+}
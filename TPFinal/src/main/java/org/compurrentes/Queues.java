@@ -1,19 +1,22 @@
 package org.compurrentes;
 
-import java.util.ArrayList;
+import org.compurrentes.metrics.MonitorMetrics;
+
 import java.util.List;
-import java.util.concurrent.Semaphore;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /**
  * Esta clase representa la cola de espera en la cual los hilos se estarán bloqueados a la espera
- *  de una señal que les indique que el recurso fue liberado y pueden disparar la transición. Esta cola tendrá un
- *  listado de colas que representan cada transición.
+ *  de una señal que les indique que el recurso fue liberado y pueden disparar la transición. Esta cola tendrá una
+ *  cola por transición (ver WaiterQueue), que entrega el mutex del monitor directamente al hilo despertado. Además
+ *  lleva una máscara de bits con las transiciones que tienen al menos un hilo esperando. Las colas y la máscara se
+ *  modifican siempre desde adentro del monitor (addWaiter y release), por lo que no requieren sincronización
+ *  adicional.
  */
 public class Queues {
 
-    private final List<TransitionQueue> transitionsSemaphoreList = new ArrayList<>();
+    private final WaiterQueue[] transitionQueues; /*Cola de hilos por transición*/
+    private final long[] waiting; /*Máscara de transiciones con hilos esperando*/
+    private MonitorMetrics metrics; /*Métricas del monitor, opcional*/
 
     /**
      * Constructor de la clase. Crea las listas de transiciones particulares.
@@ -21,44 +24,120 @@ public class Queues {
      * @param totalTransition número total de transiciones
      */
     public Queues(int totalTransition) {
-        /*Permits=0, para que siempre se bloquee al intentar hacer un acquire*/
-        IntStream.range(0, totalTransition)
-                .forEach(i -> transitionsSemaphoreList.add(new TransitionQueue(i, 0)));
+        transitionQueues = new WaiterQueue[totalTransition];
+        for(int transition = 0; transition < totalTransition; transition++) {
+            transitionQueues[transition] = new WaiterQueue();
+        }
+        waiting = BitMask.create(totalTransition);
     }
 
     /**
-     * Ejecuta el acquire de una lista de transiciones particular que es pasada como parámetro.
+     * Registra que el hilo actual va a esperar en la cola de la transición. Debe llamarse dentro del monitor,
+     *  antes de liberar el mutex y ejecutar el acquire, para que ningún disparo posterior pierda al hilo.
+     *
+     * @param transition cola en la que el hilo va a esperar
+     */
+    public void addWaiter(int transition) {
+        WaiterQueue queue = transitionQueues[transition];
+        queue.enqueue();
+        BitMask.set(waiting, transition);
+        if(metrics != null) metrics.setQueueDepth(transition, queue.size());
+    }
+
+    /**
+     * Bloquea al hilo actual, registrado con addWaiter, en la cola de la transición hasta que otro hilo le entregue
+     *  el mutex del monitor con release. Si el hilo es interrumpido antes, deja la cola sin tener el mutex.
      *
      * @param transition indica en que cola se debe colocar el hilo en espera
+     * @throws RuntimeException si el hilo es interrumpido mientras espera
      */
     public void acquire(int transition) {
         try {
-            transitionsSemaphoreList.get(transition).acquire();
+            transitionQueues[transition].await();
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
     }
 
     /**
-     * Ejecuta el release de una lista de transiciones particular que es pasada como parámetro.
+     * Despierta al primer hilo de la cola de la transición entregándole el mutex del monitor (se llama desde
+     *  adentro del monitor), como reserve seguido de grant. Si la cola sólo tenía hilos interrumpidos, los
+     *  descarta, no despierta a nadie y el llamador conserva el mutex.
      *
      * @param transition indica de que cola se debe despertar un hilo
+     * @return true si se despertó un hilo
      */
-    public void release(int transition) {
-        transitionsSemaphoreList.get(transition).release();
+    public boolean release(int transition) {
+        if(!reserve(transition)) return false;
+        grant(transition);
+        return true;
+    }
+
+    /**
+     * Saca de la cola de la transición al primer hilo que sigue esperando, sin despertarlo, y actualiza la máscara
+     *  y la profundidad publicada con los hilos que quedan. Se separa de grant porque, luego de la entrega, el
+     *  monitor pertenece al hilo despertado y la máscara ya no puede modificarse.
+     *
+     * @param transition transición
+     * @return true si se reservó un hilo, a despertar con grant
+     */
+    public boolean reserve(int transition) {
+        WaiterQueue queue = transitionQueues[transition];
+        boolean reserved = queue.reserve();
+        if(queue.size() == 0) {
+            BitMask.clear(waiting, transition);
+        }
+        if(metrics != null) metrics.setQueueDepth(transition, queue.size());
+        return reserved;
+    }
+
+    /**
+     * Entrega el mutex del monitor al hilo reservado de la transición y lo despierta.
+     *
+     * @param transition transición
+     */
+    public void grant(int transition) {
+        transitionQueues[transition].grant();
     }
 
     /**
      * Devuelve un listado con las transiciones que tienen hilos esperando por ella. Es decir
-     *  hilos que realizaron el acquire de la lista y fueron bloqueados.
+     *  hilos que se registraron en la cola y todavía no fueron despertados.
      *
      * @return waitingTransitions
      */
     public List<Integer> getWaitingTransitions() {
-        return transitionsSemaphoreList.stream()
-                .filter(Semaphore::hasQueuedThreads)
-                .map(TransitionQueue::getTransition)
-                .collect(Collectors.toList());
+        return BitMask.toList(waiting);
+    }
+
+    /**
+     * Retorna la máscara de transiciones con hilos esperando. Sólo debe leerse dentro del monitor
+     *  y no debe modificarse.
+     *
+     * @return waiting
+     */
+    public long[] getWaitingMask() {
+        return waiting;
+    }
+
+    /**
+     * Retorna la cantidad de hilos esperando por la transición, en O(1), sin contar los que dejaron la cola por
+     *  interrupción.
+     *
+     * @param transition transición consultada
+     * @return cantidad de hilos en espera
+     */
+    public int getWaiters(int transition) {
+        return transitionQueues[transition].size();
+    }
+
+    /**
+     * Asigna las métricas en las que se publica la profundidad de cada cola.
+     *
+     * @param metrics métricas del monitor
+     */
+    public void setMetrics(MonitorMetrics metrics) {
+        this.metrics = metrics;
     }
 
 }
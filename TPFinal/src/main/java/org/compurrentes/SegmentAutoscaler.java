@@ -0,0 +1,323 @@
+package org.compurrentes;
+
+import org.compurrentes.beans.Segment;
+import org.compurrentes.metrics.MonitorMetrics;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Controlador de la cantidad de hilos de cada segmento durante la ejecución. Cada período compara los disparos
+ *  por segundo de toda la línea y la cantidad media de hilos de cada segmento esperando en las colas del monitor
+ *  (muestreada SAMPLES veces por período), y prueba un cambio de a un hilo en un solo segmento, para poder
+ *  atribuirle la variación del período siguiente:
+ *  - si algún segmento tuvo en promedio al menos un hilo esperando, le quita un hilo (el de más hilos en espera);
+ *  - si no, le agrega un hilo a un segmento sin hilos esperando, es decir, con todos sus hilos ocupados.
+ *  Al período siguiente, el cambio se mantiene si la línea no perdió más de TOLERANCE de su rendimiento (al quitar)
+ *  o si lo mejoró en más de TOLERANCE (al agregar); si no, se revierte y ese cambio no se vuelve a probar en el
+ *  segmento por HOLD períodos, plazo que se duplica con cada reversión consecutiva. Así la cantidad de hilos
+ *  converge a la mínima que sostiene el rendimiento máximo, dentro de los límites de cada segmento, y vuelve a
+ *  explorarse de a poco si la carga cambia.
+ *  Para quitar un hilo se le pide al primer shooter del segmento que termine luego de su próxima tarea (ver
+ *  Shooter), por lo que no se pierde ninguna transición tomada del ciclo del segmento.
+ *  Cada decisión se escribe en la salida indicada con los valores que la motivaron, para poder auditarla.
+ */
+public class SegmentAutoscaler implements Runnable {
+
+    private static final int SAMPLES = 10; /*Muestras de las colas por período*/
+    private static final double TOLERANCE = 0.05; /*Variación relativa del rendimiento considerada ruido*/
+    private static final int HOLD = 5; /*Períodos sin repetir un cambio revertido*/
+    private static final int SHRINK = 0;
+    private static final int GROW = 1;
+
+    private final ShooterFactory shooterFactory;
+    private final Monitor monitor;
+    private final Segment[] segments;
+    private final ModelledProcess modelledProcess;
+    private final MonitorMetrics metrics;
+    private final int[] minThreads;
+    private final int[] maxThreads;
+    private final long periodMillis;
+    private final PrintStream log;
+    private final int[] threads; /*Hilos vigentes de cada segmento*/
+    private final int[] created; /*Hilos creados por segmento, para numerarlos*/
+    private final AtomicIntegerArray retirements; /*Retiros pedidos y no atendidos de cada segmento*/
+    private final List<Thread> shooters = new ArrayList<>(); /*Todos los shooters iniciados*/
+    private final long[][] holdUntil; /*Período a partir del cual se puede volver a probar cada cambio*/
+    private final int[][] holdLength; /*Plazo de la próxima reversión de cada cambio*/
+    private final List<String> decisions = new ArrayList<>();
+    private final Thread thread;
+    private long period; /*Períodos transcurridos*/
+    private long started;
+    private int trialSegment = -1; /*Segmento del cambio en prueba, -1 si no hay*/
+    private int trialStep;
+    private double trialBaseline; /*Rendimiento de la línea antes del cambio en prueba*/
+
+    /**
+     * Fábrica de los hilos de los shooters de un segmento.
+     */
+    public interface ShooterFactory {
+
+        /**
+         * Crea, sin iniciarlo, el hilo de un shooter del segmento.
+         *
+         * @param segment segmento del shooter
+         * @param index número del shooter dentro del segmento
+         * @param shooter shooter a ejecutar
+         * @return hilo del shooter
+         */
+        Thread newShooter(Segment segment, int index, Shooter shooter);
+    }
+
+    /**
+     * Constructor de la clase. Crea el hilo del controlador (daemon) sin iniciarlo.
+     *
+     * @param shooterFactory fábrica de los hilos de los shooters
+     * @param monitor monitor del sistema
+     * @param segments segmentos de la RdP, creados a partir de su ciclo; su cantidad de hilos es la inicial
+     * @param modelledProcess proceso modelado de la RdP
+     * @param metrics métricas del monitor, de las que se toma la profundidad de las colas
+     * @param minThreads mínimo de hilos de cada segmento (al menos 1)
+     * @param maxThreads máximo de hilos de cada segmento
+     * @param period período entre decisiones
+     * @param unit unidad del período
+     * @param log salida de las decisiones
+     * @throws IllegalArgumentException si los límites no corresponden a los segmentos o no son válidos
+     */
+    public SegmentAutoscaler(ShooterFactory shooterFactory, Monitor monitor, Segment[] segments,
+                             ModelledProcess modelledProcess, MonitorMetrics metrics, int[] minThreads,
+                             int[] maxThreads, long period, TimeUnit unit, PrintStream log) {
+        if(minThreads.length != segments.length || maxThreads.length != segments.length) {
+            throw new IllegalArgumentException(String.format("Expected bounds for %d segments", segments.length));
+        }
+        if(period <= 0) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+        threads = new int[segments.length];
+        for(int segment = 0; segment < segments.length; segment++) {
+            if(segments[segment].getCycle() == null) {
+                throw new IllegalArgumentException("Autoscaling requires segments created from a cycle: "
+                        + segments[segment]);
+            }
+            if(minThreads[segment] < 1 || maxThreads[segment] < minThreads[segment]) {
+                throw new IllegalArgumentException(String.format("Invalid bounds %d-%d for segment %s",
+                        minThreads[segment], maxThreads[segment], segments[segment]));
+            }
+            threads[segment] = Math.max(minThreads[segment],
+                    Math.min(maxThreads[segment], segments[segment].getThreadNumber()));
+        }
+        this.shooterFactory = shooterFactory;
+        this.monitor = monitor;
+        this.segments = segments;
+        this.modelledProcess = modelledProcess;
+        this.metrics = metrics;
+        this.minThreads = minThreads.clone();
+        this.maxThreads = maxThreads.clone();
+        this.periodMillis = unit.toMillis(period);
+        this.log = log;
+        created = new int[segments.length];
+        retirements = new AtomicIntegerArray(segments.length);
+        holdUntil = new long[segments.length][2];
+        holdLength = new int[segments.length][2];
+        for(int[] lengths : holdLength) {
+            Arrays.fill(lengths, HOLD);
+        }
+        thread = new Thread(this, "SegmentAutoscaler");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Inicia los shooters de cada segmento y el hilo del controlador.
+     */
+    public void start() {
+        started = System.nanoTime();
+        for(int segment = 0; segment < segments.length; segment++) {
+            for(int shooter = 0; shooter < threads[segment]; shooter++) {
+                startShooter(segment);
+            }
+        }
+        thread.start();
+    }
+
+    /**
+     * Detiene el controlador e interrumpe a todos los shooters, sin esperarlos (ver join).
+     */
+    public void stop() {
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        shooters.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Espera a que terminen todos los shooters iniciados.
+     *
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    public void join() throws InterruptedException {
+        for(Thread shooter : shooters) {
+            shooter.join();
+        }
+    }
+
+    /**
+     * Toma muestras de las colas y decide un cambio por período hasta ser interrumpido.
+     */
+    @Override
+    public void run() {
+        AtomicIntegerArray counter = modelledProcess.getTransitionActionCounter();
+        long previousFirings = totalFirings(counter);
+        long previousTime = System.nanoTime();
+        double[] waiting = new double[segments.length];
+        try {
+            while(!Thread.currentThread().isInterrupted()) {
+                Arrays.fill(waiting, 0);
+                for(int sample = 0; sample < SAMPLES; sample++) {
+                    TimeUnit.MILLISECONDS.sleep(periodMillis / SAMPLES);
+                    for(int segment = 0; segment < segments.length; segment++) {
+                        for(int transition : segments[segment].getCycle()) {
+                            waiting[segment] += metrics.getQueueDepth(transition);
+                        }
+                    }
+                }
+                for(int segment = 0; segment < segments.length; segment++) {
+                    waiting[segment] /= SAMPLES;
+                }
+                long firings = totalFirings(counter);
+                long now = System.nanoTime();
+                double rate = (firings - previousFirings) * 1e9 / (now - previousTime);
+                previousFirings = firings;
+                previousTime = now;
+                decide(rate, waiting);
+            }
+        } catch (InterruptedException e) {
+            /*El controlador fue detenido*/
+        }
+    }
+
+    /**
+     * Evalúa el cambio en prueba o, si no hay, prueba uno nuevo.
+     *
+     * @param rate disparos por segundo de la línea en el último período
+     * @param waiting hilos esperando en las colas de cada segmento, en promedio
+     */
+    private void decide(double rate, double[] waiting) {
+        period++;
+        if(trialSegment >= 0) {
+            int segment = trialSegment;
+            int direction = trialStep > 0 ? GROW : SHRINK;
+            trialSegment = -1;
+            boolean keep = trialStep > 0 ? rate > trialBaseline * (1 + TOLERANCE)
+                    : rate >= trialBaseline * (1 - TOLERANCE);
+            if(keep) {
+                holdLength[segment][direction] = HOLD;
+                record(segment, threads[segment] - trialStep, String.format("kept, line %.1f -> %.1f firings/s",
+                        trialBaseline, rate));
+            } else {
+                resize(segment, -trialStep);
+                holdUntil[segment][direction] = period + holdLength[segment][direction];
+                holdLength[segment][direction] *= 2;
+                record(segment, threads[segment] + trialStep, String.format("reverted, line %.1f -> %.1f "
+                        + "firings/s", trialBaseline, rate));
+            }
+            return;
+        }
+        int shrink = -1;
+        int grow = -1;
+        for(int segment = 0; segment < segments.length; segment++) {
+            if(waiting[segment] >= 1 && threads[segment] > minThreads[segment]
+                    && period >= holdUntil[segment][SHRINK]
+                    && (shrink < 0 || waiting[segment] > waiting[shrink])) {
+                shrink = segment;
+            }
+            if(waiting[segment] < 0.5 && threads[segment] < maxThreads[segment]
+                    && period >= holdUntil[segment][GROW]
+                    && (grow < 0 || waiting[segment] < waiting[grow])) {
+                grow = segment;
+            }
+        }
+        int segment = shrink >= 0 ? shrink : grow;
+        if(segment < 0) return;
+        trialSegment = segment;
+        trialStep = shrink >= 0 ? -1 : 1;
+        trialBaseline = rate;
+        resize(segment, trialStep);
+        record(segment, threads[segment] - trialStep, String.format("%.1f threads waiting, line %.1f firings/s",
+                waiting[segment], rate));
+    }
+
+    private void resize(int segment, int step) {
+        threads[segment] += step;
+        if(step > 0) {
+            if(retirements.get(segment) > 0) {
+                retirements.decrementAndGet(segment); /*Cancela un retiro pendiente en lugar de crear un hilo*/
+            } else {
+                startShooter(segment);
+            }
+        } else {
+            retirements.incrementAndGet(segment);
+        }
+    }
+
+    private void startShooter(int segment) {
+        Shooter shooter = new Shooter(monitor, segments[segment].getTransitions(), modelledProcess,
+                () -> retire(segment));
+        Thread shooterThread = shooterFactory.newShooter(segments[segment], created[segment]++, shooter);
+        shooters.add(shooterThread);
+        shooterThread.start();
+    }
+
+    /**
+     * Consultado por los shooters del segmento luego de cada tarea: atiende un retiro pendiente, si lo hay.
+     *
+     * @param segment segmento del shooter
+     * @return true si el shooter debe terminar
+     */
+    private boolean retire(int segment) {
+        while(true) {
+            int pending = retirements.get(segment);
+            if(pending == 0) return false;
+            if(retirements.compareAndSet(segment, pending, pending - 1)) return true;
+        }
+    }
+
+    private void record(int segment, int from, String reason) {
+        String decision = String.format("Autoscale %.1fs segment %s: %d -> %d threads (%s)",
+                (System.nanoTime() - started) / 1e9, segments[segment], from, threads[segment], reason);
+        decisions.add(decision);
+        log.println(decision);
+    }
+
+    private static long totalFirings(AtomicIntegerArray counter) {
+        long total = 0;
+        for(int transition = 0; transition < counter.length(); transition++) {
+            total += counter.get(transition);
+        }
+        return total;
+    }
+
+    /**
+     * Retorna la cantidad vigente de hilos de cada segmento.
+     *
+     * @return threads
+     */
+    public int[] getThreads() {
+        return threads.clone();
+    }
+
+    /**
+     * Retorna las decisiones tomadas, en el formato en que se registraron. Debe llamarse luego de stop.
+     *
+     * @return decisions
+     */
+    public List<String> getDecisions() {
+        return decisions;
+    }
+}
@@ -0,0 +1,403 @@
+package org.compurrentes;
+
+import org.compurrentes.beans.SensitizedVector;
+import org.compurrentes.beans.WindowExpiredException;
+import org.compurrentes.metrics.MonitorMetrics;
+import org.compurrentes.policies.Policy;
+import org.compurrentes.policies.Politics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Monitor de concurrencia particionado. Al construirse agrupa las transiciones en fragmentos: dos transiciones
+ *  quedan en el mismo fragmento si consumen de una misma plaza o si una está limitada por la capacidad de una
+ *  plaza de la que la otra consume. Cada plaza pertenece al fragmento de sus consumidores (o al de su primer
+ *  productor si nadie consume de ella) y cada fragmento tiene su propio mutex, colas, política y vector de
+ *  sensibilizados, por lo que las transiciones de fragmentos distintos no compiten por el mismo mutex.
+ *  Todas las plazas de entrada de una transición pertenecen a su fragmento, así que el sensibilizado se decide
+ *  con un único mutex. El disparo de una transición que deposita en plazas de otros fragmentos se hace en dos
+ *  fases: primero, con el mutex de su fragmento, toma los tokens de entrada, anota el disparo y deposita en las
+ *  plazas propias, igual que MonitorManager; luego, ya sin ese mutex, toma el mutex de cada fragmento destino,
+ *  deposita los tokens y despierta a un hilo de ese fragmento si corresponde. Un hilo nunca tiene más de un mutex
+ *  tomado, por lo que no hay abrazos mortales entre fragmentos.
+ *  Cada disparo se anota antes de depositar sus tokens de salida, por lo que el orden del registro es una
+ *  secuencia de disparo válida de la RdP.
+ */
+public class ShardedMonitor implements Monitor {
+
+    private final PetriNet petriNet;
+    private final IncidenceMatrix incidenceMatrix;
+    private final ModelledProcess modelledProcess;
+    private final int[] tokens; /*Marcado, cada plaza se modifica con el mutex de su fragmento*/
+    private final int[] shardOf; /*Fragmento de cada transición*/
+    private final int[] owner; /*Fragmento de cada plaza*/
+    private final int[][] remoteShards; /*Fragmentos ajenos en los que deposita cada transición*/
+    private final Shard[] shards;
+    private FiringLog firingLog; /*Registro de disparos, opcional*/
+    private MonitorMetrics metrics; /*Métricas del monitor, opcional*/
+
+    /**
+     * Constructor de la clase. Particiona la RdP en fragmentos.
+     *
+     * @param modelledProcess proceso modelado por la RdP
+     */
+    public ShardedMonitor(ModelledProcess modelledProcess) {
+        this.modelledProcess = modelledProcess;
+        this.petriNet = modelledProcess.getPetriNet();
+        incidenceMatrix = petriNet.getIncidenceMatrix();
+        tokens = petriNet.getMarking();
+        int totalTransitions = petriNet.getTotalTransitions();
+        int totalPlaces = incidenceMatrix.getTotalPlaces();
+
+        /*Transiciones que dependen del marcado de cada plaza: consumidores y limitadas por su capacidad*/
+        List<List<Integer>> dependents = new ArrayList<>();
+        List<List<Integer>> producers = new ArrayList<>();
+        for(int place = 0; place < totalPlaces; place++) {
+            dependents.add(new ArrayList<>());
+            producers.add(new ArrayList<>());
+            for(int consumer : incidenceMatrix.getConsumers(place)) dependents.get(place).add(consumer);
+        }
+        for(int transition = 0; transition < totalTransitions; transition++) {
+            for(int place : incidenceMatrix.getBoundedPlaces(transition)) dependents.get(place).add(transition);
+            for(int place : incidenceMatrix.getOutputPlaces(transition)) producers.get(place).add(transition);
+        }
+
+        int[] parent = new int[totalTransitions];
+        for(int transition = 0; transition < totalTransitions; transition++) parent[transition] = transition;
+        for(List<Integer> group : dependents) {
+            for(int transition : group) union(parent, group.get(0), transition);
+        }
+        shardOf = new int[totalTransitions];
+        int[] shardOfRoot = new int[totalTransitions];
+        int totalShards = 0;
+        for(int transition = 0; transition < totalTransitions; transition++) { /*Numerados por su menor transición*/
+            int root = find(parent, transition);
+            if(root == transition) shardOfRoot[root] = totalShards++;
+        }
+        for(int transition = 0; transition < totalTransitions; transition++) {
+            shardOf[transition] = shardOfRoot[find(parent, transition)];
+        }
+
+        owner = new int[totalPlaces];
+        for(int place = 0; place < totalPlaces; place++) {
+            List<Integer> holders = dependents.get(place).isEmpty() ? producers.get(place) : dependents.get(place);
+            owner[place] = holders.isEmpty() ? 0 : shardOf[holders.get(0)];
+        }
+        remoteShards = new int[totalTransitions][];
+        for(int transition = 0; transition < totalTransitions; transition++) {
+            long[] remote = BitMask.create(totalShards);
+            for(int place : incidenceMatrix.getOutputPlaces(transition)) {
+                if(owner[place] != shardOf[transition]) BitMask.set(remote, owner[place]);
+            }
+            remoteShards[transition] = BitMask.toList(remote).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        shards = new Shard[totalShards];
+        for(int shard = 0; shard < totalShards; shard++) {
+            shards[shard] = new Shard(shard);
+        }
+    }
+
+    private static int find(int[] parent, int transition) {
+        while(parent[transition] != transition) {
+            parent[transition] = parent[parent[transition]];
+            transition = parent[transition];
+        }
+        return transition;
+    }
+
+    private static void union(int[] parent, int first, int second) {
+        int firstRoot = find(parent, first);
+        int secondRoot = find(parent, second);
+        if(firstRoot < secondRoot) parent[secondRoot] = firstRoot;
+        else parent[firstRoot] = secondRoot;
+    }
+
+    /**
+     * Toma el marcado actual de la RdP y su registro de disparos, y crea el vector de sensibilizados de cada
+     *  fragmento a partir del de la RdP, compartiendo su temporizador.
+     */
+    @Override
+    public void start() {
+        firingLog = petriNet.getFiringLog();
+        int[] marking = petriNet.getMarking();
+        System.arraycopy(marking, 0, tokens, 0, tokens.length);
+        for(Shard shard : shards) {
+            shard.start(petriNet.getSensitizedVector());
+        }
+    }
+
+    /**
+     * Vuelca el marcado en la RdP y le devuelve al vector de sensibilizados la máscara de la red, para que los
+     *  disparos finales se hagan directamente sobre la RdP.
+     */
+    @Override
+    public void close() {
+        petriNet.setMarking(tokens);
+        petriNet.getSensitizedVector().setSensibilities(petriNet.getSensitizedMask());
+    }
+
+    /**
+     * Dispara la transición en su fragmento y luego deposita los tokens de salida en los fragmentos ajenos.
+     *
+     * @param transition transición a disparar
+     * @throws WindowExpiredException si la ventana de la transición venció y el hilo fue desviado (sin el mutex)
+     * @throws RuntimeException si el hilo es interrumpido (manejada en shooter)
+     */
+    @Override
+    public void shootTransition(int transition) throws RuntimeException {
+        shards[shardOf[transition]].shootTransition(transition);
+        for(int shard : remoteShards[transition]) {
+            shards[shard].deposit(transition);
+        }
+    }
+
+    /**
+     * Llamado por el temporizador cuando se abre la ventana de una transición temporizada; se atiende en el
+     *  fragmento de la transición.
+     *
+     * @param transition transición temporizada
+     * @param deadline instante de apertura agendado
+     * @throws RuntimeException si el temporizador es interrumpido
+     */
+    @Override
+    public void signalWindowOpened(int transition, long deadline) throws RuntimeException {
+        shards[shardOf[transition]].signalWindowOpened(transition, deadline);
+    }
+
+    /**
+     * Asigna las métricas del monitor y las propaga a las colas de cada fragmento y, si ya está asignado, al
+     *  vector de sensibilizados. Debe llamarse antes de iniciar los hilos.
+     *
+     * @param metrics métricas del monitor
+     */
+    @Override
+    public void setMetrics(MonitorMetrics metrics) {
+        this.metrics = metrics;
+        for(Shard shard : shards) {
+            shard.queues.setMetrics(metrics);
+        }
+        SensitizedVector sensitizedVector = petriNet.getSensitizedVector();
+        if(sensitizedVector != null) sensitizedVector.setMetrics(metrics);
+    }
+
+    /**
+     * Retorna las transiciones de cada fragmento.
+     *
+     * @return lista de fragmentos, cada uno con sus transiciones en orden
+     */
+    public List<List<Integer>> getShards() {
+        List<List<Integer>> transitions = new ArrayList<>();
+        for(int shard = 0; shard < shards.length; shard++) {
+            transitions.add(new ArrayList<>());
+        }
+        for(int transition = 0; transition < shardOf.length; transition++) {
+            transitions.get(shardOf[transition]).add(transition);
+        }
+        return transitions;
+    }
+
+    /**
+     * Retorna la RdP asociada al monitor.
+     * @return instancia de PetriNet del monitor
+     */
+    public PetriNet getPetriNet() {
+        return petriNet;
+    }
+
+    /**
+     * Fragmento del monitor: sigue el diagrama de secuencias de MonitorManager sobre sus propias transiciones.
+     */
+    private final class Shard {
+
+        private final int index;
+        private final Semaphore mutex = new Semaphore(1); /*Semáforo del fragmento*/
+        private final Queues queues; /*Colas de las transiciones del fragmento*/
+        private final Policy politics; /*Instancia propia de la política*/
+        private final long[] sensitized; /*Sensibilizado por tokens de las transiciones del fragmento*/
+        private final long[] previousSensitized; /*Copia de la máscara previa al último disparo*/
+        private final long[] candidates; /*Transiciones sensibilizadas con hilos esperando*/
+        private SensitizedVector sensitizedVector; /*Ventanas de las transiciones del fragmento*/
+        private long ownedSince; /*Instante en que el dueño actual tomó el mutex, sólo se usa con métricas*/
+
+        private Shard(int index) {
+            this.index = index;
+            int totalTransitions = petriNet.getTotalTransitions();
+            queues = new Queues(totalTransitions);
+            politics = Politics.create(modelledProcess.getPolicySpecification(), modelledProcess);
+            sensitized = BitMask.create(totalTransitions);
+            previousSensitized = BitMask.create(totalTransitions);
+            candidates = BitMask.create(totalTransitions);
+        }
+
+        private void start(SensitizedVector shared) {
+            sensitizedVector = new SensitizedVector(shared);
+            for(int transition = 0; transition < shardOf.length; transition++) {
+                if(shardOf[transition] == index) updateSensitized(transition);
+            }
+            sensitizedVector.setSensibilities(sensitized);
+        }
+
+        /**
+         * Disparo de la transición en el fragmento, igual que MonitorManager.shootTransition. Los depósitos en
+         *  fragmentos ajenos los realiza luego el llamador.
+         *
+         * @param transition transición del fragmento
+         */
+        private void shootTransition(int transition) {
+            long requested = metrics != null ? System.nanoTime() : 0;
+            try {
+                mutex.acquire();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e); /*manejada en el método run del shooter*/
+            }
+            if(metrics != null) entered(requested, true);
+
+            while(true) {
+                boolean fired;
+                try {
+                    fired = fire(transition);
+                } catch (WindowExpiredException e) {
+                    leaving();
+                    mutex.release(); /*El hilo es desviado fuera del monitor*/
+                    throw e;
+                }
+                if(fired) {
+                    if(metrics != null) metrics.recordFiring(transition);
+                    if(wakeUpNext()) return; /*El mutex queda en manos del hilo despertado*/
+                    break;
+                }
+                queues.addWaiter(transition); /*Se registra en la cola antes de soltar el mutex*/
+                leaving();
+                long queued = metrics != null ? System.nanoTime() : 0;
+                mutex.release();
+                queues.acquire(transition); /*Recibe el mutex del hilo que lo despierta*/
+                if(metrics != null) entered(queued, false);
+            }
+            leaving();
+            mutex.release();
+        }
+
+        /**
+         * Dispara la transición si está sensibilizada por tokens y por tiempo: toma los tokens de entrada, anota
+         *  el disparo y deposita en las plazas del fragmento. Debe llamarse con el mutex tomado.
+         *
+         * @param transition transición del fragmento
+         * @return true si se disparó
+         * @throws WindowExpiredException si la ventana venció y la política de vencimiento es DIVERT
+         */
+        private boolean fire(int transition) throws WindowExpiredException {
+            if(!sensitizedVector.isSensitized(transition, false)) return false;
+            System.arraycopy(sensitized, 0, previousSensitized, 0, sensitized.length);
+            int[] places = incidenceMatrix.getInputPlaces(transition);
+            int[] weights = incidenceMatrix.getInputWeights(transition);
+            for(int i = 0; i < places.length; i++) {
+                tokens[places[i]] -= weights[i];
+            }
+            if(firingLog != null) firingLog.append(System.nanoTime(), transition);
+            produce(transition);
+            return true;
+        }
+
+        /**
+         * Segunda fase del disparo de una transición de otro fragmento: deposita sus tokens en las plazas de este
+         *  fragmento y despierta a un hilo si corresponde. El disparo ya ocurrió, por lo que la espera por el mutex
+         *  no se interrumpe.
+         *
+         * @param transition transición disparada en otro fragmento
+         */
+        private void deposit(int transition) {
+            long requested = metrics != null ? System.nanoTime() : 0;
+            mutex.acquireUninterruptibly();
+            if(metrics != null) entered(requested, true);
+            System.arraycopy(sensitized, 0, previousSensitized, 0, sensitized.length);
+            produce(transition);
+            if(wakeUpNext()) return;
+            leaving();
+            mutex.release();
+        }
+
+        /**
+         * Deposita los tokens de salida de la transición en las plazas del fragmento, reevalúa el sensibilizado de
+         *  las transiciones afectadas del fragmento y actualiza sus ventanas. Debe llamarse con el mutex tomado y
+         *  con la máscara previa ya copiada.
+         *
+         * @param transition transición disparada
+         */
+        private void produce(int transition) {
+            int[] places = incidenceMatrix.getOutputPlaces(transition);
+            int[] weights = incidenceMatrix.getOutputWeights(transition);
+            for(int i = 0; i < places.length; i++) {
+                if(owner[places[i]] == index) tokens[places[i]] += weights[i];
+            }
+            for(int affected : incidenceMatrix.getAffectedTransitions(transition)) {
+                if(shardOf[affected] == index) updateSensitized(affected);
+            }
+            sensitizedVector.updateTimeStamps(previousSensitized, sensitized);
+        }
+
+        private void updateSensitized(int transition) {
+            if(incidenceMatrix.isEnabled(tokens, transition)) {
+                BitMask.set(sensitized, transition);
+            } else {
+                BitMask.clear(sensitized, transition);
+            }
+        }
+
+        private void signalWindowOpened(int transition, long deadline) {
+            long requested = metrics != null ? System.nanoTime() : 0;
+            try {
+                mutex.acquire();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            if(metrics != null) entered(requested, true);
+            if(sensitizedVector.openWindow(transition, deadline) && wakeUpNext()) {
+                return; /*El mutex queda en manos del hilo despertado*/
+            }
+            leaving();
+            mutex.release();
+        }
+
+        /**
+         * Igual que MonitorManager.wakeUpNext, sobre las colas y la política del fragmento.
+         *
+         * @return true si se despertó un hilo
+         */
+        private boolean wakeUpNext() {
+            long[] waiting = queues.getWaitingMask();
+            while(true) {
+                long any = 0;
+                for(int word = 0; word < candidates.length; word++) {
+                    candidates[word] = sensitized[word] & waiting[word];
+                    any |= candidates[word];
+                }
+                if(any == 0) return false;
+                int nextTransition = politics.getPriorityShooter(candidates);
+                if(BitMask.isSet(sensitizedVector.getPendingMask(), nextTransition)) {
+                    return false; /*Ventana sin abrir, lo despierta el temporizador*/
+                }
+                long held = metrics != null ? System.nanoTime() - ownedSince : 0; /*Antes del release*/
+                if(queues.release(nextTransition)) {
+                    if(metrics != null) metrics.recordMutexHold(held);
+                    return true;
+                }
+            }
+        }
+
+        private void entered(long since, boolean mutexWait) {
+            ownedSince = System.nanoTime();
+            if(mutexWait) {
+                metrics.recordMutexWait(ownedSince - since);
+            } else {
+                metrics.recordQueueWait(ownedSince - since);
+            }
+        }
+
+        private void leaving() {
+            if(metrics != null) metrics.recordMutexHold(System.nanoTime() - ownedSince);
+        }
+    }
+}
@@ -1,18 +1,25 @@
 package org.compurrentes;
 
+import org.compurrentes.beans.WindowExpiredException;
 
 import java.util.Iterator;
+import java.util.function.BooleanSupplier;
 
 
 /**
  * Representa a los trabajadores de la línea de producción, cada shooter tendrá un segmento asociado.
  * Implementa la interfaz Runnable Estos objetos serán utilizados para crear los hilos de ejecución.
+ * En modo por lotes el shooter recorre por su cuenta el ciclo de su segmento, como si acompañara a una pieza, y
+ *  dispara en cada entrada al monitor todas las transiciones consecutivas del ciclo que estén sensibilizadas
+ *  (ver Monitor.shootSequence), realizando luego sus tareas.
  */
 public class Shooter implements Runnable {
 
-    private final MonitorManager monitor;
+    private final Monitor monitor;
     private final Iterator<Integer> transitions;
+    private final int[] cycle; /*Ciclo propio en modo por lotes, null si comparte el iterador del segmento*/
     private final ModelledProcess modelledProcess;
+    private final BooleanSupplier retire; /*Consultado luego de cada tarea, true para que el shooter termine*/
     private boolean isInterrupted = false;
 
     /**
@@ -22,10 +29,42 @@ public class Shooter implements Runnable {
      * @param transitions Transiciones de la RdP
      * @param modelledProcess Proceso modelado de la RdP
      */
-    public Shooter(MonitorManager monitor, Iterator<Integer> transitions, ModelledProcess modelledProcess) {
+    public Shooter(Monitor monitor, Iterator<Integer> transitions, ModelledProcess modelledProcess) {
+        this(monitor, transitions, modelledProcess, () -> false);
+    }
+
+    /**
+     * Constructor de la clase con retiro del shooter. El shooter consulta retire luego de realizar cada tarea,
+     *  antes de tomar la próxima transición del segmento, y termina si retorna true; así deja el segmento sin
+     *  llevarse una transición tomada y sin disparar.
+     *
+     * @param monitor Monitor de concurrencia de la RdP
+     * @param transitions Transiciones de la RdP
+     * @param modelledProcess Proceso modelado de la RdP
+     * @param retire condición de retiro (ver SegmentAutoscaler)
+     */
+    public Shooter(Monitor monitor, Iterator<Integer> transitions, ModelledProcess modelledProcess,
+                   BooleanSupplier retire) {
         this.monitor = monitor;
         this.transitions = transitions;
+        this.cycle = null;
+        this.modelledProcess = modelledProcess;
+        this.retire = retire;
+    }
+
+    /**
+     * Constructor de la clase en modo por lotes.
+     *
+     * @param monitor Monitor de concurrencia de la RdP
+     * @param cycle Ciclo de transiciones del segmento, que el shooter recorre por su cuenta
+     * @param modelledProcess Proceso modelado de la RdP
+     */
+    public Shooter(Monitor monitor, int[] cycle, ModelledProcess modelledProcess) {
+        this.monitor = monitor;
+        this.transitions = null;
+        this.cycle = cycle.clone();
         this.modelledProcess = modelledProcess;
+        this.retire = () -> false;
     }
 
     /**
@@ -37,12 +76,40 @@ public class Shooter implements Runnable {
      */
     @Override
     public void run() {
+        if(cycle != null) {
+            runCycle();
+            return;
+        }
         int currentTransition = transitions.next();
         while(!(isInterrupted)) {
             try {
                 monitor.shootTransition(currentTransition);
                 modelledProcess.realizeTask(currentTransition);
+                if(retire.getAsBoolean()) return;
                 currentTransition = transitions.next();
+            } catch (WindowExpiredException e) {
+                /*Ventana vencida, la transición no se disparó: se vuelve a intentar con la ventana reiniciada*/
+            } catch (RuntimeException e) {
+                isInterrupted = true;
+            }
+        }
+    }
+
+    /**
+     * Recorre el ciclo en modo por lotes: cada entrada al monitor dispara desde la posición actual hasta el final
+     *  del ciclo tantas transiciones como estén sensibilizadas, y luego se realizan sus tareas en orden.
+     */
+    private void runCycle() {
+        int position = 0;
+        while(!(isInterrupted)) {
+            try {
+                int fired = monitor.shootSequence(cycle, position, cycle.length - position);
+                for(int i = 0; i < fired; i++) {
+                    modelledProcess.realizeTask(cycle[position + i]);
+                }
+                position = (position + fired) % cycle.length;
+            } catch (WindowExpiredException e) {
+                /*Ventana vencida, la transición no se disparó: se vuelve a intentar con la ventana reiniciada*/
             } catch (RuntimeException e) {
                 isInterrupted = true;
             }
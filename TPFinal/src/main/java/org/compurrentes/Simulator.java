@@ -0,0 +1,334 @@
+package org.compurrentes;
+
+import org.compurrentes.beans.ExpiryPolicy;
+import org.compurrentes.beans.Segment;
+import org.compurrentes.beans.SensitizedVector;
+import org.compurrentes.beans.WindowExpiredException;
+import org.compurrentes.beans.WindowScheduler;
+import org.compurrentes.metrics.MonitorMetrics;
+import org.compurrentes.policies.Policy;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Simulación de eventos discretos de la línea de producción en tiempo virtual, en un único hilo. Usa la misma RdP,
+ *  las mismas ventanas temporales (alpha/beta), segmentos y política que la ejecución con hilos, pero el reloj
+ *  avanza saltando de evento en evento sobre una cola de prioridad en lugar de esperar en tiempo real, por lo que
+ *  una hora de producción simulada se ejecuta en milisegundos.
+ *  Cada hilo de un segmento se modela como un trabajador virtual que sigue el mismo protocolo que en el monitor:
+ *  si su transición no puede dispararse queda en la cola de la transición, y luego de cada disparo (o de abrirse
+ *  una ventana) se consulta a la política cuál de los trabajadores en espera por transiciones sensibilizadas
+ *  continúa. Los disparos y la elección de la política son instantáneos; el tiempo sólo avanza por las ventanas
+ *  temporales y por la duración de tarea opcional de cada disparo.
+ *  El vector de sensibilizados debe crearse con la agenda y el reloj del simulador, y el registro de disparos
+ *  atribuye cada disparo al trabajador virtual con los mismos nombres que los hilos.
+ */
+public class Simulator implements WindowScheduler {
+
+    private static final int MAX_INSTANT_FIRINGS = 1_000_000; /*Disparos sin avanzar el reloj antes de abortar*/
+
+    private final Segment[] segments;
+    private final ModelledProcess modelledProcess;
+    private final PetriNet petriNet;
+    private final Policy politics;
+    private final long taskNanos; /*Duración virtual de la tarea de cada disparo*/
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private final List<ArrayDeque<Worker>> queues = new ArrayList<>(); /*Trabajadores esperando por cada transición*/
+    private final long[] waiting; /*Máscara de transiciones con trabajadores esperando*/
+    private final long[] candidates; /*Transiciones sensibilizadas con trabajadores esperando*/
+    private MonitorMetrics metrics; /*Métricas, opcional*/
+    private FiringLog firingLog; /*Registro de disparos de la RdP, opcional*/
+    private IntConsumer listener; /*Consumidor de los disparos, opcional*/
+    private long now; /*Reloj virtual en nanosegundos*/
+    private long sequence; /*Orden de llegada de los eventos, desempata los simultáneos*/
+    private long instant; /*Instante de los últimos disparos contados*/
+    private int instantFirings; /*Disparos ocurridos en ese instante*/
+
+    /**
+     * Constructor de la clase. Las tareas no consumen tiempo virtual, como en ModelledProcess.
+     *
+     * @param segments Array de segmentos de la RdP
+     * @param modelledProcess proceso modelado de la RdP
+     */
+    public Simulator(Segment[] segments, ModelledProcess modelledProcess) {
+        this(segments, modelledProcess, 0);
+    }
+
+    /**
+     * Constructor de la clase con una duración virtual para la tarea de cada disparo.
+     *
+     * @param segments Array de segmentos de la RdP
+     * @param modelledProcess proceso modelado de la RdP
+     * @param taskNanos duración virtual de la tarea de cada disparo en nanosegundos
+     */
+    public Simulator(Segment[] segments, ModelledProcess modelledProcess, long taskNanos) {
+        this.segments = segments;
+        this.modelledProcess = modelledProcess;
+        this.petriNet = modelledProcess.getPetriNet();
+        this.politics = modelledProcess.getPolitics();
+        this.taskNanos = taskNanos;
+        for(int transition = 0; transition < petriNet.getTotalTransitions(); transition++) {
+            queues.add(new ArrayDeque<>());
+        }
+        waiting = BitMask.create(petriNet.getTotalTransitions());
+        candidates = BitMask.create(petriNet.getTotalTransitions());
+    }
+
+    /**
+     * Crea el vector de sensibilizados de la simulación, con la agenda de aperturas y el reloj virtual del
+     *  simulador.
+     *
+     * @param alpha límite inferior de la ventana de cada transición en nanosegundos (0 = no temporizada)
+     * @param beta límite superior de la ventana de cada transición en nanosegundos
+     * @param expiryPolicy tratamiento de los trabajadores que llegan luego de la ventana
+     * @return vector de sensibilizados
+     */
+    public SensitizedVector createSensitizedVector(long[] alpha, long[] beta, ExpiryPolicy expiryPolicy) {
+        return new SensitizedVector(this, this::now, alpha, beta, expiryPolicy);
+    }
+
+    /**
+     * Simula la línea de producción durante el tiempo virtual indicado y luego, como la ejecución con hilos,
+     *  completa los ciclos en curso con disparos finales e imprime el marcado final.
+     *
+     * @param time tiempo virtual de producción en segundos
+     * @throws IllegalStateException si la red dispara indefinidamente sin avanzar el reloj (ciclo de transiciones
+     *  no temporizadas sin duración de tarea)
+     */
+    public void start(long time) {
+        long started = System.nanoTime();
+        run(TimeUnit.SECONDS.toNanos(time));
+        if(firingLog != null) firingLog.setWorker(firingLog.registerWorker(Thread.currentThread().getName()));
+
+        System.out.printf("Simulated %ds in %dms%n", time, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        Initializer.finish(modelledProcess);
+    }
+
+    /**
+     * Simula la línea de producción desde el instante 0 hasta el instante virtual indicado, sin disparos finales
+     *  ni salida por consola. Debe llamarse una sola vez por simulador.
+     *
+     * @param end instante virtual de finalización en nanosegundos
+     * @throws IllegalStateException si la red dispara indefinidamente sin avanzar el reloj
+     */
+    public void run(long end) {
+        firingLog = petriNet.getFiringLog();
+        for(Segment segment : segments) {
+            for(int i = 0; i < segment.getThreadNumber(); i++) {
+                Worker worker = new Worker(segment.getTransitions());
+                if(firingLog != null) worker.logId = firingLog.registerWorker(String.format("S%sN%s", segment, i));
+                arrive(worker, 0);
+            }
+        }
+        while(!events.isEmpty() && events.peek().time <= end) {
+            Event event = events.poll();
+            now = event.time;
+            if(event.worker != null) {
+                attempt(event.worker);
+            } else if(petriNet.getSensitizedVector().openWindow(event.transition, event.time)) {
+                wakeUpNext();
+            }
+        }
+        now = end;
+    }
+
+    /**
+     * Un trabajador llega al monitor a disparar su transición actual: la dispara y continúa la cadena de
+     *  despertares, o queda en la cola de la transición. Si la ventana venció y la política de vencimiento es
+     *  DIVERT, vuelve a intentarlo en el mismo instante, como el shooter.
+     */
+    private void attempt(Worker worker) {
+        try {
+            if(!shoot(worker)) {
+                enqueue(worker);
+                return;
+            }
+        } catch (WindowExpiredException e) {
+            arrive(worker, now);
+            return;
+        }
+        wakeUpNext();
+    }
+
+    /**
+     * Mientras haya trabajadores esperando por transiciones sensibilizadas, consulta a la política cuál continúa
+     *  y lo hace disparar. Como en el monitor, si la política elige una transición con la ventana sin abrir, o el
+     *  trabajador elegido no puede disparar, la cadena se corta.
+     */
+    private void wakeUpNext() {
+        while(updateCandidates()) {
+            int transition = politics.getPriorityShooter(candidates);
+            if(BitMask.isSet(petriNet.getSensitizedVector().getPendingMask(), transition)) {
+                return; /*Ventana sin abrir, lo despierta el evento de apertura*/
+            }
+            Worker worker = queues.get(transition).poll();
+            if(queues.get(transition).isEmpty()) BitMask.clear(waiting, transition);
+            if(metrics != null) {
+                metrics.setQueueDepth(transition, queues.get(transition).size());
+                metrics.recordQueueWait(now - worker.since);
+            }
+            try {
+                if(!shoot(worker)) {
+                    enqueue(worker);
+                    return;
+                }
+            } catch (WindowExpiredException e) {
+                arrive(worker, now);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Dispara la transición actual del trabajador y, si se disparó, realiza la tarea y agenda su próxima llegada.
+     *
+     * @return true si la transición se disparó
+     */
+    private boolean shoot(Worker worker) {
+        if(firingLog != null) firingLog.setWorker(worker.logId);
+        int transition = worker.transition;
+        if(!petriNet.shoot(transition, false)) return false;
+        if(now != instant) {
+            instant = now;
+            instantFirings = 0;
+        }
+        if(++instantFirings > MAX_INSTANT_FIRINGS) {
+            throw new IllegalStateException(String.format("More than %d firings at virtual time %dns: the net has "
+                    + "a cycle of untimed transitions, set a task time", MAX_INSTANT_FIRINGS, now));
+        }
+        if(metrics != null) metrics.recordFiring(transition);
+        if(listener != null) listener.accept(transition);
+        modelledProcess.realizeTask(transition);
+        worker.transition = worker.transitions.next();
+        arrive(worker, now + taskNanos);
+        return true;
+    }
+
+    private void enqueue(Worker worker) {
+        worker.since = now;
+        queues.get(worker.transition).add(worker);
+        BitMask.set(waiting, worker.transition);
+        if(metrics != null) metrics.setQueueDepth(worker.transition, queues.get(worker.transition).size());
+    }
+
+    private void arrive(Worker worker, long time) {
+        events.add(new Event(time, sequence++, worker, -1));
+    }
+
+    /**
+     * Calcula las transiciones sensibilizadas que tienen trabajadores esperando para dispararlas.
+     *
+     * @return true si hay al menos una transición candidata
+     */
+    private boolean updateCandidates() {
+        long[] sensitized = petriNet.getSensitizedMask();
+        long any = 0;
+        for(int word = 0; word < candidates.length; word++) {
+            candidates[word] = sensitized[word] & waiting[word];
+            any |= candidates[word];
+        }
+        return any != 0;
+    }
+
+    /**
+     * Agenda la apertura de la ventana de la transición como un evento en tiempo virtual.
+     *
+     * @param transition transición temporizada
+     * @param deadline instante virtual de apertura de la ventana
+     */
+    @Override
+    public void schedule(int transition, long deadline) {
+        events.add(new Event(deadline, sequence++, null, transition));
+    }
+
+    /**
+     * La agenda es la cola de eventos del simulador, no hay hilo que iniciar.
+     */
+    @Override
+    public void start() {
+    }
+
+    /**
+     * La agenda es la cola de eventos del simulador, no hay hilo que detener.
+     */
+    @Override
+    public void stop() {
+    }
+
+    /**
+     * Retorna el instante actual del reloj virtual.
+     *
+     * @return tiempo virtual transcurrido en nanosegundos
+     */
+    public long now() {
+        return now;
+    }
+
+    /**
+     * Asigna las métricas de la simulación y las propaga, si ya está asignado, al vector de sensibilizados.
+     *  Las esperas en cola se miden en tiempo virtual y no hay esperas ni tenencias del mutex.
+     *
+     * @param metrics métricas creadas con el reloj virtual del simulador
+     */
+    public void setMetrics(MonitorMetrics metrics) {
+        this.metrics = metrics;
+        SensitizedVector sensitizedVector = petriNet.getSensitizedVector();
+        if(sensitizedVector != null) sensitizedVector.setMetrics(metrics);
+    }
+
+    /**
+     * Asigna el consumidor que recibe cada transición disparada por los trabajadores, en orden de disparo. Permite
+     *  verificar invariantes sin registro de disparos (ver ParameterSweep).
+     *
+     * @param listener consumidor de disparos
+     */
+    public void setFiringListener(IntConsumer listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Trabajador virtual: equivale a un hilo de un segmento.
+     */
+    private static class Worker {
+
+        private final Iterator<Integer> transitions; /*Iterador compartido del segmento*/
+        private int transition; /*Transición que intenta disparar*/
+        private long since; /*Instante en que empezó a esperar en una cola*/
+        private int logId; /*Identificador en el registro de disparos*/
+
+        private Worker(Iterator<Integer> transitions) {
+            this.transitions = transitions;
+            transition = transitions.next();
+        }
+    }
+
+    /**
+     * Evento de la simulación: la llegada de un trabajador al monitor o la apertura de una ventana temporal.
+     */
+    private static class Event implements Comparable<Event> {
+
+        private final long time;
+        private final long sequence;
+        private final Worker worker; /*null para una apertura de ventana*/
+        private final int transition; /*Transición temporizada de la apertura*/
+
+        private Event(long time, long sequence, Worker worker, int transition) {
+            this.time = time;
+            this.sequence = sequence;
+            this.worker = worker;
+            this.transition = transition;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int order = Long.compare(time, other.time);
+            return order != 0 ? order : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package org.compurrentes;
+
+import org.compurrentes.policies.Policy;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Grabador de trazas de ejecución: el orden exacto de los disparos de la RdP y las decisiones de la política, para
+ *  reproducir en un solo hilo (ver TraceReplayer) una ejecución concurrente cuyo entrelazado no se puede repetir.
+ *  La traza se guarda en memoria en bloques de bytes, sin entrada/salida dentro del monitor, y se escribe al
+ *  terminar. Cada disparo ocupa un varint (transición * 2) y cada decisión un varint (elegida * 2 + 1) seguido de
+ *  las palabras de la máscara de candidatas también como varints, por lo que en redes de menos de 64 transiciones
+ *  un disparo ocupa un byte. La cabecera guarda el marcado inicial, la cantidad de transiciones y la política.
+ *  Los registros deben hacerse en exclusión mutua (dentro del monitor serializado o en la simulación), que es lo
+ *  que fija el orden de la traza.
+ */
+public class TraceRecorder {
+
+    static final int MAGIC = 0x504E5452; /*"PNTR"*/
+    static final int VERSION = 1;
+    private static final int CHUNK = 1 << 16; /*Tamaño de cada bloque en bytes*/
+
+    private final int[] initialMarking;
+    private final int totalTransitions;
+    private final String policy; /*Especificación de la política, para volver a consultarla al reproducir*/
+    private final List<byte[]> chunks = new ArrayList<>(); /*Bloques llenos*/
+    private byte[] chunk = new byte[CHUNK];
+    private int position; /*Próximo byte libre del bloque actual*/
+    private long firings;
+    private long decisions;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param initialMarking marcado de la RdP al comenzar la grabación
+     * @param totalTransitions cantidad de transiciones de la RdP
+     * @param policy especificación de la política de disparo (ver Politics)
+     */
+    public TraceRecorder(int[] initialMarking, int totalTransitions, String policy) {
+        this.initialMarking = initialMarking.clone();
+        this.totalTransitions = totalTransitions;
+        this.policy = policy;
+    }
+
+    /**
+     * Registra el disparo de una transición.
+     *
+     * @param transition transición disparada
+     */
+    public void recordFiring(int transition) {
+        writeVarLong((long) transition << 1);
+        firings++;
+    }
+
+    /**
+     * Registra una decisión de la política.
+     *
+     * @param candidates máscara de transiciones entre las que eligió la política
+     * @param chosen transición elegida
+     */
+    public void recordDecision(long[] candidates, int chosen) {
+        writeVarLong(((long) chosen << 1) | 1);
+        for(long word : candidates) {
+            writeVarLong(word);
+        }
+        decisions++;
+    }
+
+    /**
+     * Envuelve una política para que registre cada una de sus decisiones en la traza.
+     *
+     * @param policy política original
+     * @return política que decide igual que la original y registra sus decisiones
+     */
+    public Policy record(Policy policy) {
+        return candidates -> {
+            int chosen = policy.getPriorityShooter(candidates);
+            recordDecision(candidates, chosen);
+            return chosen;
+        };
+    }
+
+    /**
+     * Retorna la cantidad de disparos registrados.
+     *
+     * @return firings
+     */
+    public long getFirings() {
+        return firings;
+    }
+
+    /**
+     * Retorna la cantidad de decisiones de la política registradas.
+     *
+     * @return decisions
+     */
+    public long getDecisions() {
+        return decisions;
+    }
+
+    /**
+     * Retorna el tamaño de la traza registrada, sin la cabecera.
+     *
+     * @return bytes
+     */
+    public long getSize() {
+        return (long) chunks.size() * CHUNK + position;
+    }
+
+    /**
+     * Escribe la traza en un archivo. Debe llamarse sin hilos registrando.
+     *
+     * @param file archivo de destino (se sobrescribe)
+     * @throws IOException si no se puede escribir el archivo
+     */
+    public void write(Path file) throws IOException {
+        try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(file));
+             DataOutputStream output = new DataOutputStream(stream)) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(initialMarking.length);
+            for(int tokens : initialMarking) {
+                output.writeInt(tokens);
+            }
+            output.writeInt(totalTransitions);
+            byte[] specification = policy.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(specification.length);
+            output.write(specification);
+            output.writeLong(firings);
+            output.writeLong(decisions);
+            for(byte[] full : chunks) {
+                output.write(full);
+            }
+            output.write(chunk, 0, position);
+        }
+    }
+
+    private void writeVarLong(long value) {
+        while((value & ~0x7FL) != 0) {
+            writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        writeByte((int) value);
+    }
+
+    private void writeByte(int value) {
+        if(position == CHUNK) {
+            chunks.add(chunk);
+            chunk = new byte[CHUNK];
+            position = 0;
+        }
+        chunk[position++] = (byte) value;
+    }
+}
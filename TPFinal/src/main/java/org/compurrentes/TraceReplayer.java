@@ -0,0 +1,272 @@
+package org.compurrentes;
+
+import org.compurrentes.analysis.InvariantCalculator;
+import org.compurrentes.beans.ExpiryPolicy;
+import org.compurrentes.beans.NetDefinition;
+import org.compurrentes.beans.SensitizedVector;
+import org.compurrentes.beans.WindowScheduler;
+import org.compurrentes.policies.Policy;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reproducción de una traza grabada con TraceRecorder. Dispara sobre la RdP la misma secuencia de transiciones en
+ *  un solo hilo y sin ventanas temporales, a la máxima velocidad del motor, lo que permite medir cambios del motor
+ *  sobre trazas reales y encontrar el primer disparo en que una versión diverge de la grabación (una transición no
+ *  sensibilizada). Además puede volver a consultar a la política en cada decisión grabada, sobre un proceso
+ *  modelado que avanza con la traza, e informar las decisiones que difieren.
+ *  La traza se decodifica completa al cargarla, por lo que la decodificación no forma parte de la reproducción.
+ */
+public class TraceReplayer {
+
+    private static final int SHOWN_MISMATCHES = 5; /*Diferencias de la política que se describen*/
+
+    private final int[] initialMarking;
+    private final int totalTransitions;
+    private final String policy;
+    private final int[] firings; /*Secuencia de disparos*/
+    private final int[] decisionPositions; /*Disparos previos a cada decisión*/
+    private final int[] decisionChoices; /*Transición elegida en cada decisión*/
+    private final long[] decisionCandidates; /*Máscaras de candidatas, una tras otra*/
+    private final int words; /*Palabras de cada máscara*/
+
+    private TraceReplayer(int[] initialMarking, int totalTransitions, String policy, int[] firings,
+                          int[] decisionPositions, int[] decisionChoices, long[] decisionCandidates) {
+        this.initialMarking = initialMarking;
+        this.totalTransitions = totalTransitions;
+        this.policy = policy;
+        this.firings = firings;
+        this.decisionPositions = decisionPositions;
+        this.decisionChoices = decisionChoices;
+        this.decisionCandidates = decisionCandidates;
+        words = BitMask.create(totalTransitions).length;
+    }
+
+    /**
+     * Carga una traza grabada.
+     *
+     * @param file archivo de la traza
+     * @return traza decodificada
+     * @throws IOException si no se puede leer el archivo o la traza está incompleta
+     * @throws IllegalArgumentException si el archivo no es una traza o es de otra versión
+     */
+    public static TraceReplayer load(Path file) throws IOException {
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(file));
+             DataInputStream input = new DataInputStream(stream)) {
+            if(input.readInt() != TraceRecorder.MAGIC || input.readInt() != TraceRecorder.VERSION) {
+                throw new IllegalArgumentException("Not a version " + TraceRecorder.VERSION + " trace: " + file);
+            }
+            int[] marking = new int[input.readInt()];
+            for(int place = 0; place < marking.length; place++) {
+                marking[place] = input.readInt();
+            }
+            int totalTransitions = input.readInt();
+            byte[] specification = new byte[input.readInt()];
+            input.readFully(specification);
+            int[] firings = new int[Math.toIntExact(input.readLong())];
+            int decisions = Math.toIntExact(input.readLong());
+            int words = BitMask.create(totalTransitions).length;
+            int[] positions = new int[decisions];
+            int[] choices = new int[decisions];
+            long[] candidates = new long[decisions * words];
+            int firing = 0;
+            for(int decision = 0; firing < firings.length || decision < decisions; ) {
+                long record = readVarLong(input);
+                if((record & 1) == 0) {
+                    firings[firing++] = (int) (record >>> 1);
+                } else {
+                    positions[decision] = firing;
+                    choices[decision] = (int) (record >>> 1);
+                    for(int word = 0; word < words; word++) {
+                        candidates[decision * words + word] = readVarLong(input);
+                    }
+                    decision++;
+                }
+            }
+            return new TraceReplayer(marking, totalTransitions, new String(specification, StandardCharsets.UTF_8),
+                    firings, positions, choices, candidates);
+        }
+    }
+
+    private static long readVarLong(DataInputStream input) throws IOException {
+        long value = 0;
+        for(int shift = 0; shift < 64; shift += 7) {
+            int read = input.read();
+            if(read < 0) throw new EOFException("Truncated trace");
+            value |= (long) (read & 0x7F) << shift;
+            if((read & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed trace");
+    }
+
+    /**
+     * Crea una RdP con el marcado inicial de la traza y sin ventanas temporales, lista para reproducirla.
+     *
+     * @param net definición de la RdP grabada
+     * @return RdP
+     * @throws IllegalArgumentException si la RdP no tiene las dimensiones de la traza
+     */
+    public PetriNet createPetriNet(NetDefinition net) {
+        if(net.getTotalPlaces() != initialMarking.length || net.getTotalTransitions() != totalTransitions) {
+            throw new IllegalArgumentException(String.format("Trace recorded on a net with %d places and %d "
+                    + "transitions", initialMarking.length, totalTransitions));
+        }
+        PetriNet petriNet = new PetriNet(net);
+        petriNet.setMarking(initialMarking);
+        long[] beta = new long[totalTransitions];
+        Arrays.fill(beta, SensitizedVector.UNBOUNDED);
+        petriNet.setSensitizedVector(new SensitizedVector(new WindowScheduler() {
+            @Override
+            public void schedule(int transition, long deadline) {
+                /*Sin transiciones temporizadas no se agendan aperturas*/
+            }
+
+            @Override
+            public void start() {
+            }
+
+            @Override
+            public void stop() {
+            }
+        }, System::nanoTime, new long[totalTransitions], beta, ExpiryPolicy.RESET));
+        return petriNet;
+    }
+
+    /**
+     * Dispara la secuencia grabada sobre la RdP, que debe estar en el marcado inicial de la traza, hasta el final
+     *  o hasta el primer disparo que no puede realizarse.
+     *
+     * @param petriNet RdP sobre la que se reproduce la traza
+     * @return cantidad de disparos reproducidos, menor que getFirings() si la reproducción divergió
+     */
+    public int replay(PetriNet petriNet) {
+        for(int firing = 0; firing < firings.length; firing++) {
+            if(!petriNet.shoot(firings[firing], false)) return firing;
+        }
+        return firings.length;
+    }
+
+    /**
+     * Reproduce la traza sobre el proceso modelado, realizando la tarea de cada disparo, y en cada decisión
+     *  grabada vuelve a consultar a la política con las mismas candidatas. La política depende del estado del
+     *  proceso (por ejemplo, de los contadores de disparos), por lo que una diferencia indica que la ejecución
+     *  grabada llegó a la decisión con un estado distinto al de la secuencia, o que la política cambió.
+     *
+     * @param modelledProcess proceso modelado sobre una RdP en el marcado inicial de la traza
+     * @param policy política a consultar
+     * @param mismatches lista a la que se agregan las primeras diferencias descriptas
+     * @return cantidad de decisiones que difieren
+     */
+    public long checkPolicy(ModelledProcess modelledProcess, Policy policy, List<String> mismatches) {
+        PetriNet petriNet = modelledProcess.getPetriNet();
+        long[] candidates = BitMask.create(totalTransitions);
+        long count = 0;
+        int decision = 0;
+        for(int firing = 0; firing <= firings.length; firing++) {
+            for(; decision < decisionPositions.length && decisionPositions[decision] == firing; decision++) {
+                System.arraycopy(decisionCandidates, decision * words, candidates, 0, words);
+                int chosen = policy.getPriorityShooter(candidates);
+                if(chosen != decisionChoices[decision]) {
+                    if(count++ < SHOWN_MISMATCHES) {
+                        mismatches.add(String.format("Decision %d after firing %d: recorded T%d, policy chose T%d "
+                                + "among %s", decision, firing, decisionChoices[decision] + 1, chosen + 1,
+                                BitMask.toList(candidates)));
+                    }
+                }
+            }
+            if(firing == firings.length) break;
+            if(!petriNet.shoot(firings[firing], false)) break;
+            modelledProcess.realizeTask(firings[firing]);
+        }
+        return count;
+    }
+
+    /**
+     * Retorna la cantidad de disparos de la traza.
+     *
+     * @return firings
+     */
+    public int getFirings() {
+        return firings.length;
+    }
+
+    /**
+     * Retorna la cantidad de decisiones de la política de la traza.
+     *
+     * @return decisions
+     */
+    public int getDecisions() {
+        return decisionChoices.length;
+    }
+
+    /**
+     * Retorna la transición de un disparo de la traza.
+     *
+     * @param firing índice del disparo
+     * @return transición
+     */
+    public int getFiring(int firing) {
+        return firings[firing];
+    }
+
+    /**
+     * Retorna la especificación de la política con que se grabó la traza.
+     *
+     * @return policy
+     */
+    public String getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Reproduce una traza: verifica que la secuencia sea disparable, mide la velocidad del motor (-Dreplay.repeat
+     *  veces) y vuelve a consultar a la política grabada en cada decisión.
+     *
+     * @param args traza y, opcionalmente, archivo PNML de la RdP (por defecto ../PetriNetPipe.xml)
+     * @throws IOException si no se pueden leer los archivos
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 1 || args.length > 2) {
+            System.out.println("Usage: TraceReplayer <trace.bin> [net.pnml]");
+            return;
+        }
+        TraceReplayer trace = load(Paths.get(args[0]));
+        NetDefinition net = PnmlLoader.load(Paths.get(args.length > 1 ? args[1] : "../PetriNetPipe.xml"));
+        System.out.printf("Trace: %d firings, %d policy decisions, policy %s%n", trace.getFirings(),
+                trace.getDecisions(), trace.getPolicy());
+        int repeat = Integer.getInteger("replay.repeat", 1);
+        for(int run = 0; run < repeat; run++) {
+            PetriNet petriNet = trace.createPetriNet(net);
+            long started = System.nanoTime();
+            int replayed = trace.replay(petriNet);
+            long elapsed = System.nanoTime() - started;
+            if(replayed < trace.getFirings()) {
+                System.out.printf("Diverged at firing %d: T%d is not enabled in %s%n", replayed,
+                        trace.getFiring(replayed) + 1, Arrays.toString(petriNet.getMarking()));
+                return;
+            }
+            System.out.printf("Replayed %d firings in %.1fms (%.0f firings/s)%n", replayed, elapsed / 1e6,
+                    replayed * 1e9 / elapsed);
+        }
+
+        PetriNet petriNet = trace.createPetriNet(net);
+        List<List<Integer>> piecesTransitions = InvariantCalculator.firingSequences(
+                petriNet.getIncidenceMatrix(), net.getInitialMarking());
+        ModelledProcess modelledProcess = new ModelledProcess(petriNet, piecesTransitions, trace.getPolicy());
+        List<String> mismatches = new ArrayList<>();
+        long count = trace.checkPolicy(modelledProcess, modelledProcess.getPolitics(), mismatches);
+        System.out.printf("Policy decisions differing from the recording: %d of %d%n", count, trace.getDecisions());
+        mismatches.forEach(mismatch -> System.out.println("  " + mismatch));
+    }
+}
@@ -0,0 +1,143 @@
+package org.compurrentes;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Cola de hilos esperando por una transición, con entrega directa del mutex del monitor. Es una lista FIFO
+ *  intrusiva de nodos, uno por hilo y reutilizado en cada espera, por lo que encolar no genera objetos. La lista
+ *  y el contador sólo se modifican con el mutex del monitor tomado (enqueue y release), así que no necesitan
+ *  locks propios; lo único concurrente es el estado de cada nodo, que el hilo que despierta y el hilo que espera
+ *  resuelven con compareAndSet: quien despierta reserva el nodo (RESERVED), y el hilo que espera, si es
+ *  interrumpido, intenta pasarlo a CANCELLED. Si gana la reserva, el hilo ya no puede dejar la cola: quien
+ *  despierta actualiza su estado (ver Queues.release) y recién entonces le entrega el mutex (GRANTED) y hace
+ *  unpark; el hilo continúa con la interrupción pendiente. Si gana la cancelación, el nodo queda en la lista y
+ *  reserve lo descarta al encontrarlo.
+ */
+public class WaiterQueue {
+
+    private static final int WAITING = 0;
+    private static final int GRANTED = 1;
+    private static final int CANCELLED = 2;
+    private static final int RESERVED = 3;
+    private static final VarHandle STATE;
+    private static final ThreadLocal<Node> NODES = ThreadLocal.withInitial(Node::new); /*Nodo de cada hilo*/
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(Node.class, "state", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Node head; /*Próximo hilo a despertar*/
+    private Node tail;
+    private Node reserved; /*Hilo elegido por reserve, a despertar con grant*/
+    private int size; /*Nodos en la lista, incluye cancelados todavía no descartados*/
+    private final AtomicInteger cancelled = new AtomicInteger(); /*Nodos cancelados todavía en la lista*/
+
+    /**
+     * Registra al hilo actual al final de la cola. Debe llamarse con el mutex del monitor tomado, antes de
+     *  liberarlo y de llamar a await, para que ningún disparo posterior pierda al hilo.
+     */
+    public void enqueue() {
+        Node node = NODES.get();
+        node.state = WAITING;
+        node.next = null;
+        if(tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+        }
+        tail = node;
+        size++;
+    }
+
+    /**
+     * Bloquea al hilo actual, registrado con enqueue, hasta que release le entregue el mutex del monitor.
+     *  Si el hilo es interrumpido antes de la entrega, deja la cola y lanza la excepción sin el mutex; si la
+     *  interrupción llega junto con la entrega, retorna con el mutex y la interrupción pendiente.
+     *
+     * @throws InterruptedException si el hilo fue interrumpido antes de recibir el mutex
+     */
+    public void await() throws InterruptedException {
+        Node node = NODES.get();
+        while(node.state != GRANTED) {
+            LockSupport.park(this);
+            if(Thread.interrupted()) {
+                if(STATE.compareAndSet(node, WAITING, CANCELLED)) {
+                    cancelled.incrementAndGet();
+                    NODES.remove(); /*El nodo sigue en la lista hasta que reserve lo descarte*/
+                    throw new InterruptedException();
+                }
+                Thread.currentThread().interrupt(); /*Ya fue reservado, recibe el mutex en grant*/
+            }
+        }
+    }
+
+    /**
+     * Saca de la cola al primer hilo que sigue esperando y lo reserva para grant, descartando los hilos que
+     *  dejaron la cola por interrupción. El hilo reservado ya no cuenta en size. Debe llamarse con el mutex tomado.
+     *
+     * @return true si se reservó un hilo, false si la cola no tenía hilos esperando
+     */
+    public boolean reserve() {
+        while(head != null) {
+            Node node = head;
+            head = node.next;
+            if(head == null) tail = null;
+            size--;
+            if(STATE.compareAndSet(node, WAITING, RESERVED)) {
+                reserved = node;
+                return true;
+            }
+            cancelled.decrementAndGet(); /*Nodo cancelado, se descarta*/
+        }
+        return false;
+    }
+
+    /**
+     * Entrega el mutex del monitor al hilo reservado y lo despierta. Desde acá el mutex es del hilo despertado.
+     */
+    public void grant() {
+        Node node = reserved;
+        reserved = null;
+        node.state = GRANTED;
+        LockSupport.unpark(node.thread);
+    }
+
+    /**
+     * Despierta al primer hilo de la cola entregándole el mutex del monitor, como reserve seguido de grant. Debe
+     *  llamarse con el mutex tomado; si retorna true, el mutex pasó al hilo despertado.
+     *
+     * @return true si se despertó un hilo, false si la cola no tenía hilos esperando
+     */
+    public boolean release() {
+        if(!reserve()) return false;
+        grant();
+        return true;
+    }
+
+    /**
+     * Retorna la cantidad de hilos esperando en la cola, sin contar los cancelados, en O(1). Debe leerse con el
+     *  mutex tomado; un hilo interrumpido en ese momento puede contarse todavía.
+     *
+     * @return hilos registrados, no reservados ni cancelados
+     */
+    public int size() {
+        return size - cancelled.get();
+    }
+
+    /**
+     * Nodo de la lista: un hilo esperando.
+     */
+    private static final class Node {
+
+        private final Thread thread = Thread.currentThread();
+        private volatile int state;
+        private Node next;
+    }
+}
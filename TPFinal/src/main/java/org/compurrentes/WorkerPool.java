@@ -0,0 +1,216 @@
+package org.compurrentes;
+
+import org.compurrentes.beans.Segment;
+import org.compurrentes.beans.SensitizedVector;
+import org.compurrentes.beans.WindowExpiredException;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Conjunto de trabajadores con robo de trabajo, alternativa a los shooters fijos de cada segmento (ver Shooter).
+ *  Cada segmento tiene una cola doble de trabajos pendientes, uno por hilo del segmento, donde cada trabajo es la
+ *  próxima transición tomada del ciclo del segmento; así hay en todo momento tantas transiciones pendientes por
+ *  segmento como hilos tendría con shooters fijos. Cada trabajador prefiere los trabajos de su segmento, pero si
+ *  ninguno puede dispararse toma los de otros segmentos, de modo que los hilos siguen a los tokens en lugar de
+ *  quedar bloqueados en un segmento sin trabajo.
+ *  Los trabajadores buscan trabajos disparables con Monitor.tryShootTransition, sin esperar. Si no encuentran
+ *  ninguno, toman un trabajo de su segmento y esperan por él en el monitor, como un shooter: así, al liberarse un
+ *  recurso compartido, la política elige entre los trabajadores en espera igual que con shooters fijos, en lugar
+ *  de ganar el primero que llega. Si su segmento no tiene trabajos libres, se duermen hasta el próximo disparo
+ *  de otro trabajador o, a lo sumo, IDLE_PARK.
+ *  Un trabajo tomado que no se dispara, incluso si el trabajador es interrumpido, vuelve a la cola de su segmento,
+ *  por lo que cada segmento conserva siempre la misma cantidad de trabajos pendientes.
+ */
+public class WorkerPool {
+
+    private static final long IDLE_PARK = TimeUnit.MILLISECONDS.toNanos(1); /*Espera máxima sin disparos*/
+
+    private final Monitor monitor;
+    private final Segment[] segments;
+    private final ModelledProcess modelledProcess;
+    private final List<Deque<Integer>> jobs = new ArrayList<>(); /*Trabajos pendientes de cada segmento*/
+    private final Queue<Thread> idle = new ConcurrentLinkedQueue<>(); /*Trabajadores dormidos sin trabajo*/
+    private final AtomicLong epoch = new AtomicLong(); /*Disparos realizados, para no dormirse luego de uno*/
+    private final LongAdder stolen = new LongAdder(); /*Disparos de trabajos de otro segmento*/
+
+    /**
+     * Constructor de la clase. Toma del ciclo de cada segmento un trabajo por hilo del segmento.
+     *
+     * @param monitor monitor del sistema, debe admitir disparos sin espera
+     * @param segments segmentos de la RdP
+     * @param modelledProcess proceso modelado de la RdP
+     * @throws IllegalArgumentException si el monitor no admite disparos sin espera (ver Monitor.supportsTryShoot)
+     */
+    public WorkerPool(Monitor monitor, Segment[] segments, ModelledProcess modelledProcess) {
+        if(!monitor.supportsTryShoot()) {
+            throw new IllegalArgumentException("Work stealing requires a monitor with non-blocking firing, got "
+                    + monitor.getClass().getSimpleName());
+        }
+        this.monitor = monitor;
+        this.segments = segments;
+        this.modelledProcess = modelledProcess;
+        for(Segment segment : segments) {
+            Deque<Integer> deque = new ConcurrentLinkedDeque<>();
+            for(int job = 0; job < segment.getThreadNumber(); job++) {
+                deque.offerLast(segment.getTransitions().next());
+            }
+            jobs.add(deque);
+        }
+    }
+
+    /**
+     * Crea un trabajador con preferencia por los trabajos del segmento indicado.
+     *
+     * @param affinity segmento preferido
+     * @return trabajador, a ejecutar en su propio hilo hasta que sea interrumpido
+     * @throws IllegalArgumentException si el segmento no pertenece al conjunto
+     */
+    public Runnable createWorker(Segment affinity) {
+        for(int segment = 0; segment < segments.length; segment++) {
+            if(segments[segment] == affinity) {
+                int preferred = segment;
+                return () -> work(preferred);
+            }
+        }
+        throw new IllegalArgumentException("Unknown segment " + affinity);
+    }
+
+    /**
+     * Ciclo de un trabajador: dispara trabajos hasta ser interrumpido, esperando en el monitor por un trabajo de
+     *  su segmento cuando no hay ninguno disparable. Igual que en Shooter, una RuntimeException indica que el
+     *  hilo fue interrumpido.
+     *
+     * @param affinity segmento preferido
+     */
+    private void work(int affinity) {
+        Thread current = Thread.currentThread();
+        try {
+            while(!current.isInterrupted()) {
+                long seen = epoch.get();
+                if(runOne(affinity) || await(affinity)) continue;
+                idle.add(current);
+                if(epoch.get() == seen) { /*Si hubo un disparo durante la búsqueda, se busca de nuevo*/
+                    LockSupport.parkNanos(this, IDLE_PARK);
+                }
+                idle.remove(current);
+            }
+        } catch (RuntimeException e) {
+            /*Interrumpido dentro del monitor o durante la tarea*/
+        }
+    }
+
+    /**
+     * Busca un trabajo disparable, primero en el segmento preferido y luego en los siguientes, y lo dispara sin
+     *  esperar.
+     *
+     * @param affinity segmento preferido
+     * @return true si se disparó un trabajo
+     */
+    private boolean runOne(int affinity) {
+        for(int offset = 0; offset < segments.length; offset++) {
+            int segment = (affinity + offset) % segments.length;
+            Deque<Integer> deque = jobs.get(segment);
+            for(int attempt = 0; attempt < segments[segment].getThreadNumber(); attempt++) {
+                Integer transition = deque.pollFirst();
+                if(transition == null) break;
+                boolean fired = false;
+                try {
+                    fired = fire(transition);
+                } finally {
+                    if(!fired) deque.offerLast(transition); /*También si el hilo fue interrumpido*/
+                }
+                if(!fired) continue;
+                if(offset > 0) stolen.increment();
+                fired(segment, transition);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Toma un trabajo del segmento preferido y espera en el monitor hasta dispararlo.
+     *
+     * @param affinity segmento preferido
+     * @return true si se disparó el trabajo, false si el segmento no tenía trabajos libres o la ventana venció
+     */
+    private boolean await(int affinity) {
+        Integer transition = jobs.get(affinity).pollFirst();
+        if(transition == null) return false;
+        boolean fired = false;
+        try {
+            monitor.shootTransition(transition);
+            fired = true;
+        } catch (WindowExpiredException e) {
+            return false; /*Ventana reiniciada, se vuelve a buscar*/
+        } finally {
+            if(!fired) jobs.get(affinity).offerFirst(transition); /*El segmento conserva sus trabajos pendientes*/
+        }
+        fired(affinity, transition);
+        return true;
+    }
+
+    /**
+     * Repone el trabajo disparado con la próxima transición del ciclo de su segmento, despierta a un trabajador
+     *  dormido y realiza la tarea.
+     *
+     * @param segment segmento del trabajo
+     * @param transition transición disparada
+     */
+    private void fired(int segment, int transition) {
+        jobs.get(segment).offerLast(segments[segment].getTransitions().next());
+        epoch.incrementAndGet();
+        LockSupport.unpark(idle.poll());
+        modelledProcess.realizeTask(transition);
+    }
+
+    /**
+     * Intenta disparar la transición de un trabajo tomado. Las transiciones que no están sensibilizadas por
+     *  tokens o cuya ventana no se abrió se descartan sin entrar al monitor; esa lectura sin el mutex es sólo una
+     *  estimación, y el monitor decide.
+     *
+     * @param transition transición del trabajo
+     * @return true si se disparó
+     * @throws RuntimeException si el hilo es interrumpido
+     */
+    private boolean fire(int transition) {
+        PetriNet petriNet = modelledProcess.getPetriNet();
+        SensitizedVector sensitizedVector = petriNet.getSensitizedVector();
+        if(!BitMask.isSet(petriNet.getSensitizedMask(), transition)
+                || BitMask.isSet(sensitizedVector.getPendingMask(), transition)) {
+            return false;
+        }
+        try {
+            return monitor.tryShootTransition(transition);
+        } catch (WindowExpiredException e) {
+            return false; /*Ventana reiniciada, se reintenta en la próxima búsqueda*/
+        }
+    }
+
+    /**
+     * Retorna la cantidad de disparos de trabajos tomados de un segmento distinto al preferido del trabajador.
+     *
+     * @return stolen
+     */
+    public long getStolen() {
+        return stolen.sum();
+    }
+
+    /**
+     * Retorna la cantidad total de disparos de los trabajadores.
+     *
+     * @return firings
+     */
+    public long getFirings() {
+        return epoch.get();
+    }
+}
@@ -0,0 +1,307 @@
+package org.compurrentes.analysis;
+
+import org.compurrentes.BitMask;
+import org.compurrentes.IncidenceMatrix;
+import org.compurrentes.PnmlLoader;
+import org.compurrentes.beans.NetDefinition;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Cálculo de los invariantes mínimos de una RdP con el algoritmo de Farkas, en aritmética entera.
+ *  Los P-invariantes son los vectores y >= 0 tales que y^T C = 0 (la suma ponderada de tokens de sus plazas se
+ *  conserva en todo disparo) y los T-invariantes los vectores x >= 0 tales que C x = 0 (secuencias de disparo que
+ *  vuelven al mismo marcado), con C la matriz de incidencia plazas x transiciones. Sólo se devuelven los de soporte
+ *  mínimo, normalizados por el máximo común divisor de sus componentes.
+ *  Las columnas se eliminan en el orden que genera menos combinaciones (menor producto de filas positivas por
+ *  negativas) y en cada paso se descartan las filas cuyo soporte contiene al de otra, lo que mantiene el tamaño de
+ *  las tablas intermedias acotado en redes de cientos de plazas. Un desborde de long lanza ArithmeticException.
+ */
+public final class InvariantCalculator {
+
+    private InvariantCalculator() {
+    }
+
+    /**
+     * Calcula los P-invariantes mínimos de la RdP.
+     *
+     * @param incidenceMatrix matriz de incidencia de la RdP
+     * @return P-invariantes, cada uno con un peso por plaza
+     * @throws ArithmeticException si algún coeficiente intermedio desborda
+     */
+    public static List<int[]> placeInvariants(IncidenceMatrix incidenceMatrix) {
+        return farkas(incidence(incidenceMatrix));
+    }
+
+    /**
+     * Calcula los T-invariantes mínimos de la RdP.
+     *
+     * @param incidenceMatrix matriz de incidencia de la RdP
+     * @return T-invariantes, cada uno con una cantidad de disparos por transición
+     * @throws ArithmeticException si algún coeficiente intermedio desborda
+     */
+    public static List<int[]> transitionInvariants(IncidenceMatrix incidenceMatrix) {
+        long[][] incidence = incidence(incidenceMatrix);
+        long[][] transposed = new long[incidenceMatrix.getTotalTransitions()][incidenceMatrix.getTotalPlaces()];
+        for(int place = 0; place < transposed[0].length; place++) {
+            for(int transition = 0; transition < transposed.length; transition++) {
+                transposed[transition][place] = incidence[place][transition];
+            }
+        }
+        return farkas(transposed);
+    }
+
+    /**
+     * Ordena cada T-invariante como una secuencia de disparo realizable desde el marcado dado: se dispara
+     *  repetidamente la primera transición sensibilizada del invariante a la que le quedan disparos. Si en algún
+     *  punto ninguna está sensibilizada, las restantes se agregan en orden de índice. Las secuencias se devuelven
+     *  en orden lexicográfico, que es el orden de los caminos de producción usado por las políticas.
+     *
+     * @param incidenceMatrix matriz de incidencia de la RdP
+     * @param marking marcado desde el que se disparan las secuencias
+     * @return una secuencia de transiciones por T-invariante
+     */
+    public static List<List<Integer>> firingSequences(IncidenceMatrix incidenceMatrix, int[] marking) {
+        List<List<Integer>> sequences = new ArrayList<>();
+        for(int[] invariant : transitionInvariants(incidenceMatrix)) {
+            int[] remaining = invariant.clone();
+            int[] current = marking.clone();
+            List<Integer> sequence = new ArrayList<>();
+            boolean fired = true;
+            while(fired) {
+                fired = false;
+                for(int transition = 0; transition < remaining.length && !fired; transition++) {
+                    if(remaining[transition] > 0 && incidenceMatrix.isEnabled(current, transition)) {
+                        incidenceMatrix.fire(current, transition);
+                        remaining[transition]--;
+                        sequence.add(transition);
+                        fired = true;
+                    }
+                }
+            }
+            for(int transition = 0; transition < remaining.length; transition++) {
+                for(int shot = 0; shot < remaining[transition]; shot++) sequence.add(transition);
+            }
+            sequences.add(sequence);
+        }
+        sequences.sort(InvariantCalculator::compare);
+        return sequences;
+    }
+
+    private static int compare(List<Integer> first, List<Integer> second) {
+        for(int i = 0; i < Math.min(first.size(), second.size()); i++) {
+            int order = Integer.compare(first.get(i), second.get(i));
+            if(order != 0) return order;
+        }
+        return Integer.compare(first.size(), second.size());
+    }
+
+    /**
+     * Construye la matriz de incidencia densa C = post - pre (plazas x transiciones).
+     */
+    private static long[][] incidence(IncidenceMatrix incidenceMatrix) {
+        long[][] incidence = new long[incidenceMatrix.getTotalPlaces()][incidenceMatrix.getTotalTransitions()];
+        for(int transition = 0; transition < incidenceMatrix.getTotalTransitions(); transition++) {
+            int[] places = incidenceMatrix.getInputPlaces(transition);
+            int[] weights = incidenceMatrix.getInputWeights(transition);
+            for(int i = 0; i < places.length; i++) incidence[places[i]][transition] -= weights[i];
+            places = incidenceMatrix.getOutputPlaces(transition);
+            weights = incidenceMatrix.getOutputWeights(transition);
+            for(int i = 0; i < places.length; i++) incidence[places[i]][transition] += weights[i];
+        }
+        return incidence;
+    }
+
+    /**
+     * Algoritmo de Farkas: calcula los vectores y >= 0 de soporte mínimo tales que y^T A = 0.
+     *
+     * @param matrix matriz A, una fila por variable
+     * @return soluciones mínimas, normalizadas
+     */
+    private static List<int[]> farkas(long[][] matrix) {
+        int variables = matrix.length;
+        int constraints = variables == 0 ? 0 : matrix[0].length;
+        List<Row> rows = new ArrayList<>();
+        for(int variable = 0; variable < variables; variable++) {
+            rows.add(Row.unit(matrix[variable], variable, variables));
+        }
+        boolean[] eliminated = new boolean[constraints];
+        for(int step = 0; step < constraints; step++) {
+            int column = nextColumn(rows, eliminated);
+            eliminated[column] = true;
+            List<Row> next = new ArrayList<>();
+            List<Row> positive = new ArrayList<>();
+            List<Row> negative = new ArrayList<>();
+            for(Row row : rows) {
+                long value = row.constraints[column];
+                if(value == 0) next.add(row);
+                else if(value > 0) positive.add(row);
+                else negative.add(row);
+            }
+            for(Row first : positive) {
+                for(Row second : negative) {
+                    next.add(Row.combine(first, second, column));
+                }
+            }
+            rows = minimal(next);
+        }
+        List<int[]> invariants = new ArrayList<>();
+        for(Row row : rows) {
+            invariants.add(Arrays.stream(row.solution).mapToInt(Math::toIntExact).toArray());
+        }
+        invariants.sort(Arrays::compare);
+        return invariants;
+    }
+
+    /**
+     * Elige la próxima columna a eliminar: la que genera menos combinaciones de filas.
+     */
+    private static int nextColumn(List<Row> rows, boolean[] eliminated) {
+        int best = -1;
+        long bestCost = Long.MAX_VALUE;
+        for(int column = 0; column < eliminated.length; column++) {
+            if(eliminated[column]) continue;
+            long positive = 0;
+            long negative = 0;
+            for(Row row : rows) {
+                if(row.constraints[column] > 0) positive++;
+                else if(row.constraints[column] < 0) negative++;
+            }
+            if(positive * negative < bestCost) {
+                best = column;
+                bestCost = positive * negative;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Descarta las filas cuyo soporte contiene estrictamente al de otra fila, y las repetidas.
+     */
+    private static List<Row> minimal(List<Row> rows) {
+        rows.sort(Comparator.comparingInt(row -> row.size));
+        List<Row> kept = new ArrayList<>();
+        for(Row row : rows) {
+            boolean redundant = false;
+            for(Row other : kept) {
+                if(other.size <= row.size && other.isSubsetOf(row)) {
+                    redundant = true;
+                    break;
+                }
+            }
+            if(!redundant) kept.add(row);
+        }
+        return kept;
+    }
+
+    /**
+     * Fila de la tabla de Farkas: restricciones todavía no eliminadas y combinación de variables que la genera.
+     */
+    private static final class Row {
+
+        private final long[] constraints;
+        private final long[] solution;
+        private final long[] support; /*Variables con coeficiente no nulo*/
+        private final int size; /*Cantidad de variables del soporte*/
+
+        private Row(long[] constraints, long[] solution) {
+            this.constraints = constraints;
+            this.solution = solution;
+            support = BitMask.create(solution.length);
+            for(int variable = 0; variable < solution.length; variable++) {
+                if(solution[variable] != 0) BitMask.set(support, variable);
+            }
+            int count = 0;
+            for(long word : support) count += Long.bitCount(word);
+            size = count;
+        }
+
+        private static Row unit(long[] constraints, int variable, int variables) {
+            long[] solution = new long[variables];
+            solution[variable] = 1;
+            return new Row(constraints.clone(), solution);
+        }
+
+        /**
+         * Combina una fila con valor positivo y otra con valor negativo en la columna para anularla.
+         */
+        private static Row combine(Row first, Row second, int column) {
+            long a = first.constraints[column];
+            long b = -second.constraints[column];
+            long divisor = gcd(a, b);
+            long firstFactor = b / divisor;
+            long secondFactor = a / divisor;
+            long[] constraints = new long[first.constraints.length];
+            long[] solution = new long[first.solution.length];
+            long common = 0;
+            for(int i = 0; i < constraints.length; i++) {
+                constraints[i] = Math.addExact(Math.multiplyExact(firstFactor, first.constraints[i]),
+                        Math.multiplyExact(secondFactor, second.constraints[i]));
+                common = gcd(common, Math.abs(constraints[i]));
+            }
+            for(int i = 0; i < solution.length; i++) {
+                solution[i] = Math.addExact(Math.multiplyExact(firstFactor, first.solution[i]),
+                        Math.multiplyExact(secondFactor, second.solution[i]));
+                common = gcd(common, solution[i]);
+            }
+            if(common > 1) {
+                for(int i = 0; i < constraints.length; i++) constraints[i] /= common;
+                for(int i = 0; i < solution.length; i++) solution[i] /= common;
+            }
+            return new Row(constraints, solution);
+        }
+
+        private boolean isSubsetOf(Row other) {
+            for(int word = 0; word < support.length; word++) {
+                if((support[word] & ~other.support[word]) != 0) return false;
+            }
+            return true;
+        }
+    }
+
+    private static long gcd(long a, long b) {
+        while(b != 0) {
+            long rest = a % b;
+            a = b;
+            b = rest;
+        }
+        return a;
+    }
+
+    /**
+     * Calcula e imprime los invariantes de la RdP definida en un archivo PNML.
+     *
+     * @param args archivo PNML (por defecto ../PetriNetPipe.xml)
+     * @throws IOException si no se puede leer el archivo
+     */
+    public static void main(String[] args) throws IOException {
+        NetDefinition net = PnmlLoader.load(Paths.get(args.length > 0 ? args[0] : "../PetriNetPipe.xml"));
+        IncidenceMatrix incidenceMatrix = new IncidenceMatrix(net.getPre(), net.getPost());
+        System.out.println("P-invariants");
+        for(int[] invariant : placeInvariants(incidenceMatrix)) {
+            System.out.println("  " + describe(invariant, net.getPlaceNames(), net.getInitialMarking()));
+        }
+        System.out.println("T-invariants");
+        for(int[] invariant : transitionInvariants(incidenceMatrix)) {
+            System.out.println("  " + describe(invariant, net.getTransitionNames(), null));
+        }
+        System.out.println("Production paths " + firingSequences(incidenceMatrix, net.getInitialMarking()));
+    }
+
+    private static String describe(int[] invariant, List<String> names, int[] marking) {
+        StringBuilder text = new StringBuilder();
+        long total = 0;
+        for(int i = 0; i < invariant.length; i++) {
+            if(invariant[i] == 0) continue;
+            if(text.length() > 0) text.append(" + ");
+            text.append(invariant[i] == 1 ? "" : invariant[i] + "·").append(names.get(i));
+            if(marking != null) total += (long) invariant[i] * marking[i];
+        }
+        return marking == null ? text.toString() : text + " = " + total;
+    }
+}
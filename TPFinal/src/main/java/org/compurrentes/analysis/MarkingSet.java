@@ -0,0 +1,103 @@
+package org.compurrentes.analysis;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Conjunto concurrente de marcados empaquetados, con direccionamiento abierto y sondeo lineal. Cada marcado
+ *  ocupa una cantidad fija de palabras de 64 bits y se guarda en un único arreglo de longs, sin generar objetos
+ *  por marcado. Cada ranura tiene un estado atómico (vacía, escribiéndose, ocupada): el hilo que reclama una ranura
+ *  vacía con compareAndSet escribe el marcado y luego la publica como ocupada; quien encuentra una ranura
+ *  escribiéndose espera a que se publique antes de comparar.
+ *  La capacidad es fija, elegida al crear el conjunto, ya que crecer obligaría a detener a todos los hilos.
+ */
+final class MarkingSet {
+
+    private static final int EMPTY = 0;
+    private static final int WRITING = 1;
+    private static final int FULL = 2;
+    private static final double MAX_LOAD = 0.9; /*Carga máxima antes de considerar el conjunto lleno*/
+
+    private final int words; /*Palabras por marcado*/
+    private final long[] keys; /*Marcados, words palabras por ranura*/
+    private final AtomicIntegerArray states; /*Estado de cada ranura*/
+    private final int slotMask;
+    private final long maxSize;
+    private final AtomicLong size = new AtomicLong();
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param words palabras de 64 bits de cada marcado
+     * @param capacity cantidad mínima de marcados que debe admitir
+     * @throws IllegalArgumentException si la capacidad no entra en un arreglo
+     */
+    MarkingSet(int words, long capacity) {
+        long slots = Long.highestOneBit(Math.max(2, (long) Math.ceil(capacity / MAX_LOAD)) - 1) << 1;
+        if(slots * words > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Capacity too large: " + capacity);
+        }
+        this.words = words;
+        keys = new long[(int) slots * words];
+        states = new AtomicIntegerArray((int) slots);
+        slotMask = (int) slots - 1;
+        maxSize = (long) (slots * MAX_LOAD);
+    }
+
+    /**
+     * Agrega el marcado que comienza en la posición indicada del arreglo, si no estaba.
+     *
+     * @param marking arreglo que contiene el marcado empaquetado
+     * @param offset posición de la primera palabra del marcado
+     * @return true si el marcado no estaba en el conjunto
+     * @throws IllegalStateException si el conjunto superó su capacidad
+     */
+    boolean add(long[] marking, int offset) {
+        int slot = (int) hash(marking, offset) & slotMask;
+        while(true) {
+            int state = states.get(slot);
+            if(state == EMPTY && states.compareAndSet(slot, EMPTY, WRITING)) {
+                System.arraycopy(marking, offset, keys, slot * words, words);
+                states.set(slot, FULL); /*Publica el marcado*/
+                if(size.incrementAndGet() > maxSize) {
+                    throw new IllegalStateException(String.format(
+                            "State space exceeds the capacity of %d markings (-Danalysis.capacity)", maxSize));
+                }
+                return true;
+            }
+            if(state == EMPTY) continue; /*Otro hilo reclamó la ranura, se vuelve a leer*/
+            while(state == WRITING) {
+                Thread.onSpinWait();
+                state = states.get(slot);
+            }
+            if(equals(marking, offset, slot)) return false;
+            slot = (slot + 1) & slotMask;
+        }
+    }
+
+    /**
+     * Retorna la cantidad de marcados del conjunto.
+     *
+     * @return size
+     */
+    long size() {
+        return size.get();
+    }
+
+    private boolean equals(long[] marking, int offset, int slot) {
+        int base = slot * words;
+        for(int word = 0; word < words; word++) {
+            if(keys[base + word] != marking[offset + word]) return false;
+        }
+        return true;
+    }
+
+    private long hash(long[] marking, int offset) {
+        long hash = 0x9E3779B97F4A7C15L;
+        for(int word = 0; word < words; word++) {
+            hash = (hash ^ marking[offset + word]) * 0xBF58476D1CE4E5B9L;
+            hash ^= hash >>> 31;
+        }
+        return hash ^ (hash >>> 29);
+    }
+}
@@ -0,0 +1,298 @@
+package org.compurrentes.analysis;
+
+import org.compurrentes.BitMask;
+import org.compurrentes.IncidenceMatrix;
+import org.compurrentes.PnmlLoader;
+import org.compurrentes.beans.NetDefinition;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Analizador de alcanzabilidad de una RdP. Explora todos los marcados alcanzables desde el marcado inicial en un
+ *  ForkJoinPool: cada tarea procesa un lote de marcados, dispara cada transición sensibilizada y agrega los
+ *  sucesores nuevos a un lote propio que, al llenarse, se entrega como una nueva tarea que cualquier hilo puede
+ *  robar. Los marcados se guardan empaquetados en palabras de 64 bits en un conjunto concurrente (MarkingSet).
+ *  Reporta los marcados de bloqueo (sin transiciones sensibilizadas), la cota de cada plaza y las transiciones
+ *  muertas (nunca sensibilizadas).
+ *  Cada plaza ocupa en el marcado empaquetado los bits necesarios para su capacidad o, si no tiene, para
+ *  2^analysis.bits - 1 tokens. Un sucesor que excede ese máximo no se explora y la plaza se reporta como
+ *  posiblemente no acotada.
+ *  Ejemplo: {@code java -Danalysis.capacity=50000000 org.compurrentes.analysis.ReachabilityAnalyzer PetriNetPipe.xml}
+ */
+public class ReachabilityAnalyzer {
+
+    public static final int DEFAULT_BITS = Integer.getInteger("analysis.bits", 8); /*Bits de las plazas sin capacidad (-Danalysis.bits=...)*/
+    public static final long DEFAULT_CAPACITY = Long.getLong("analysis.capacity", 1 << 20); /*Máximo de marcados a explorar (-Danalysis.capacity=...)*/
+    public static final int MAX_DEADLOCK_SAMPLES = 100; /*Marcados de bloqueo que se conservan*/
+    private static final int BATCH = 256; /*Marcados por tarea*/
+
+    private final IncidenceMatrix incidenceMatrix;
+    private final int[] initialMarking;
+    private final List<String> placeNames;
+    private final List<String> transitionNames;
+    private final int totalPlaces;
+    private final int totalTransitions;
+    private final int words; /*Palabras de 64 bits por marcado empaquetado*/
+    private final int[] word; /*Palabra de cada plaza*/
+    private final int[] shift; /*Desplazamiento de cada plaza dentro de su palabra*/
+    private final int[] limit; /*Máximo de tokens representable de cada plaza*/
+
+    /**
+     * Constructor de la clase a partir de la definición de la RdP cargada desde un archivo (ver PnmlLoader).
+     *
+     * @param net definición de la RdP
+     */
+    public ReachabilityAnalyzer(NetDefinition net) {
+        this(new IncidenceMatrix(net.getPre(), net.getPost(), net.getCapacities()), net.getInitialMarking(),
+                net.getCapacities(), net.getPlaceNames(), net.getTransitionNames());
+    }
+
+    /**
+     * Constructor de la clase a partir de la matriz de incidencia, por ejemplo la construida desde una matriz de
+     *  flujo. Las plazas y transiciones se nombran P1.. y T1..
+     *
+     * @param incidenceMatrix matriz de incidencia de la RdP
+     * @param initialMarking marcado inicial
+     * @param capacities capacidad de cada plaza (0 = sin límite)
+     */
+    public ReachabilityAnalyzer(IncidenceMatrix incidenceMatrix, int[] initialMarking, int[] capacities) {
+        this(incidenceMatrix, initialMarking, capacities, names("P", incidenceMatrix.getTotalPlaces()),
+                names("T", incidenceMatrix.getTotalTransitions()));
+    }
+
+    private ReachabilityAnalyzer(IncidenceMatrix incidenceMatrix, int[] initialMarking, int[] capacities,
+                                 List<String> placeNames, List<String> transitionNames) {
+        this.incidenceMatrix = incidenceMatrix;
+        this.initialMarking = initialMarking.clone();
+        this.placeNames = placeNames;
+        this.transitionNames = transitionNames;
+        totalPlaces = incidenceMatrix.getTotalPlaces();
+        totalTransitions = incidenceMatrix.getTotalTransitions();
+        word = new int[totalPlaces];
+        shift = new int[totalPlaces];
+        limit = new int[totalPlaces];
+        int current = 0;
+        int used = 0;
+        for(int place = 0; place < totalPlaces; place++) {
+            int maximum = Math.max(capacities[place] > 0 ? capacities[place] : (1 << DEFAULT_BITS) - 1,
+                    initialMarking[place]);
+            int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(maximum));
+            if(used + bits > 64) { /*Una plaza nunca ocupa dos palabras*/
+                current++;
+                used = 0;
+            }
+            word[place] = current;
+            shift[place] = used;
+            limit[place] = (int) ((1L << bits) - 1);
+            used += bits;
+        }
+        words = totalPlaces == 0 ? 1 : current + 1;
+    }
+
+    private static List<String> names(String prefix, int count) {
+        List<String> names = new ArrayList<>();
+        for(int i = 1; i <= count; i++) names.add(prefix + i);
+        return names;
+    }
+
+    /**
+     * Explora los marcados alcanzables con tantos hilos como procesadores disponibles.
+     *
+     * @return resultado del análisis
+     * @throws IllegalStateException si los marcados alcanzables superan DEFAULT_CAPACITY
+     */
+    public ReachabilityReport analyze() {
+        return analyze(Runtime.getRuntime().availableProcessors(), DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Explora los marcados alcanzables.
+     *
+     * @param parallelism cantidad de hilos del ForkJoinPool
+     * @param capacity máximo de marcados a explorar
+     * @return resultado del análisis
+     * @throws IllegalStateException si los marcados alcanzables superan la capacidad
+     */
+    public ReachabilityReport analyze(int parallelism, long capacity) {
+        long start = System.nanoTime();
+        Exploration exploration = new Exploration(new MarkingSet(words, capacity));
+        long[] root = new long[words];
+        pack(initialMarking, root, 0);
+        exploration.visited.add(root, 0);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(exploration.new Explore(null, root, 1));
+        } finally {
+            pool.shutdown();
+        }
+        return exploration.report(System.nanoTime() - start);
+    }
+
+    /**
+     * Empaqueta el marcado en el arreglo a partir de la posición indicada. El marcado debe entrar en los campos.
+     */
+    private void pack(int[] marking, long[] packed, int offset) {
+        for(int place = 0; place < totalPlaces; place++) {
+            packed[offset + word[place]] |= (long) marking[place] << shift[place];
+        }
+    }
+
+    /**
+     * Dispara la transición sobre el marcado empaquetado, en el lugar. Como la transición está sensibilizada,
+     *  restar los tokens de entrada no toma prestado de la plaza vecina; al sumar los de salida se verifica que no
+     *  se exceda el máximo representable.
+     *
+     * @return -1 si el sucesor entra, o la primera plaza que excede su máximo representable
+     */
+    private int fire(long[] packed, int offset, int transition) {
+        int[] places = incidenceMatrix.getInputPlaces(transition);
+        int[] weights = incidenceMatrix.getInputWeights(transition);
+        for(int i = 0; i < places.length; i++) {
+            packed[offset + word[places[i]]] -= (long) weights[i] << shift[places[i]];
+        }
+        places = incidenceMatrix.getOutputPlaces(transition);
+        weights = incidenceMatrix.getOutputWeights(transition);
+        for(int i = 0; i < places.length; i++) {
+            int place = places[i];
+            long current = (packed[offset + word[place]] >>> shift[place]) & limit[place];
+            if(current + weights[i] > limit[place]) return place;
+            packed[offset + word[place]] += (long) weights[i] << shift[place];
+        }
+        return -1;
+    }
+
+    private void unpack(long[] packed, int offset, int[] marking) {
+        for(int place = 0; place < totalPlaces; place++) {
+            marking[place] = (int) ((packed[offset + word[place]] >>> shift[place]) & limit[place]);
+        }
+    }
+
+    /**
+     * Estado compartido de una exploración.
+     */
+    private final class Exploration {
+
+        private final MarkingSet visited;
+        private final LongAdder arcs = new LongAdder();
+        private final LongAdder deadlocks = new LongAdder();
+        private final Queue<int[]> deadlockSamples = new ConcurrentLinkedQueue<>();
+        private final AtomicIntegerArray bounds = new AtomicIntegerArray(totalPlaces);
+        private final AtomicIntegerArray overflowed = new AtomicIntegerArray(totalPlaces);
+        private final AtomicLongArray fireable = new AtomicLongArray(BitMask.create(totalTransitions).length);
+
+        private Exploration(MarkingSet visited) {
+            this.visited = visited;
+        }
+
+        private ReachabilityReport report(long elapsed) {
+            int[] placeBounds = new int[totalPlaces];
+            boolean[] placeOverflowed = new boolean[totalPlaces];
+            for(int place = 0; place < totalPlaces; place++) {
+                placeOverflowed[place] = overflowed.get(place) != 0;
+                placeBounds[place] = placeOverflowed[place] ? limit[place] : bounds.get(place);
+            }
+            long[] fired = new long[fireable.length()];
+            for(int i = 0; i < fired.length; i++) fired[i] = fireable.get(i);
+            boolean[] transitions = new boolean[totalTransitions];
+            for(int transition = 0; transition < totalTransitions; transition++) {
+                transitions[transition] = BitMask.isSet(fired, transition);
+            }
+            return new ReachabilityReport(placeNames, transitionNames, visited.size(), arcs.sum(), deadlocks.sum(),
+                    new ArrayList<>(deadlockSamples), placeBounds, placeOverflowed, transitions, elapsed);
+        }
+
+        /**
+         * Tarea que explora un lote de marcados empaquetados. Los sucesores nuevos se entregan en tareas hijas;
+         *  la tarea se completa cuando se completaron todas sus hijas, sin bloquear al hilo esperándolas.
+         */
+        private final class Explore extends CountedCompleter<Void> {
+
+            private static final long serialVersionUID = 1L;
+
+            private final long[] batch;
+            private final int count;
+
+            private Explore(Explore parent, long[] batch, int count) {
+                super(parent);
+                this.batch = batch;
+                this.count = count;
+            }
+
+            @Override
+            public void compute() {
+                int[] marking = new int[totalPlaces];
+                int[] maximum = new int[totalPlaces];
+                long[] enabled = BitMask.create(totalTransitions);
+                long[] successors = new long[BATCH * words];
+                int found = 0;
+                long fired = 0;
+                for(int i = 0; i < count; i++) {
+                    unpack(batch, i * words, marking);
+                    for(int place = 0; place < totalPlaces; place++) {
+                        maximum[place] = Math.max(maximum[place], marking[place]);
+                    }
+                    boolean deadlock = true;
+                    for(int transition = 0; transition < totalTransitions; transition++) {
+                        if(!incidenceMatrix.isEnabled(marking, transition)) continue;
+                        deadlock = false;
+                        BitMask.set(enabled, transition);
+                        fired++;
+                        System.arraycopy(batch, i * words, successors, found * words, words);
+                        int overflow = fire(successors, found * words, transition);
+                        if(overflow >= 0) {
+                            overflowed.set(overflow, 1); /*No se explora, la plaza puede no ser acotada*/
+                            continue;
+                        }
+                        if(visited.add(successors, found * words) && ++found == BATCH) {
+                            fork(successors, found);
+                            successors = new long[BATCH * words];
+                            found = 0;
+                        }
+                    }
+                    if(deadlock) {
+                        deadlocks.increment();
+                        if(deadlockSamples.size() < MAX_DEADLOCK_SAMPLES) deadlockSamples.add(marking.clone());
+                    }
+                }
+                if(found > 0) fork(successors, found);
+                arcs.add(fired);
+                for(int place = 0; place < totalPlaces; place++) {
+                    int value = maximum[place];
+                    bounds.accumulateAndGet(place, value, Math::max);
+                }
+                for(int i = 0; i < enabled.length; i++) {
+                    long bits = enabled[i];
+                    if((fireable.get(i) & bits) != bits) fireable.getAndAccumulate(i, bits, (a, b) -> a | b);
+                }
+                tryComplete();
+            }
+
+            private void fork(long[] successors, int found) {
+                addToPendingCount(1);
+                new Explore(this, successors, found).fork();
+            }
+        }
+    }
+
+    /**
+     * Analiza la RdP definida en un archivo PNML e imprime el reporte.
+     *
+     * @param args archivo PNML (por defecto ../PetriNetPipe.xml)
+     * @throws IOException si no se puede leer el archivo
+     */
+    public static void main(String[] args) throws IOException {
+        String net = args.length > 0 ? args[0] : "../PetriNetPipe.xml";
+        ReachabilityAnalyzer analyzer = new ReachabilityAnalyzer(PnmlLoader.load(Paths.get(net)));
+        System.out.println(analyzer.analyze().getReport());
+    }
+}
@@ -0,0 +1,160 @@
+package org.compurrentes.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Resultado del análisis de alcanzabilidad de una RdP (ver ReachabilityAnalyzer). Los arreglos se indexan por
+ *  plaza o por transición.
+ */
+public class ReachabilityReport {
+
+    private static final int SHOWN_DEADLOCKS = 5; /*Bloqueos que se muestran en el reporte*/
+
+    private final List<String> placeNames;
+    private final List<String> transitionNames;
+    private final long markings;
+    private final long arcs;
+    private final long deadlocks;
+    private final List<int[]> deadlockSamples;
+    private final int[] bounds;
+    private final boolean[] overflowed;
+    private final boolean[] fireable;
+    private final long elapsed;
+
+    ReachabilityReport(List<String> placeNames, List<String> transitionNames, long markings, long arcs,
+                       long deadlocks, List<int[]> deadlockSamples, int[] bounds, boolean[] overflowed,
+                       boolean[] fireable, long elapsed) {
+        this.placeNames = placeNames;
+        this.transitionNames = transitionNames;
+        this.markings = markings;
+        this.arcs = arcs;
+        this.deadlocks = deadlocks;
+        this.deadlockSamples = deadlockSamples;
+        this.bounds = bounds;
+        this.overflowed = overflowed;
+        this.fireable = fireable;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * Retorna la cantidad de marcados alcanzables explorados.
+     *
+     * @return markings
+     */
+    public long getMarkings() {
+        return markings;
+    }
+
+    /**
+     * Retorna la cantidad de arcos (disparos) del grafo de alcanzabilidad explorado.
+     *
+     * @return arcs
+     */
+    public long getArcs() {
+        return arcs;
+    }
+
+    /**
+     * Retorna la cantidad de marcados alcanzables sin transiciones sensibilizadas.
+     *
+     * @return deadlocks
+     */
+    public long getDeadlocks() {
+        return deadlocks;
+    }
+
+    /**
+     * Retorna algunos de los marcados de bloqueo encontrados.
+     *
+     * @return marcados de bloqueo, a lo sumo ReachabilityAnalyzer.MAX_DEADLOCK_SAMPLES
+     */
+    public List<int[]> getDeadlockSamples() {
+        List<int[]> samples = new ArrayList<>();
+        for(int[] marking : deadlockSamples) samples.add(marking.clone());
+        return samples;
+    }
+
+    /**
+     * Retorna el máximo de tokens alcanzado en cada plaza. Si la plaza desbordó su campo (isOverflowed) es una
+     *  cota inferior.
+     *
+     * @return bounds
+     */
+    public int[] getBounds() {
+        return bounds.clone();
+    }
+
+    /**
+     * Retorna si la plaza superó el máximo representable en el marcado empaquetado, en cuyo caso la exploración
+     *  se cortó en esos marcados y la plaza puede no ser acotada.
+     *
+     * @param place plaza consultada
+     * @return true si la plaza desbordó
+     */
+    public boolean isOverflowed(int place) {
+        return overflowed[place];
+    }
+
+    /**
+     * Retorna si la exploración recorrió todos los marcados alcanzables, es decir si ninguna plaza desbordó.
+     *
+     * @return true si el análisis es completo
+     */
+    public boolean isComplete() {
+        for(boolean place : overflowed) {
+            if(place) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Retorna las transiciones muertas: las que no están sensibilizadas en ningún marcado alcanzable.
+     *
+     * @return transiciones muertas, en orden
+     */
+    public List<Integer> getDeadTransitions() {
+        List<Integer> dead = new ArrayList<>();
+        for(int transition = 0; transition < fireable.length; transition++) {
+            if(!fireable[transition]) dead.add(transition);
+        }
+        return dead;
+    }
+
+    /**
+     * Retorna la duración del análisis.
+     *
+     * @return tiempo en nanosegundos
+     */
+    public long getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Retorna un reporte del análisis en texto.
+     *
+     * @return reporte
+     */
+    public String getReport() {
+        StringBuilder report = new StringBuilder(String.format("Reachable markings: %d (%d arcs) in %.2fs%n",
+                markings, arcs, elapsed / 1e9));
+        report.append(String.format("Deadlocks: %d%n", deadlocks));
+        for(int[] marking : deadlockSamples.subList(0, Math.min(SHOWN_DEADLOCKS, deadlockSamples.size()))) {
+            report.append(String.format("  %s%n", Arrays.toString(marking)));
+        }
+        StringBuilder places = new StringBuilder();
+        for(int place = 0; place < bounds.length; place++) {
+            places.append(String.format(" %s=%s%d", placeNames.get(place), overflowed[place] ? ">" : "",
+                    bounds[place]));
+        }
+        report.append(String.format("Place bounds:%s%n", places));
+        List<Integer> dead = getDeadTransitions();
+        report.append(String.format("Dead transitions: %s%n", dead.isEmpty() ? "none"
+                : dead.stream().map(transitionNames::get).collect(Collectors.joining(", "))));
+        report.append(isComplete() ? "Analysis complete"
+                : "Analysis incomplete: places marked '>' exceeded their field and may be unbounded");
+        return report.toString();
+    }
+}
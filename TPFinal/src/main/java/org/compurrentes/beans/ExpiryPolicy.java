@@ -0,0 +1,16 @@
+package org.compurrentes.beans;
+
+/**
+ * Tratamiento de un hilo que intenta disparar una transición temporizada luego de vencida su ventana
+ *  (transcurrido más de beta desde el sensibilizado). En ambos casos la ventana se reinicia desde ese instante.
+ */
+public enum ExpiryPolicy {
+    /**
+     * El hilo se encola en la transición y el temporizador lo despierta al abrirse la nueva ventana.
+     */
+    RESET,
+    /**
+     * El hilo no se encola: abandona el monitor con una WindowExpiredException y decide qué hacer.
+     */
+    DIVERT
+}
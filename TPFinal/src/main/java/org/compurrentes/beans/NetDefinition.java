@@ -0,0 +1,158 @@
+package org.compurrentes.beans;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Definición de una RdP tal como se carga desde un archivo: nombres de plazas y transiciones, matrices de
+ *  pre y post incidencia, marcado inicial, capacidades y ventanas temporales. Los índices de plazas y
+ *  transiciones son los que utiliza el motor (desde 0).
+ */
+public class NetDefinition {
+
+    private final List<String> placeNames;
+    private final List<String> transitionNames;
+    private final int[][] pre;
+    private final int[][] post;
+    private final int[] initialMarking;
+    private final int[] capacities;
+    private final long[] alpha;
+    private final long[] beta;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param placeNames nombre de cada plaza
+     * @param transitionNames nombre de cada transición
+     * @param pre matriz de pre incidencia (filas = plazas, columnas = transiciones)
+     * @param post matriz de post incidencia (filas = plazas, columnas = transiciones)
+     * @param initialMarking marcado inicial de cada plaza
+     * @param capacities capacidad de cada plaza (0 = sin límite)
+     * @param alpha límite inferior de la ventana de cada transición en nanosegundos (0 = no temporizada)
+     * @param beta límite superior de la ventana de cada transición en nanosegundos
+     */
+    public NetDefinition(List<String> placeNames, List<String> transitionNames, int[][] pre, int[][] post,
+                         int[] initialMarking, int[] capacities, long[] alpha, long[] beta) {
+        this.placeNames = Collections.unmodifiableList(placeNames);
+        this.transitionNames = Collections.unmodifiableList(transitionNames);
+        this.pre = pre;
+        this.post = post;
+        this.initialMarking = initialMarking;
+        this.capacities = capacities;
+        this.alpha = alpha;
+        this.beta = beta;
+    }
+
+    /**
+     * Retorna los nombres de las plazas, en el orden de sus índices.
+     *
+     * @return placeNames
+     */
+    public List<String> getPlaceNames() {
+        return placeNames;
+    }
+
+    /**
+     * Retorna los nombres de las transiciones, en el orden de sus índices.
+     *
+     * @return transitionNames
+     */
+    public List<String> getTransitionNames() {
+        return transitionNames;
+    }
+
+    /**
+     * Retorna la matriz de pre incidencia.
+     *
+     * @return pre
+     */
+    public int[][] getPre() {
+        return pre;
+    }
+
+    /**
+     * Retorna la matriz de post incidencia.
+     *
+     * @return post
+     */
+    public int[][] getPost() {
+        return post;
+    }
+
+    /**
+     * Retorna la matriz de flujo de incidencia (post - pre).
+     *
+     * @return matriz de flujo (filas = plazas, columnas = transiciones)
+     */
+    public double[][] getFluxMatrix() {
+        double[][] flux = new double[pre.length][];
+        for(int place = 0; place < pre.length; place++) {
+            flux[place] = new double[pre[place].length];
+            for(int transition = 0; transition < flux[place].length; transition++) {
+                flux[place][transition] = post[place][transition] - pre[place][transition];
+            }
+        }
+        return flux;
+    }
+
+    /**
+     * Retorna el marcado inicial.
+     *
+     * @return initialMarking
+     */
+    public int[] getInitialMarking() {
+        return initialMarking;
+    }
+
+    /**
+     * Retorna la capacidad de cada plaza (0 = sin límite).
+     *
+     * @return capacities
+     */
+    public int[] getCapacities() {
+        return capacities;
+    }
+
+    /**
+     * Retorna el límite inferior de la ventana temporal de cada transición, en nanosegundos.
+     *
+     * @return alpha
+     */
+    public long[] getAlpha() {
+        return alpha;
+    }
+
+    /**
+     * Retorna el límite superior de la ventana temporal de cada transición, en nanosegundos.
+     *
+     * @return beta
+     */
+    public long[] getBeta() {
+        return beta;
+    }
+
+    /**
+     * Retorna la cantidad de plazas de la RdP.
+     *
+     * @return cantidad de plazas
+     */
+    public int getTotalPlaces() {
+        return placeNames.size();
+    }
+
+    /**
+     * Retorna la cantidad de transiciones de la RdP.
+     *
+     * @return cantidad de transiciones
+     */
+    public int getTotalTransitions() {
+        return transitionNames.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Net with %d places, %d transitions, initial marking %s", getTotalPlaces(),
+                getTotalTransitions(), Arrays.toString(initialMarking));
+    }
+}
@@ -1,6 +1,10 @@
 package org.compurrentes.beans;
 
+import com.google.common.collect.Iterables;
+import com.google.common.primitives.Ints;
+
 import java.util.Iterator;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Representa los segmentos definidos de la red de Petri. Estos segmentos
@@ -12,18 +16,36 @@ public class Segment {
     private final String name;
     private final int threadNumber;
     private final Iterator<Integer> transitions;
+    private final int[] cycle; /*Ciclo de transiciones del segmento, null si se creó a partir de un iterador*/
 
     /**
      * Constructor de la clase.
      *
      * @param threadNumber Número máximo de hilos del segmento
-     * @param transitions Transiciones que pertenecen al segmento
+     * @param transitions Transiciones que pertenecen al segmento, las comparten todos los hilos del segmento
      * @param name Nombre del segmento, representado con una letra mayúscula, "A","B",...
      */
     public Segment(int threadNumber, Iterator<Integer> transitions, String name) {
+        this(threadNumber, transitions, name, null);
+    }
+
+    /**
+     * Constructor de la clase a partir del ciclo de transiciones del segmento, que los hilos recorren en forma
+     *  compartida y repetida.
+     *
+     * @param threadNumber Número máximo de hilos del segmento
+     * @param cycle Transiciones del segmento en el orden en que se disparan
+     * @param name Nombre del segmento, representado con una letra mayúscula, "A","B",...
+     */
+    public Segment(int threadNumber, int[] cycle, String name) {
+        this(threadNumber, Iterables.cycle(Ints.asList(cycle.clone())).iterator(), name, cycle.clone());
+    }
+
+    private Segment(int threadNumber, Iterator<Integer> transitions, String name, int[] cycle) {
         this.threadNumber = threadNumber;
-        this.transitions = transitions;
+        this.transitions = new SharedIterator(transitions);
         this.name = name;
+        this.cycle = cycle;
     }
 
     /**
@@ -36,7 +58,8 @@ public class Segment {
     }
 
     /**
-     * Retorna las transiciones pertenecientes al segmento.
+     * Retorna las transiciones pertenecientes al segmento. Los hilos del segmento comparten el iterador, que
+     *  puede recorrerse concurrentemente.
      *
      * @return transitions
      */
@@ -44,6 +67,15 @@ public class Segment {
         return transitions;
     }
 
+    /**
+     * Retorna el ciclo de transiciones del segmento, que cada hilo puede recorrer por su cuenta (ver Shooter).
+     *
+     * @return cycle, null si el segmento se creó a partir de un iterador
+     */
+    public int[] getCycle() {
+        return cycle == null ? null : cycle.clone();
+    }
+
     /**
      * Retorna el nombre del segmento.
      *
@@ -54,4 +86,38 @@ public class Segment {
         return name;
     }
 
+    /**
+     * Iterador compartido por los hilos de un segmento. El iterador cíclico de Guava no es seguro entre hilos, por lo
+     *  que cada avance se realiza bajo un lock.
+     */
+    private static class SharedIterator implements Iterator<Integer> {
+
+        private final Iterator<Integer> iterator;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private SharedIterator(Iterator<Integer> iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            lock.lock();
+            try {
+                return iterator.hasNext();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public Integer next() {
+            lock.lock();
+            try {
+                return iterator.next();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
 }
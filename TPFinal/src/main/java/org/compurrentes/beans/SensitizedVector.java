@@ -1,34 +1,91 @@
 package org.compurrentes.beans;
 
-import org.compurrentes.MonitorManager;
+import org.compurrentes.BitMask;
+import org.compurrentes.Monitor;
+import org.compurrentes.metrics.MonitorMetrics;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
 /**
  * Vector de sensibilizados, utilizado para el manejo de la temporalidad de las transiciones temporizadas.
+ *  Cuando una transición temporizada se sensibiliza por tokens se agenda la apertura de su ventana en el
+ *  temporizador del monitor y queda marcada como pendiente hasta entonces. Los hilos que llegan antes de la
+ *  ventana no duermen: se encolan en la transición y el temporizador los despierta al abrirse la ventana.
+ *  Todos los tiempos se miden en nanosegundos con System.nanoTime(), que es monótono, salvo que se indique otro
+ *  reloj: la simulación de eventos discretos (ver Simulator) usa su reloj virtual y su propia agenda de aperturas.
  */
 public class SensitizedVector {
-    List<Integer> sensibilities; //Transiciones sensibilizadas
-    private final long[] alpha = {0,10,10,10,10,10,10,10,0,10,10,10}; //Límite inferior de la ventana
-    private final long[] beta = new long[alpha.length]; //Límite superior de la ventana
-    private final long[] timeStamp = new long[alpha.length]; //Tiempo en el que se sensibilizó una transición (por tokens).
-    private final boolean[] waitingFor = new boolean[alpha.length]; //Banderas de espera por transición.
-    MonitorManager monitorManager;
+    public static final long UNBOUNDED = Long.MAX_VALUE; //Beta de una ventana sin límite superior
+    long[] sensibilities; //Máscara de transiciones sensibilizadas por tokens
+    private final long[] alpha; //Límite inferior de la ventana, en nanosegundos
+    private final long[] beta; //Límite superior de la ventana, en nanosegundos
+    private final long[] timeStamp; //Tiempo en el que se sensibilizó una transición (por tokens).
+    private final long[] pending; //Transiciones temporizadas con la ventana sin abrir.
+    private final ExpiryPolicy expiryPolicy; //Qué hacer con un hilo que llega luego de la ventana.
+    private final WindowScheduler scheduler; //Temporizador de aperturas de ventana.
+    private final LongSupplier clock; //Reloj en nanosegundos.
+    private MonitorMetrics metrics; //Métricas del monitor, opcional.
 
 
     /**
      * Constructor de la clase
-     * @param monitorManager monitor de concurrencia de la RdP
+     * @param monitor monitor de concurrencia de la RdP
+     * @param alpha límite inferior de la ventana de cada transición en nanosegundos (0 = no temporizada)
+     * @param beta límite superior de la ventana de cada transición en nanosegundos (UNBOUNDED = sin límite)
+     * @param expiryPolicy tratamiento de los hilos que llegan luego de la ventana
+     * @throws IllegalArgumentException si alguna ventana está mal definida
      */
-    public SensitizedVector(MonitorManager monitorManager) {
-        sensibilities = new ArrayList<>();
-        Arrays.fill(timeStamp,System.currentTimeMillis());
-        Arrays.fill(waitingFor, false);
-        Arrays.fill(beta,0xFFFFFFF);
-        this.monitorManager = monitorManager;
+    public SensitizedVector(Monitor monitor, long[] alpha, long[] beta, ExpiryPolicy expiryPolicy) {
+        this(new TimedTransitionScheduler(monitor), System::nanoTime, alpha, beta, expiryPolicy);
+    }
+
+    /**
+     * Constructor de la clase con una agenda de aperturas y un reloj a elección.
+     * @param scheduler agenda de aperturas de ventana
+     * @param clock reloj en nanosegundos, monótono
+     * @param alpha límite inferior de la ventana de cada transición en nanosegundos (0 = no temporizada)
+     * @param beta límite superior de la ventana de cada transición en nanosegundos (UNBOUNDED = sin límite)
+     * @param expiryPolicy tratamiento de los hilos que llegan luego de la ventana
+     * @throws IllegalArgumentException si alguna ventana está mal definida
+     */
+    public SensitizedVector(WindowScheduler scheduler, LongSupplier clock, long[] alpha, long[] beta,
+                            ExpiryPolicy expiryPolicy) {
+        if (alpha.length != beta.length) {
+            throw new IllegalArgumentException("alpha and beta must have the same length");
+        }
+        for (int transition = 0; transition < alpha.length; transition++) {
+            if (alpha[transition] < 0 || beta[transition] < alpha[transition]) {
+                throw new IllegalArgumentException(String.format("Invalid window [%d, %d] for T%d",
+                        alpha[transition], beta[transition], transition + 1));
+            }
+        }
+        sensibilities = new long[0];
+        this.alpha = alpha.clone();
+        this.beta = beta.clone();
+        timeStamp = new long[alpha.length];
+        pending = BitMask.create(alpha.length);
+        this.expiryPolicy = expiryPolicy;
+        this.scheduler = scheduler;
+        this.clock = clock;
+    }
+
+    /**
+     * Constructor de un vector con las mismas ventanas, política de vencimiento, temporizador, reloj y métricas que otro,
+     *  pero con sus propios instantes de sensibilizado y transiciones pendientes. Lo usan los fragmentos de un
+     *  monitor particionado (ver ShardedMonitor), cada uno sobre sus transiciones y con su propio mutex; el
+     *  temporizador se inicia y detiene desde el vector original.
+     * @param shared vector de sensibilizados original
+     */
+    public SensitizedVector(SensitizedVector shared) {
+        sensibilities = new long[0];
+        alpha = shared.alpha;
+        beta = shared.beta;
+        timeStamp = new long[alpha.length];
+        pending = BitMask.create(alpha.length);
+        expiryPolicy = shared.expiryPolicy;
+        scheduler = shared.scheduler;
+        clock = shared.clock;
+        metrics = shared.metrics;
     }
 
     /**
@@ -38,7 +95,7 @@ public class SensitizedVector {
      * @return true si está sensibilizada, false si no lo está
      */
     public boolean isSensitized(int transition, boolean finalShoots) {
-        if(sensibilities.contains(transition)) { /*Sensibilizada por tokens*/
+        if(BitMask.isSet(sensibilities, transition)) { /*Sensibilizada por tokens*/
             if(finalShoots) return true; /*Si es de finalización NO tiene en cuenta temporalidades*/
             return isSensitizedByTime(transition); /*Verifica ventana temporal*/
         }
@@ -47,73 +104,147 @@ public class SensitizedVector {
 
     /**
      * Retorna un valor booleano que representa si la transición está temporizada temporalmente o no. A demás
-     *  maneja los diferentes casos de llegada del hilo a la ventana temporal.
+     *  maneja los diferentes casos de llegada del hilo a la ventana temporal. Si el hilo llega antes de la ventana
+     *  retorna false para que se encole, la apertura ya está agendada en el temporizador que lo despertará.
+     *  Si llega luego de la ventana, la ventana se reinicia desde el instante actual y se aplica la política de
+     *  vencimiento: RESET encola al hilo hasta la nueva apertura y DIVERT lo devuelve al llamador con una excepción.
      * @param transition transición consultada
      * @return true si está sensibilizada temporalmente, false si no
-     * @throws RuntimeException si el hilo es interrumpido
+     * @throws WindowExpiredException si la ventana venció y la política de vencimiento es DIVERT
      */
-    public boolean isSensitizedByTime(int transition) throws RuntimeException {
+    public boolean isSensitizedByTime(int transition) throws WindowExpiredException {
         if (alpha[transition] == 0){ /*Alpha = 0 representa una transición no temporizada, por lo tanto sólo importan los tokens*/
-            System.out.printf("Thread %s, transition T%d not timed\n",Thread.currentThread().getName(),transition+1);
             return true; /*Se dispara*/
         }
 
-        if (waitingFor[transition]){ /*Hay un hilo durmiendo a la espera de esta transición*/
-            System.out.printf("Thread %s, transition T%d has a thread waiting\n",Thread.currentThread().getName(),transition+1);
-            return false; /*El hilo se coloca en la cola de la transición*/
-        }
-
         /*Cota inferior de la ventana = tiempo en que la transición fue sensibilizada por tokens + alpha*/
         /*Cota superior de la ventana = tiempo en que la transición fue sensibilizada por tokens + beta*/
-        long actualTime = System.currentTimeMillis();
-        boolean inWindow = actualTime >= timeStamp[transition]+alpha[transition] && actualTime <= timeStamp[transition]+beta[transition];
-        if (inWindow){ /*Dentro de la ventana temporal*/
-            System.out.printf("Thread %s, transition T%d inside window\n",Thread.currentThread().getName(),transition+1);
+        /*Se comparan tiempos transcurridos y no instantes absolutos, como requiere System.nanoTime()*/
+        long elapsed = clock.getAsLong() - timeStamp[transition];
+        boolean beforeWindow = elapsed < alpha[transition];
+        boolean afterWindow = beta[transition] != UNBOUNDED && elapsed > beta[transition];
+        if (!beforeWindow && !afterWindow){ /*Dentro de la ventana temporal*/
+            if (metrics != null) metrics.recordWindowHit(transition);
             return true; /*Se dispara*/
         }
 
-        boolean beforeWindow = actualTime < timeStamp[transition]+alpha[transition];
-        if (!beforeWindow){ /*Si no está antes de la ventana ni adentro, entonces se pasó*/
-            System.out.printf("Thread %s, transition T%d after window\n",Thread.currentThread().getName(),transition+1);
-            return false; //Ver la posibilidad de lanzar excepción para que no entre a la cola
+        if (afterWindow){ /*Si no está antes de la ventana ni adentro, entonces se pasó*/
+            if (metrics != null) metrics.recordWindowLate(transition);
+            startWindow(transition); /*La ventana vencida se reinicia para no dejar hilos varados*/
+            if (expiryPolicy == ExpiryPolicy.DIVERT) {
+                throw new WindowExpiredException(transition);
+            }
+            return false; /*RESET: se encola hasta la nueva apertura*/
         }
 
-        /*En este punto, el hilo está antes de la ventana temporal*/
-        waitingFor[transition] = true; /*Actualiza el vector de espera*/
-        long timeToSleep = timeStamp[transition]+alpha[transition] - actualTime; /*Tiempo que le falta para llegar a la cota inferior*/
-        monitorManager.getMutex().release(); /*Abandona el mutex*/
-        System.out.printf("Thread %s, transition T%d before window, to sleep\n",Thread.currentThread().getName(),transition+1);
-
-        try {
-            TimeUnit.MILLISECONDS.sleep(timeToSleep); /*Duerme el tiempo que le falta para llegar*/
-            monitorManager.getMutex().acquire();
-        } catch (InterruptedException e) {
-            throw new RuntimeException();
-        }
-        /*En este punto ya tomó el mutex del monitor*/
-        waitingFor[transition] = false; /*Actualiza el vector de espera*/
-        setSensibilities(monitorManager.getPetriNet().getSensibilities()); /*Actualiza el vector de sensibilizadas, ya que pudo cambiar*/
-        System.out.printf("Thread %s, transition T%d wakeUp\n",Thread.currentThread().getName(),transition+1);
-        return isSensitized(transition, false); /*Verifica si sigue estando sensibilizada*/
+        /*En este punto, el hilo está antes de la ventana temporal, se encola y lo despierta el temporizador*/
+        if (metrics != null) metrics.recordWindowEarly(transition);
+        return false;
+    }
+
+    /**
+     * Retorna un valor boolean que representa si la transición es temporizada (alpha distinto de 0).
+     * @param transition transición consultada
+     * @return true si es temporizada
+     */
+    public boolean isTimed(int transition) {
+        return alpha[transition] != 0;
     }
 
     /**
      * Actualiza el vector de tiempos de las transiciones. Solo actualiza el de las que no estaban sensibilizadas
-     *  anteriormente pero luego sí.
-     * @param newSensibilities nuevas transiciones sensibilizadas
+     *  anteriormente pero luego sí, y agenda la apertura de ventana de las que son temporizadas.
+     * @param oldSensibilities máscara de sensibilizadas previa al disparo
+     * @param newSensibilities máscara de sensibilizadas posterior al disparo
+     */
+    public void updateTimeStamps(long[] oldSensibilities, long[] newSensibilities) {
+        for (int word = 0; word < newSensibilities.length; word++) {
+            long newlySensitized = newSensibilities[word] & ~oldSensibilities[word];
+            while (newlySensitized != 0) {
+                startWindow((word << 6) + Long.numberOfTrailingZeros(newlySensitized));
+                newlySensitized &= newlySensitized - 1;
+            }
+        }
+    }
+
+    /**
+     * Registra el instante de sensibilizado de la transición y, si es temporizada, la marca como pendiente
+     *  y agenda la apertura de su ventana.
+     * @param transition transición sensibilizada por tokens
      */
-    public void updateTimeStamps(List<Integer> newSensibilities) {
-        for (Integer i : newSensibilities) {
-            if(!sensibilities.contains(i))
-                timeStamp[i] = System.currentTimeMillis();
+    private void startWindow(int transition) {
+        timeStamp[transition] = clock.getAsLong();
+        if (alpha[transition] != 0) {
+            BitMask.set(pending, transition);
+            scheduler.schedule(transition, timeStamp[transition] + alpha[transition]);
         }
     }
 
     /**
-     * Actualiza el listado de transiciones sensibilizadas.
-     * @param sensibilities nuevas transiciones sensibilizadas
+     * Llamado por el monitor (con el mutex tomado) cuando el temporizador alcanza la apertura de una ventana.
+     *  Si la apertura corresponde al sensibilizado vigente de la transición, la transición deja de estar pendiente.
+     * @param transition transición temporizada
+     * @param deadline instante de apertura agendado, en nanosegundos
+     * @return true si la apertura es vigente, false si la transición se volvió a sensibilizar desde entonces
      */
-    public void setSensibilities(List<Integer> sensibilities) {
+    public boolean openWindow(int transition, long deadline) {
+        if (deadline != timeStamp[transition] + alpha[transition] || !BitMask.isSet(pending, transition)) {
+            return false;
+        }
+        BitMask.clear(pending, transition);
+        return true;
+    }
+
+    /**
+     * Asigna la máscara de transiciones sensibilizadas por tokens. La máscara es la mantenida por la RdP,
+     *  por lo que refleja cada disparo sin necesidad de volver a asignarla. Las transiciones temporizadas
+     *  sensibilizadas en el marcado inicial abren su ventana a partir de este momento.
+     * @param sensibilities máscara de transiciones sensibilizadas
+     */
+    public void setSensibilities(long[] sensibilities) {
         this.sensibilities = sensibilities;
+        for (int transition = BitMask.nextSetBit(sensibilities, 0); transition >= 0;
+             transition = BitMask.nextSetBit(sensibilities, transition + 1)) {
+            startWindow(transition);
+        }
+    }
+
+    /**
+     * Retorna la máscara de transiciones temporizadas cuya ventana todavía no se abrió. Sólo debe leerse
+     *  dentro del monitor.
+     * @return pending
+     */
+    public long[] getPendingMask() {
+        return pending;
+    }
+
+    /**
+     * Retorna el instante actual según el reloj del vector, con el que la RdP anota sus disparos.
+     * @return instante actual en nanosegundos
+     */
+    public long now() {
+        return clock.getAsLong();
+    }
+
+    /**
+     * Asigna las métricas en las que se registran las llegadas a las ventanas temporales.
+     * @param metrics métricas del monitor
+     */
+    public void setMetrics(MonitorMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Inicia el temporizador de aperturas de ventana.
+     */
+    public void start() {
+        scheduler.start();
+    }
+
+    /**
+     * Detiene el temporizador de aperturas de ventana.
+     */
+    public void stop() {
+        scheduler.stop();
     }
 }
@@ -0,0 +1,101 @@
+package org.compurrentes.beans;
+
+import org.compurrentes.Monitor;
+
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Temporizador del monitor para las transiciones temporizadas. Registra el instante en que se abre la ventana
+ *  temporal de cada transición y, cuando ese instante llega, avisa al monitor para que despierte a un hilo encolado
+ *  por la vía normal de las colas. De esta forma ningún hilo trabajador duerme esperando una ventana.
+ */
+public class TimedTransitionScheduler implements WindowScheduler, Runnable {
+
+    private final DelayQueue<WindowOpening> openings = new DelayQueue<>(); /*Aperturas de ventana pendientes*/
+    private final Monitor monitor;
+    private final Thread thread;
+
+    /**
+     * Constructor de la clase. Crea el hilo del temporizador (daemon) sin iniciarlo.
+     *
+     * @param monitor monitor de concurrencia de la RdP
+     */
+    public TimedTransitionScheduler(Monitor monitor) {
+        this.monitor = monitor;
+        thread = new Thread(this, "Timer");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Registra la apertura de la ventana de la transición en el instante indicado.
+     *
+     * @param transition transición temporizada
+     * @param deadline instante de apertura de la ventana, según System.nanoTime()
+     */
+    @Override
+    public void schedule(int transition, long deadline) {
+        openings.put(new WindowOpening(transition, deadline));
+    }
+
+    /**
+     * Inicia el hilo del temporizador.
+     */
+    @Override
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Detiene el hilo del temporizador.
+     */
+    @Override
+    public void stop() {
+        thread.interrupt();
+    }
+
+    /**
+     * Espera la próxima apertura de ventana y avisa al monitor, hasta ser interrumpido. El monitor informa la
+     *  interrupción como una RuntimeException con causa InterruptedException; cualquier otra excepción es un error
+     *  y se propaga, terminando el hilo con su traza, en lugar de tomarse como una detención.
+     */
+    @Override
+    public void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WindowOpening opening = openings.take();
+                monitor.signalWindowOpened(opening.transition, opening.deadline);
+            }
+        } catch (InterruptedException e) {
+            /*El temporizador fue detenido*/
+        } catch (RuntimeException e) {
+            if(!(e.getCause() instanceof InterruptedException)) throw e;
+            /*El temporizador fue detenido dentro del monitor*/
+        }
+    }
+
+    /**
+     * Apertura de la ventana temporal de una transición.
+     */
+    private static class WindowOpening implements Delayed {
+
+        private final int transition;
+        private final long deadline;
+
+        private WindowOpening(int transition, long deadline) {
+            this.transition = transition;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.signum(deadline - ((WindowOpening) other).deadline); /*Comparación válida ante desbordes de nanoTime*/
+        }
+    }
+}
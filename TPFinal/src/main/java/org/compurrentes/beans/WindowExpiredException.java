@@ -0,0 +1,31 @@
+package org.compurrentes.beans;
+
+/**
+ * Indica que un hilo intentó disparar una transición temporizada luego de vencida su ventana y que, según la
+ *  política de vencimiento DIVERT, fue desviado en lugar de encolarse.
+ */
+public class WindowExpiredException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int transition;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param transition transición cuya ventana venció
+     */
+    public WindowExpiredException(int transition) {
+        super(String.format("Window of T%d expired", transition + 1));
+        this.transition = transition;
+    }
+
+    /**
+     * Retorna la transición cuya ventana venció.
+     *
+     * @return transition
+     */
+    public int getTransition() {
+        return transition;
+    }
+}
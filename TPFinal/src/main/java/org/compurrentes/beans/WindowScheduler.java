@@ -0,0 +1,27 @@
+package org.compurrentes.beans;
+
+/**
+ * Agenda de aperturas de ventana de las transiciones temporizadas, usada por el vector de sensibilizados.
+ *  TimedTransitionScheduler avisa al monitor en tiempo real y Simulator agrega la apertura a su cola de eventos
+ *  en tiempo virtual.
+ */
+public interface WindowScheduler {
+
+    /**
+     * Registra la apertura de la ventana de la transición en el instante indicado.
+     *
+     * @param transition transición temporizada
+     * @param deadline instante de apertura de la ventana, según el reloj del vector de sensibilizados
+     */
+    void schedule(int transition, long deadline);
+
+    /**
+     * Inicia la agenda.
+     */
+    void start();
+
+    /**
+     * Detiene la agenda.
+     */
+    void stop();
+}
@@ -0,0 +1,145 @@
+package org.compurrentes.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de duraciones en nanosegundos con registro concurrente sin locks, al estilo de HdrHistogram.
+ *  Los valores se agrupan en intervalos log-lineales: cada potencia de dos se divide en SUB_BUCKETS intervalos
+ *  iguales, por lo que el error relativo de los percentiles es a lo sumo 1/SUB_BUCKETS para cualquier magnitud,
+ *  con una cantidad fija de contadores. Registrar un valor es un incremento atómico, sin objetos ni esperas.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; /*Intervalos por potencia de dos*/
+    private static final int BUCKETS = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Registra una duración. Puede llamarse concurrentemente desde varios hilos.
+     *
+     * @param nanos duración en nanosegundos (los valores negativos se registran como 0)
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucket(value));
+        total.increment();
+        sum.add(value);
+        long current;
+        while(value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            /*Otro hilo actualizó el máximo, se vuelve a comparar*/
+        }
+    }
+
+    /**
+     * Retorna una copia de los contadores actuales. Los registros concurrentes con la copia pueden quedar
+     *  incluidos o no, pero cada uno se cuenta a lo sumo una vez.
+     *
+     * @return copia del histograma
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for(int bucket = 0; bucket < BUCKETS; bucket++) {
+            copy[bucket] = counts.get(bucket);
+        }
+        return new Snapshot(copy, total.sum(), sum.sum(), max.get());
+    }
+
+    private static int bucket(long value) {
+        if(value < SUB_BUCKETS) return (int) value;
+        int magnitude = 63 - Long.numberOfLeadingZeros(value); /*Bit más significativo, >= SUB_BUCKET_BITS*/
+        int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBound(int bucket) {
+        if(bucket < SUB_BUCKETS) return bucket;
+        int magnitude = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long width = 1L << (magnitude - SUB_BUCKET_BITS);
+        return ((long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (magnitude - SUB_BUCKET_BITS)) + width - 1;
+    }
+
+    /**
+     * Copia inmutable de un histograma en un instante dado.
+     */
+    public static class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * Retorna la cantidad de valores registrados.
+         *
+         * @return count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Retorna el promedio de los valores registrados, en nanosegundos.
+         *
+         * @return promedio (0 si no hay valores)
+         */
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Retorna el mayor valor registrado, en nanosegundos.
+         *
+         * @return max
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Retorna el valor por debajo del cual se encuentra el porcentaje indicado de los registros, con el error
+         *  relativo del intervalo que lo contiene.
+         *
+         * @param percentile percentil entre 0 y 100
+         * @return valor del percentil en nanosegundos (0 si no hay valores)
+         */
+        public long getPercentile(double percentile) {
+            long registered = 0;
+            for(long bucketCount : counts) {
+                registered += bucketCount;
+            }
+            if(registered == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * registered));
+            long accumulated = 0;
+            for(int bucket = 0; bucket < counts.length; bucket++) {
+                accumulated += counts[bucket];
+                if(accumulated >= rank) return Math.min(upperBound(bucket), max);
+            }
+            return max;
+        }
+
+        /**
+         * Retorna un resumen de la distribución: cantidad, percentiles 50, 99 y 99.9 y máximo.
+         *
+         * @return resumen en texto, en microsegundos
+         */
+        @Override
+        public String toString() {
+            return String.format("n=%d p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus", count,
+                    getPercentile(50) / 1e3, getPercentile(99) / 1e3, getPercentile(99.9) / 1e3, max / 1e3);
+        }
+    }
+}
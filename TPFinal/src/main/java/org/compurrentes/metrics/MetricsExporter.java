@@ -0,0 +1,67 @@
+package org.compurrentes.metrics;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exportador periódico de las métricas del monitor. Un hilo daemon toma una instantánea cada período y escribe
+ *  su reporte en la salida indicada, con los disparos por segundo del último período.
+ */
+public class MetricsExporter implements Runnable {
+
+    private final MonitorMetrics metrics;
+    private final PrintStream out;
+    private final long periodMillis;
+    private final Thread thread;
+
+    /**
+     * Constructor de la clase. Crea el hilo del exportador (daemon) sin iniciarlo.
+     *
+     * @param metrics métricas a exportar
+     * @param out salida del reporte
+     * @param period período entre reportes
+     * @param unit unidad del período
+     */
+    public MetricsExporter(MonitorMetrics metrics, PrintStream out, long period, TimeUnit unit) {
+        if(period <= 0) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+        this.metrics = metrics;
+        this.out = out;
+        this.periodMillis = unit.toMillis(period);
+        thread = new Thread(this, "MetricsExporter");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Inicia el hilo del exportador.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Detiene el hilo del exportador.
+     */
+    public void stop() {
+        thread.interrupt();
+    }
+
+    /**
+     * Exporta un reporte por período hasta ser interrumpido.
+     */
+    @Override
+    public void run() {
+        MetricsSnapshot previous = null;
+        try {
+            while(!Thread.currentThread().isInterrupted()) {
+                TimeUnit.MILLISECONDS.sleep(periodMillis);
+                MetricsSnapshot snapshot = metrics.snapshot();
+                out.println(snapshot.getReport(previous));
+                previous = snapshot;
+            }
+        } catch (InterruptedException e) {
+            /*El exportador fue detenido*/
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package org.compurrentes.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Instantánea inmutable de las métricas del monitor (ver MonitorMetrics). Los arreglos se indexan por transición.
+ */
+public class MetricsSnapshot {
+
+    private final long uptime;
+    private final long[] firings;
+    private final int[] queueDepths;
+    private final LatencyHistogram.Snapshot mutexHold;
+    private final LatencyHistogram.Snapshot mutexWait;
+    private final LatencyHistogram.Snapshot queueWait;
+    private final long[] windowHits;
+    private final long[] windowEarly;
+    private final long[] windowLate;
+
+    MetricsSnapshot(long uptime, long[] firings, int[] queueDepths, LatencyHistogram.Snapshot mutexHold,
+                    LatencyHistogram.Snapshot mutexWait, LatencyHistogram.Snapshot queueWait, long[] windowHits,
+                    long[] windowEarly, long[] windowLate) {
+        this.uptime = uptime;
+        this.firings = firings;
+        this.queueDepths = queueDepths;
+        this.mutexHold = mutexHold;
+        this.mutexWait = mutexWait;
+        this.queueWait = queueWait;
+        this.windowHits = windowHits;
+        this.windowEarly = windowEarly;
+        this.windowLate = windowLate;
+    }
+
+    /**
+     * Retorna el tiempo transcurrido desde la creación de las métricas hasta la instantánea.
+     *
+     * @return uptime en nanosegundos
+     */
+    public long getUptime() {
+        return uptime;
+    }
+
+    /**
+     * Retorna los disparos de cada transición.
+     *
+     * @return firings
+     */
+    public long[] getFirings() {
+        return firings.clone();
+    }
+
+    /**
+     * Retorna la cantidad total de disparos.
+     *
+     * @return suma de los disparos de todas las transiciones
+     */
+    public long getTotalFirings() {
+        return Arrays.stream(firings).sum();
+    }
+
+    /**
+     * Retorna la cantidad de hilos esperando en la cola de cada transición.
+     *
+     * @return queueDepths
+     */
+    public int[] getQueueDepths() {
+        return queueDepths.clone();
+    }
+
+    /**
+     * Retorna el histograma de tiempos de tenencia del mutex.
+     *
+     * @return mutexHold
+     */
+    public LatencyHistogram.Snapshot getMutexHold() {
+        return mutexHold;
+    }
+
+    /**
+     * Retorna el histograma de tiempos de espera para tomar el mutex.
+     *
+     * @return mutexWait
+     */
+    public LatencyHistogram.Snapshot getMutexWait() {
+        return mutexWait;
+    }
+
+    /**
+     * Retorna el histograma de tiempos de espera en las colas de transición.
+     *
+     * @return queueWait
+     */
+    public LatencyHistogram.Snapshot getQueueWait() {
+        return queueWait;
+    }
+
+    /**
+     * Retorna las llegadas dentro de la ventana temporal de cada transición.
+     *
+     * @return windowHits
+     */
+    public long[] getWindowHits() {
+        return windowHits.clone();
+    }
+
+    /**
+     * Retorna las llegadas antes de abrirse la ventana temporal de cada transición.
+     *
+     * @return windowEarly
+     */
+    public long[] getWindowEarly() {
+        return windowEarly.clone();
+    }
+
+    /**
+     * Retorna las llegadas luego de vencida la ventana temporal de cada transición.
+     *
+     * @return windowLate
+     */
+    public long[] getWindowLate() {
+        return windowLate.clone();
+    }
+
+    /**
+     * Retorna un reporte de las métricas, con los disparos por segundo calculados respecto de una instantánea
+     *  anterior (o desde el inicio si no la hay).
+     *
+     * @param previous instantánea anterior, puede ser null
+     * @return reporte en texto
+     */
+    public String getReport(MetricsSnapshot previous) {
+        long elapsed = uptime - (previous == null ? 0 : previous.uptime);
+        long fired = getTotalFirings() - (previous == null ? 0 : previous.getTotalFirings());
+        StringBuilder report = new StringBuilder(String.format("[%.1fs] %.1f firings/s, %d total%n", uptime / 1e9,
+                elapsed == 0 ? 0 : fired * 1e9 / elapsed, getTotalFirings()));
+        report.append(String.format("  firings      %s%n", perTransition(firings)));
+        report.append(String.format("  queue depth  %s%n", perTransition(Arrays.stream(queueDepths).asLongStream().toArray())));
+        report.append(String.format("  mutex hold   %s%n", mutexHold));
+        report.append(String.format("  mutex wait   %s%n", mutexWait));
+        report.append(String.format("  queue wait   %s%n", queueWait));
+        StringBuilder windows = new StringBuilder();
+        for(int transition = 0; transition < windowHits.length; transition++) {
+            if(windowHits[transition] + windowEarly[transition] + windowLate[transition] == 0) continue;
+            windows.append(String.format(" T%d=%d/%d/%d", transition + 1, windowHits[transition],
+                    windowEarly[transition], windowLate[transition]));
+        }
+        report.append(String.format("  windows (hit/early/late)%s", windows));
+        return report.toString();
+    }
+
+    private static String perTransition(long[] values) {
+        StringBuilder text = new StringBuilder();
+        for(int transition = 0; transition < values.length; transition++) {
+            text.append(String.format("T%d=%d ", transition + 1, values[transition]));
+        }
+        return text.toString().trim();
+    }
+}
@@ -0,0 +1,166 @@
+package org.compurrentes.metrics;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Métricas del monitor en ejecución: disparos y profundidad de cola por transición, tiempos de espera y de
+ *  tenencia del mutex, tiempo de espera en las colas de transición y llegadas a las ventanas temporales.
+ *  Todos los registros son sin locks (LongAdder, contadores atómicos e histogramas LatencyHistogram), por lo que
+ *  pueden hacerse desde adentro del monitor sin alargar la sección crítica más que unos nanosegundos, y
+ *  cualquier hilo puede tomar una instantánea mientras la línea de producción corre.
+ */
+public class MonitorMetrics {
+
+    private final LongSupplier clock; /*Reloj en nanosegundos*/
+    private final long startTime;
+    private final LongAdder[] firings; /*Disparos por transición*/
+    private final AtomicIntegerArray queueDepths; /*Hilos esperando por transición*/
+    private final LongAdder[] windowHits; /*Llegadas dentro de la ventana temporal*/
+    private final LongAdder[] windowEarly; /*Llegadas antes de abrirse la ventana*/
+    private final LongAdder[] windowLate; /*Llegadas luego de vencida la ventana*/
+    private final LatencyHistogram mutexHold = new LatencyHistogram(); /*Tiempo de tenencia del mutex*/
+    private final LatencyHistogram mutexWait = new LatencyHistogram(); /*Espera para tomar el mutex*/
+    private final LatencyHistogram queueWait = new LatencyHistogram(); /*Espera en la cola de una transición*/
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param totalTransitions cantidad de transiciones de la RdP
+     */
+    public MonitorMetrics(int totalTransitions) {
+        this(totalTransitions, System::nanoTime);
+    }
+
+    /**
+     * Constructor de la clase con un reloj a elección, por ejemplo el reloj virtual de la simulación (ver
+     *  Simulator), con el que se mide el tiempo de actividad de las instantáneas.
+     *
+     * @param totalTransitions cantidad de transiciones de la RdP
+     * @param clock reloj en nanosegundos
+     */
+    public MonitorMetrics(int totalTransitions, LongSupplier clock) {
+        this.clock = clock;
+        startTime = clock.getAsLong();
+        firings = adders(totalTransitions);
+        queueDepths = new AtomicIntegerArray(totalTransitions);
+        windowHits = adders(totalTransitions);
+        windowEarly = adders(totalTransitions);
+        windowLate = adders(totalTransitions);
+    }
+
+    private static LongAdder[] adders(int size) {
+        LongAdder[] adders = new LongAdder[size];
+        for(int i = 0; i < size; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Registra el disparo de una transición.
+     *
+     * @param transition transición disparada
+     */
+    public void recordFiring(int transition) {
+        firings[transition].increment();
+    }
+
+    /**
+     * Publica la cantidad de hilos esperando por la transición.
+     *
+     * @param transition transición
+     * @param depth hilos en la cola
+     */
+    public void setQueueDepth(int transition, int depth) {
+        queueDepths.lazySet(transition, depth);
+    }
+
+    /**
+     * Retorna la última cantidad publicada de hilos esperando por la transición, sin tomar una instantánea.
+     *
+     * @param transition transición
+     * @return hilos en la cola
+     */
+    public int getQueueDepth(int transition) {
+        return queueDepths.get(transition);
+    }
+
+    /**
+     * Registra una llegada dentro de la ventana temporal de una transición.
+     *
+     * @param transition transición temporizada
+     */
+    public void recordWindowHit(int transition) {
+        windowHits[transition].increment();
+    }
+
+    /**
+     * Registra una llegada antes de abrirse la ventana temporal de una transición.
+     *
+     * @param transition transición temporizada
+     */
+    public void recordWindowEarly(int transition) {
+        windowEarly[transition].increment();
+    }
+
+    /**
+     * Registra una llegada luego de vencida la ventana temporal de una transición.
+     *
+     * @param transition transición temporizada
+     */
+    public void recordWindowLate(int transition) {
+        windowLate[transition].increment();
+    }
+
+    /**
+     * Registra el tiempo durante el que un hilo tuvo el mutex del monitor.
+     *
+     * @param nanos duración en nanosegundos
+     */
+    public void recordMutexHold(long nanos) {
+        mutexHold.record(nanos);
+    }
+
+    /**
+     * Registra el tiempo que un hilo esperó para tomar el mutex del monitor.
+     *
+     * @param nanos duración en nanosegundos
+     */
+    public void recordMutexWait(long nanos) {
+        mutexWait.record(nanos);
+    }
+
+    /**
+     * Registra el tiempo que un hilo esperó en la cola de una transición hasta ser despertado.
+     *
+     * @param nanos duración en nanosegundos
+     */
+    public void recordQueueWait(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    /**
+     * Toma una instantánea de todas las métricas. Puede llamarse desde cualquier hilo.
+     *
+     * @return instantánea de las métricas
+     */
+    public MetricsSnapshot snapshot() {
+        int size = firings.length;
+        int[] depths = new int[size];
+        for(int transition = 0; transition < size; transition++) {
+            depths[transition] = queueDepths.get(transition);
+        }
+        return new MetricsSnapshot(clock.getAsLong() - startTime, sums(firings), depths, mutexHold.snapshot(),
+                mutexWait.snapshot(), queueWait.snapshot(), sums(windowHits), sums(windowEarly), sums(windowLate));
+    }
+
+    private static long[] sums(LongAdder[] adders) {
+        long[] sums = new long[adders.length];
+        for(int i = 0; i < adders.length; i++) {
+            sums[i] = adders[i].sum();
+        }
+        return sums;
+    }
+}
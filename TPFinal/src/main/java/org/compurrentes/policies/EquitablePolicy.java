@@ -0,0 +1,27 @@
+package org.compurrentes.policies;
+
+import org.compurrentes.ModelledProcess;
+
+import java.util.Arrays;
+
+/**
+ * Política equitativa por camino de producción: se prioriza el camino con menor cantidad de disparos
+ *  históricos y, ante igualdad, el primero. Es la política ponderada con todos los pesos iguales.
+ */
+public class EquitablePolicy extends WeightedPolicy {
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param modelledProcess proceso modelado por la RdP
+     */
+    public EquitablePolicy(ModelledProcess modelledProcess) {
+        super(modelledProcess, unitWeights(modelledProcess));
+    }
+
+    private static int[] unitWeights(ModelledProcess modelledProcess) {
+        int[] weights = new int[modelledProcess.getPiecesTransitions().size()];
+        Arrays.fill(weights, 1);
+        return weights;
+    }
+}
@@ -0,0 +1,18 @@
+package org.compurrentes.policies;
+
+/**
+ * Política de disparo consultada por el monitor. Cuando hay más de una transición sensibilizada con hilos
+ *  esperando, la política decide a cuál de ellas se le entrega el monitor. Se llama siempre desde adentro del
+ *  monitor, por lo que las implementaciones no necesitan sincronización propia pero no deben bloquearse, generar
+ *  objetos ni realizar entrada/salida.
+ */
+public interface Policy {
+
+    /**
+     * Devuelve una y solo una transición para ser disparada.
+     *
+     * @param availableTransitions máscara de transiciones disponibles para disparar (al menos una marcada)
+     * @return transición elegida, siempre marcada en availableTransitions
+     */
+    int getPriorityShooter(long[] availableTransitions);
+}
@@ -0,0 +1,53 @@
+package org.compurrentes.policies;
+
+import org.compurrentes.ModelledProcess;
+
+import java.util.Arrays;
+
+/**
+ * Selector de las políticas disponibles. Permite elegir la política al iniciar el programa a partir de una
+ *  especificación de texto, sin necesidad de recompilar:
+ *  <ul>
+ *      <li>{@code equitable}: equitativa por camino de producción (por defecto).</li>
+ *      <li>{@code weighted:2,1,1}: ponderada, un peso por camino de producción.</li>
+ *      <li>{@code roundrobin}: round-robin sobre las transiciones en espera.</li>
+ *      <li>{@code random:42}: aleatoria con la semilla indicada (0 si se omite).</li>
+ *  </ul>
+ */
+public final class Politics {
+
+    public static final String DEFAULT = "equitable";
+
+    private Politics() {
+    }
+
+    /**
+     * Crea la política correspondiente a la especificación.
+     *
+     * @param specification nombre de la política y, opcionalmente, sus parámetros separados por ':'
+     * @param modelledProcess proceso modelado por la RdP
+     * @return política creada
+     * @throws IllegalArgumentException si la especificación no corresponde a ninguna política
+     */
+    public static Policy create(String specification, ModelledProcess modelledProcess) {
+        String[] parts = specification.trim().split(":", 2);
+        String name = parts[0].toLowerCase();
+        String parameters = parts.length > 1 ? parts[1].trim() : "";
+        switch (name) {
+            case "equitable":
+                return new EquitablePolicy(modelledProcess);
+            case "weighted":
+                int[] weights = Arrays.stream(parameters.split(","))
+                        .map(String::trim)
+                        .mapToInt(Integer::parseInt)
+                        .toArray();
+                return new WeightedPolicy(modelledProcess, weights);
+            case "roundrobin":
+                return new RoundRobinPolicy();
+            case "random":
+                return new RandomPolicy(parameters.isEmpty() ? 0 : Long.parseLong(parameters));
+            default:
+                throw new IllegalArgumentException("Unknown policy " + specification);
+        }
+    }
+}
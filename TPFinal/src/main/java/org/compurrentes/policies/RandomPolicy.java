@@ -0,0 +1,43 @@
+package org.compurrentes.policies;
+
+import org.compurrentes.BitMask;
+
+import java.util.Random;
+
+/**
+ * Política aleatoria uniforme entre las transiciones disponibles. Utiliza una semilla fija para que las
+ *  decisiones sean reproducibles entre ejecuciones.
+ */
+public class RandomPolicy implements Policy {
+
+    private final Random random;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param seed semilla del generador
+     */
+    public RandomPolicy(long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * Devuelve una transición disponible elegida al azar con probabilidad uniforme.
+     *
+     * @param availableTransitions máscara de transiciones disponibles para disparar
+     * @return transición elegida
+     */
+    @Override
+    public int getPriorityShooter(long[] availableTransitions) {
+        int total = 0;
+        for(long word : availableTransitions) {
+            total += Long.bitCount(word);
+        }
+        int chosen = random.nextInt(total);
+        int transition = BitMask.nextSetBit(availableTransitions, 0);
+        for(int i = 0; i < chosen; i++) {
+            transition = BitMask.nextSetBit(availableTransitions, transition + 1);
+        }
+        return transition;
+    }
+}
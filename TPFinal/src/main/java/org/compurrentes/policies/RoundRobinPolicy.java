@@ -0,0 +1,28 @@
+package org.compurrentes.policies;
+
+import org.compurrentes.BitMask;
+
+/**
+ * Política round-robin estricta sobre las transiciones en espera: se elige la primera transición disponible
+ *  posterior a la última elegida, volviendo al comienzo al llegar al final.
+ */
+public class RoundRobinPolicy implements Policy {
+
+    private int last = -1; /*Última transición elegida*/
+
+    /**
+     * Devuelve la siguiente transición disponible a partir de la última elegida.
+     *
+     * @param availableTransitions máscara de transiciones disponibles para disparar
+     * @return transición elegida
+     */
+    @Override
+    public int getPriorityShooter(long[] availableTransitions) {
+        int next = BitMask.nextSetBit(availableTransitions, last + 1);
+        if(next < 0) {
+            next = BitMask.nextSetBit(availableTransitions, 0);
+        }
+        last = next;
+        return next;
+    }
+}
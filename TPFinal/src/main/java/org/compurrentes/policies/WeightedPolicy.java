@@ -0,0 +1,111 @@
+package org.compurrentes.policies;
+
+import org.compurrentes.BitMask;
+import org.compurrentes.ModelledProcess;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Política que reparte los disparos entre los caminos de producción en proporción a un peso estático por camino.
+ *  Se prioriza el camino con menor producción relativa a su peso, de modo que un camino con peso 2 produce el doble
+ *  que uno con peso 1. Como se consulta dentro del monitor en cada traspaso, las estructuras se precalculan en el
+ *  constructor y la decisión se toma sin generar objetos ni imprimir en pantalla.
+ */
+public class WeightedPolicy implements Policy {
+
+    private final ModelledProcess modelledProcess;
+    private final int[] weights; /*Peso de cada camino de producción*/
+    private final int[][] paths; /*Transiciones de cada camino de producción*/
+    private final long[][] pathMasks; /*Máscara de transiciones de cada camino*/
+    private final int[] counterTransitions; /*Transición cuyo contador representa la producción de cada camino*/
+    private final int[] order; /*Caminos ordenados de menor a mayor producción*/
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param modelledProcess proceso modelado por la RdP
+     * @param weights peso de cada camino de producción, en el orden de piecesTransitions
+     * @throws IllegalArgumentException si la cantidad de pesos no coincide con la de caminos o hay pesos no positivos
+     */
+    public WeightedPolicy(ModelledProcess modelledProcess, int[] weights) {
+        List<List<Integer>> base = modelledProcess.getPiecesTransitions();
+        if(weights.length != base.size() || Arrays.stream(weights).anyMatch(weight -> weight <= 0)) {
+            throw new IllegalArgumentException(String.format("Expected %d positive weights", base.size()));
+        }
+        this.modelledProcess = modelledProcess;
+        this.weights = weights.clone();
+        int totalTransitions = modelledProcess.getPetriNet().getTotalTransitions();
+        paths = new int[base.size()][];
+        pathMasks = new long[base.size()][];
+        counterTransitions = new int[base.size()];
+        order = new int[base.size()];
+        for(int path = 0; path < base.size(); path++) {
+            paths[path] = base.get(path).stream().mapToInt(Integer::intValue).toArray();
+            pathMasks[path] = BitMask.create(totalTransitions);
+            for(int transition : paths[path]) {
+                BitMask.set(pathMasks[path], transition);
+            }
+            counterTransitions[path] = paths[path][1];
+            order[path] = path;
+        }
+    }
+
+    /**
+     * Devuelve una y solo una transición para ser disparada. El método de decisión es, a partir de todas las
+     *  transiciones disponibles para disparar (availableTransitions) se elige la del camino de producción que tenga
+     *  menor cantidad de disparos históricos dividida por su peso (valor representado en el contador de
+     *  modelledProcess). En caso de haber más de un camino con el mismo valor, se elige el primero.
+     *  El orden de los caminos se mantiene entre llamadas y se corrige por inserción, como los contadores avanzan de a
+     *  uno el arreglo suele estar ya ordenado y el costo es lineal en la cantidad de caminos.
+     *
+     * @param availableTransitions máscara de transiciones disponibles para disparar
+     * @return privilegedAction
+     */
+    @Override
+    public int getPriorityShooter(long[] availableTransitions) {
+        AtomicIntegerArray actions = modelledProcess.getTransitionActionCounter();
+        sortPaths(actions);
+
+        for(int path : order) {
+            if(!intersects(pathMasks[path], availableTransitions)) continue;
+            for(int transition : paths[path]) {
+                if(BitMask.isSet(availableTransitions, transition)) return transition;
+            }
+        }
+        /*Transición disponible que no pertenece a ningún camino de producción*/
+        return BitMask.nextSetBit(availableTransitions, 0);
+    }
+
+    /**
+     * Ordena los caminos por cantidad de disparos relativa al peso y, ante igualdad, por su posición original.
+     *
+     * @param actions contador de disparos por transición
+     */
+    private void sortPaths(AtomicIntegerArray actions) {
+        for(int i = 1; i < order.length; i++) {
+            int path = order[i];
+            int j = i - 1;
+            while(j >= 0 && precedes(path, order[j], actions)) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = path;
+        }
+    }
+
+    private boolean precedes(int path, int other, AtomicIntegerArray actions) {
+        /*count / weight < otherCount / otherWeight, sin divisiones*/
+        long count = (long) actions.get(counterTransitions[path]) * weights[other];
+        long otherCount = (long) actions.get(counterTransitions[other]) * weights[path];
+        return count < otherCount || (count == otherCount && path < other);
+    }
+
+    private static boolean intersects(long[] mask, long[] other) {
+        for(int word = 0; word < mask.length; word++) {
+            if((mask[word] & other[word]) != 0) return true;
+        }
+        return false;
+    }
+}